@@ -0,0 +1,70 @@
+package org.example.socksproject.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.example.socksproject.SocksProjectApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the application without the web layer against a throwaway embedded PostgreSQL instance.
+ * <p>
+ * H2 in PostgreSQL mode is not used as the stand-in: it doesn't support {@code ON CONFLICT ... DO UPDATE},
+ * which the income, movement and batch paths are built on. Application logging is turned down to WARN so
+ * that console output doesn't dominate the measurements.
+ */
+final class BenchmarkApplication implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkApplication(EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    /**
+     * @param properties extra {@code name=value} application properties
+     */
+    static BenchmarkApplication start(String... properties) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.start();
+        try {
+            List<String> args = new ArrayList<>(List.of(
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    // Only used with the reactive profile.
+                    "--spring.r2dbc.url=r2dbc:postgresql://localhost:" + postgres.getPort() + "/postgres",
+                    "--spring.r2dbc.username=postgres",
+                    "--spring.main.web-application-type=none",
+                    "--spring.ai.openai.api-key=benchmark",
+                    "--logging.level.org.example.socksproject=WARN",
+                    "--socks.inventory-index.consistency-check-interval=PT1H",
+                    "--socks.batch.checkpoints.enabled=false"));
+            for (String property : properties) {
+                args.add("--" + property);
+            }
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(SocksProjectApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .logStartupInfo(false)
+                    .run(args.toArray(String[]::new));
+            return new BenchmarkApplication(postgres, context);
+        } catch (RuntimeException e) {
+            postgres.close();
+            throw e;
+        }
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        postgres.close();
+    }
+}
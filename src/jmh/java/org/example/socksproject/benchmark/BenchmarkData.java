@@ -0,0 +1,46 @@
+package org.example.socksproject.benchmark;
+
+import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.model.SocksKey;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic keys and CSV content, so runs on different commits measure the same work.
+ */
+final class BenchmarkData {
+
+    private static final int COTTON_PERCENTAGES = 101;
+
+    private BenchmarkData() {
+    }
+
+    static SocksKey key(int index) {
+        return new SocksKey("color-" + index / COTTON_PERCENTAGES, index % COTTON_PERCENTAGES);
+    }
+
+    static SocksDto[] dtos(int keys, int quantity) {
+        SocksDto[] dtos = new SocksDto[keys];
+        for (int i = 0; i < keys; i++) {
+            SocksKey key = key(i);
+            dtos[i] = SocksDto.builder()
+                    .color(key.color())
+                    .cottonPercentage(key.cottonPercentage())
+                    .quantity(quantity)
+                    .build();
+        }
+        return dtos;
+    }
+
+    static String csv(int rows, int keys) {
+        SplittableRandom random = new SplittableRandom(rows * 31L + keys);
+        StringBuilder csv = new StringBuilder(rows * 24).append("color,cottonPercentage,quantity\n");
+        for (int i = 0; i < rows; i++) {
+            SocksKey key = key(random.nextInt(keys));
+            csv.append(key.color()).append(',')
+                    .append(key.cottonPercentage()).append(',')
+                    .append(random.nextInt(1, 100)).append('\n');
+        }
+        return csv.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.socksproject.benchmark;
+
+import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.service.SocksService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads writing to a few hot socks, the case row locks and write-combining are about.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+public class ContendedIncomeBenchmark {
+
+    @Param({"1", "8"})
+    int hotKeys;
+
+    @Param({"false", "true"})
+    boolean writeCombining;
+
+    private BenchmarkApplication application;
+    private SocksService socksService;
+    private SocksDto[] movements;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        application = BenchmarkApplication.start(
+                "socks.write-combining.enabled=" + writeCombining,
+                "spring.datasource.hikari.maximum-pool-size=16");
+        socksService = application.getBean(SocksService.class);
+
+        movements = BenchmarkData.dtos(hotKeys, 1);
+        for (SocksDto stock : BenchmarkData.dtos(hotKeys, 1_000_000_000)) {
+            socksService.incomeSocks(stock);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        application.close();
+    }
+
+    @Benchmark
+    public void income() {
+        socksService.incomeSocks(hotKey());
+    }
+
+    @Benchmark
+    public void outcome() {
+        socksService.outcomeSocks(hotKey());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(12)
+    public void mixedIncome() {
+        socksService.incomeSocks(hotKey());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public void mixedOutcome() {
+        socksService.outcomeSocks(hotKey());
+    }
+
+    private SocksDto hotKey() {
+        return movements[ThreadLocalRandom.current().nextInt(hotKeys)];
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.socksproject.benchmark;
+
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.service.batch.BatchImportResult;
+import org.example.socksproject.service.batch.ImportCheckpoint;
+import org.example.socksproject.service.batch.ParallelCsvImporter;
+import org.example.socksproject.service.batch.SocksBatchImporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and aggregation of uploads without the database: the writes are replaced by no-ops.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CsvParsingBenchmark {
+
+    @Param({"10000", "1000000"})
+    int rows;
+
+    @Param({"10", "10000"})
+    int keys;
+
+    private byte[] content;
+    private Path file;
+    private SocksBatchImporter sequentialImporter;
+    private ParallelCsvImporter parallelImporter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        content = BenchmarkData.csv(rows, keys).getBytes(StandardCharsets.UTF_8);
+        file = Files.createTempFile("socks-benchmark-", ".csv");
+        Files.write(file, content);
+
+        SocksProperties socksProperties = new SocksProperties();
+        socksProperties.getBatch().getParallelParsing().setEnabled(true);
+        socksProperties.getBatch().getParallelParsing().setMinSegmentSize(DataSize.ofKilobytes(64));
+
+        sequentialImporter = new SocksBatchImporter(null, null, null, null, socksProperties) {
+            @Override
+            public void applyChunk(Map<SocksKey, Integer> chunk, Runnable inTransaction) {
+            }
+        };
+        SocksBatchImporter aggregatedImporter = new SocksBatchImporter(null, null, null, null, socksProperties) {
+            @Override
+            public int importAggregated(Map<SocksKey, Integer> quantities, ImportCheckpoint checkpoint,
+                                        long rows, long end, String contentHash, boolean complete) {
+                return 0;
+            }
+        };
+        parallelImporter = new ParallelCsvImporter(aggregatedImporter, null, socksProperties);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        parallelImporter.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public BatchImportResult sequential() throws IOException {
+        return sequentialImporter.importCsv(new ByteArrayInputStream(content));
+    }
+
+    @Benchmark
+    public BatchImportResult parallel() throws IOException {
+        return parallelImporter.importPath(file);
+    }
+}
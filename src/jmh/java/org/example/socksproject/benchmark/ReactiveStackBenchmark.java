@@ -0,0 +1,140 @@
+package org.example.socksproject.benchmark;
+
+import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.service.ReactiveSocksService;
+import org.example.socksproject.service.SocksService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * {@code SocksServiceImpl} against {@code ReactiveSocksService} in the same application and database, with
+ * {@code concurrency} requests in flight. The blocking service gets a thread per request in flight, the reactive
+ * one none; both have 20 database connections. A score is the time of one wave of {@code concurrency} requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReactiveStackBenchmark {
+
+    private static final String[] COMPARISONS = {"moreThan", "lessThan", "equal"};
+
+    private static final int KEYS = 1000;
+
+    private static final int UPLOAD_ROWS = 10_000;
+
+    @Param({"blocking", "reactive"})
+    String stack;
+
+    @Param({"1", "64"})
+    int concurrency;
+
+    private BenchmarkApplication application;
+    private SocksService socksService;
+    private ReactiveSocksService reactiveSocksService;
+    private ExecutorService executor;
+    private SocksDto[] incomes;
+    private String csv;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        application = BenchmarkApplication.start(
+                "spring.profiles.active=reactive",
+                "spring.datasource.hikari.maximum-pool-size=20",
+                "spring.r2dbc.pool.max-size=20");
+        socksService = application.getBean(SocksService.class);
+        reactiveSocksService = application.getBean(ReactiveSocksService.class);
+        executor = Executors.newFixedThreadPool(concurrency);
+
+        incomes = BenchmarkData.dtos(KEYS, 1);
+        for (SocksDto stock : BenchmarkData.dtos(KEYS, 1_000_000)) {
+            socksService.incomeSocks(stock);
+        }
+        csv = BenchmarkData.csv(UPLOAD_ROWS, KEYS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        application.close();
+    }
+
+    @Benchmark
+    public void incomeSocks() throws Exception {
+        wave(i -> socksService.incomeSocks(randomIncome()),
+                i -> reactiveSocksService.incomeSocks(randomIncome()));
+    }
+
+    @Benchmark
+    public void getSocksCount() throws Exception {
+        wave(i -> {
+            SocksDto socks = randomIncome();
+            socksService.getSocksCount(socks.getColor(), randomComparison(), socks.getCottonPercentage());
+        }, i -> {
+            SocksDto socks = randomIncome();
+            return reactiveSocksService.getSocksCount(socks.getColor(), randomComparison(),
+                    socks.getCottonPercentage()).then();
+        });
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void uploadFile() throws Exception {
+        if ("reactive".equals(stack)) {
+            reactiveSocksService.uploadBatch(Flux.fromArray(csv.split("\n"))).block();
+        } else {
+            socksService.uploadFile(new MockMultipartFile("file", "socks.csv", "text/csv",
+                    csv.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private void wave(IntConsumer blocking, IntFunction<Mono<Void>> reactive) throws Exception {
+        if ("reactive".equals(stack)) {
+            Flux.range(0, concurrency).flatMap(reactive::apply, concurrency).then().block();
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            int request = i;
+            futures.add(executor.submit(() -> blocking.accept(request)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private SocksDto randomIncome() {
+        return incomes[ThreadLocalRandom.current().nextInt(KEYS)];
+    }
+
+    private static String randomComparison() {
+        return COMPARISONS[ThreadLocalRandom.current().nextInt(COMPARISONS.length)];
+    }
+}
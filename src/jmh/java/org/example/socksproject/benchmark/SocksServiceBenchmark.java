@@ -0,0 +1,97 @@
+package org.example.socksproject.benchmark;
+
+import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.service.SocksService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded cost of the service operations, including the database round trips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SocksServiceBenchmark {
+
+    private static final String[] COMPARISONS = {"moreThan", "lessThan", "equal"};
+
+    private static final int UPLOAD_ROWS = 10_000;
+
+    /**
+     * Number of distinct socks the requests are spread over.
+     */
+    @Param({"100", "10000"})
+    int keys;
+
+    @Param({"true", "false"})
+    boolean inventoryIndex;
+
+    private BenchmarkApplication application;
+    private SocksService socksService;
+    private SocksDto[] incomes;
+    private SocksDto[] outcomes;
+    private MockMultipartFile upload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        application = BenchmarkApplication.start("socks.inventory-index.enabled=" + inventoryIndex);
+        socksService = application.getBean(SocksService.class);
+
+        incomes = BenchmarkData.dtos(keys, 1);
+        outcomes = BenchmarkData.dtos(keys, 1);
+        for (SocksDto stock : BenchmarkData.dtos(keys, 1_000_000_000)) {
+            socksService.incomeSocks(stock);
+        }
+        upload = new MockMultipartFile("file", "socks.csv", "text/csv",
+                BenchmarkData.csv(UPLOAD_ROWS, keys).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        application.close();
+    }
+
+    @Benchmark
+    public void incomeSocks() {
+        socksService.incomeSocks(incomes[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+
+    @Benchmark
+    public void outcomeSocks() {
+        socksService.outcomeSocks(outcomes[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+
+    @Benchmark
+    public int getSocksCount() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        SocksDto socks = incomes[random.nextInt(keys)];
+        return socksService.getSocksCount(socks.getColor(), COMPARISONS[random.nextInt(COMPARISONS.length)],
+                socks.getCottonPercentage());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void uploadFile() {
+        socksService.uploadFile(upload);
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.socksproject.benchmark;
+
+import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.service.SocksService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Income latency and throughput acknowledged after the database commit versus after the local write-ahead
+ * log append. Sample time mode reports the p99 next to the mean.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+public class WriteAheadLogBenchmark {
+
+    @Param({"false", "true"})
+    boolean writeAheadLog;
+
+    @Param({"8"})
+    int hotKeys;
+
+    private Path directory;
+    private BenchmarkApplication application;
+    private SocksService socksService;
+    private SocksDto[] incomes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("socks-wal-");
+        application = BenchmarkApplication.start(
+                "socks.wal.enabled=" + writeAheadLog,
+                "socks.wal.directory=" + directory,
+                "spring.datasource.hikari.maximum-pool-size=16");
+        socksService = application.getBean(SocksService.class);
+        incomes = BenchmarkData.dtos(hotKeys, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        application.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void income() {
+        socksService.incomeSocks(incomes[ThreadLocalRandom.current().nextInt(hotKeys)]);
+    }
+}
@@ -0,0 +1,168 @@
+package org.example.socksproject.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load test of the HTTP API: {@code SocksController} through the service and JPA to PostgreSQL.
+ * <p>
+ * Requests arrive at the configured rate as a Poisson process whether or not earlier ones have been answered,
+ * as they would from independent clients, and batch uploads can run alongside. Every request is timed from its
+ * intended start, into an HdrHistogram per operation. Run it with
+ * {@code ./gradlew loadTest -PloadTestArgs="rate=500 duration=PT60S zipf=1.2"}; see {@link LoadTestConfig} for
+ * the options. The report also has the peak threads, heap and requests in flight of the measured time.
+ */
+public final class LoadTest {
+
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final LoadTestConfig config;
+    private final Workload workload;
+    private final ExecutorService clientExecutor;
+    private final HttpClient client;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final ServerStats serverStats = new ServerStats();
+
+    private LoadTest(LoadTestConfig config, URI baseUri) {
+        this.config = config;
+        this.workload = new Workload(config, baseUri);
+        this.clientExecutor = Executors.newFixedThreadPool(config.clientThreads());
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .build();
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        LoadTestReport report;
+        try (LoadTestServer server = LoadTestServer.start(config.appProperties())) {
+            LoadTest loadTest = new LoadTest(config, server.baseUri());
+            try {
+                loadTest.stock();
+                report = loadTest.run();
+            } finally {
+                loadTest.clientExecutor.shutdownNow();
+            }
+        }
+
+        report.print(System.out);
+        report.write(config.report());
+        System.out.println("Report written to " + config.report().toAbsolutePath());
+        if (config.baseline() != null) {
+            report.compare(LoadTestReport.read(config.baseline()), System.out);
+        }
+    }
+
+    private void stock() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(workload.stockAll(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Failed to stock the keys: " + response.statusCode() + " " + response.body());
+        }
+    }
+
+    private LoadTestReport run() throws InterruptedException {
+        long start = System.nanoTime();
+        long measuredFrom = start + config.warmup().toNanos();
+        long end = measuredFrom + config.duration().toNanos();
+
+        Thread uploader = null;
+        if (!config.uploadInterval().isZero()) {
+            uploader = new Thread(() -> uploadLoop(measuredFrom, end), "loadtest-uploader");
+            uploader.start();
+        }
+
+        SplittableRandom random = new SplittableRandom(config.seed());
+        double meanGapNanos = 1e9 / config.rate();
+        long next = start;
+        boolean measuring = false;
+        while (next < end) {
+            parkUntil(next);
+            long intendedStart = next;
+            if (!measuring && intendedStart >= measuredFrom) {
+                measuring = true;
+                serverStats.start();
+            }
+            next += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+
+            Operation operation = workload.nextOperation(random);
+            HttpRequest request = workload.request(operation, random);
+            OperationStats operationStats = intendedStart >= measuredFrom ? stats.get(operation) : null;
+            int requestsInFlight = inFlight.incrementAndGet();
+            if (requestsInFlight > config.maxInFlight()) {
+                inFlight.decrementAndGet();
+                if (operationStats != null) {
+                    operationStats.dropped();
+                }
+                continue;
+            }
+            if (operationStats != null) {
+                maxInFlight.accumulateAndGet(requestsInFlight, Math::max);
+            }
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                inFlight.decrementAndGet();
+                if (operationStats != null) {
+                    operationStats.record(System.nanoTime() - intendedStart, response == null ? -1 : response.statusCode());
+                }
+            });
+        }
+
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        if (uploader != null) {
+            uploader.join();
+        }
+        LoadTestReport.Server server = measuring ? serverStats.stop(maxInFlight.get()) : null;
+        return LoadTestReport.of(config, stats, end - measuredFrom, server);
+    }
+
+    /**
+     * Uploads one batch at a time, pausing between them, until the end of the run.
+     */
+    private void uploadLoop(long measuredFrom, long end) {
+        SplittableRandom random = new SplittableRandom(config.seed() + 1);
+        long pause = config.uploadInterval().toNanos();
+        while (System.nanoTime() + pause < end) {
+            parkUntil(System.nanoTime() + pause);
+            long started = System.nanoTime();
+            int status;
+            try {
+                status = client.send(workload.upload(random, config.uploadRows()),
+                        HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                status = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (started >= measuredFrom) {
+                stats.get(Operation.UPLOAD).record(System.nanoTime() - started, status);
+            }
+        }
+    }
+
+    private static void parkUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.socksproject.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options of a load test run, given as {@code name=value} arguments. Durations are ISO-8601 ({@code PT30S}) or
+ * plain seconds. Arguments starting with {@code app.} are passed to the application without the prefix, for
+ * example {@code app.socks.write-combining.enabled=true}.
+ *
+ * @param rate           arrivals per second, spread as a Poisson process independent of response times
+ * @param duration       measured time, after the warmup
+ * @param warmup         time during which requests are sent but not recorded
+ * @param readRatio      share of requests that are count queries; the rest are incomes and outcomes
+ * @param outcomeRatio   share of writes that are outcomes
+ * @param colors         number of colors; every color has all 101 cotton percentages
+ * @param zipf           exponent of the Zipf distribution of keys; 0 picks keys uniformly
+ * @param uploadInterval pause between batch uploads running alongside the requests; 0 disables them
+ * @param uploadRows     rows per batch upload
+ * @param maxInFlight    requests waiting for a response above which new arrivals are dropped and counted
+ * @param clientThreads  threads of the HTTP client
+ * @param seed           seed of the workload, so runs with the same options send the same requests
+ * @param report         JSON report written at the end
+ * @param baseline       JSON report of an earlier run to compare with, optional
+ */
+record LoadTestConfig(double rate,
+                      Duration duration,
+                      Duration warmup,
+                      double readRatio,
+                      double outcomeRatio,
+                      int colors,
+                      double zipf,
+                      Duration uploadInterval,
+                      int uploadRows,
+                      int maxInFlight,
+                      int clientThreads,
+                      long seed,
+                      Path report,
+                      Path baseline,
+                      List<String> appProperties) {
+
+    private static final String APP_PREFIX = "app.";
+
+    static LoadTestConfig parse(String... args) {
+        Map<String, String> options = new HashMap<>();
+        List<String> appProperties = new ArrayList<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Expected name=value, got: " + arg);
+            }
+            String name = arg.substring(0, separator);
+            if (name.startsWith(APP_PREFIX)) {
+                appProperties.add(arg.substring(APP_PREFIX.length()));
+            } else {
+                options.put(name, arg.substring(separator + 1));
+            }
+        }
+
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        LoadTestConfig config = new LoadTestConfig(
+                Double.parseDouble(option(options, "rate", "200")),
+                duration(option(options, "duration", "PT60S")),
+                duration(option(options, "warmup", "PT10S")),
+                Double.parseDouble(option(options, "readRatio", "0.8")),
+                Double.parseDouble(option(options, "outcomeRatio", "0.3")),
+                Integer.parseInt(option(options, "colors", "50")),
+                Double.parseDouble(option(options, "zipf", "1.0")),
+                duration(option(options, "uploadInterval", "PT0S")),
+                Integer.parseInt(option(options, "uploadRows", "10000")),
+                Integer.parseInt(option(options, "maxInFlight", "1000")),
+                Integer.parseInt(option(options, "clientThreads", "16")),
+                Long.parseLong(option(options, "seed", "42")),
+                Path.of(option(options, "report", "build/reports/loadtest/loadtest-" + timestamp + ".json")),
+                options.containsKey("baseline") ? Path.of(options.remove("baseline")) : null,
+                List.copyOf(appProperties));
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + options.keySet());
+        }
+        if (config.rate <= 0 || config.readRatio < 0 || config.readRatio > 1
+                || config.outcomeRatio < 0 || config.outcomeRatio > 1 || config.colors < 1 || config.zipf < 0) {
+            throw new IllegalArgumentException("Invalid options: " + config);
+        }
+        return config;
+    }
+
+    /**
+     * Options that shape the workload, written into the report so that reports of different runs can be matched.
+     */
+    Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("rate", rate);
+        description.put("duration", duration.toString());
+        description.put("warmup", warmup.toString());
+        description.put("readRatio", readRatio);
+        description.put("outcomeRatio", outcomeRatio);
+        description.put("colors", colors);
+        description.put("zipf", zipf);
+        description.put("uploadInterval", uploadInterval.toString());
+        description.put("uploadRows", uploadRows);
+        description.put("maxInFlight", maxInFlight);
+        description.put("seed", seed);
+        description.put("appProperties", appProperties);
+        return description;
+    }
+
+    private static String option(Map<String, String> options, String name, String defaultValue) {
+        String value = options.remove(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private static Duration duration(String value) {
+        return value.startsWith("P") ? Duration.parse(value) : Duration.ofSeconds(Long.parseLong(value));
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.socksproject.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Result of a run, printed as a table and written as JSON so that runs before and after a change can be
+ * compared with {@code baseline=<report.json>}.
+ *
+ * @param config options that shaped the workload, see {@link LoadTestConfig#describe()}
+ * @param rows   one row per operation, and a {@code requests} row over all single requests
+ * @param server peaks of the measured time, missing in reports of older runs
+ */
+record LoadTestReport(String finishedAt, double measuredSeconds, Map<String, Object> config, List<Row> rows,
+                      Server server) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    static final String REQUESTS = "requests";
+
+    /**
+     * Latencies are in milliseconds. {@code rejected} counts 4xx responses other than 409, which outcomes beyond
+     * the stock produce; {@code dropped} counts arrivals not sent because too many requests were in flight.
+     */
+    record Row(String operation, long count, double throughput, long errors, long conflicts, long rejected,
+               long dropped, double conflictRate, double p50, double p90, double p99, double p999, double max) {
+    }
+
+    /**
+     * Peak live platform threads and heap used of the JVM running client and server, and the most requests the
+     * client had waiting for a response.
+     */
+    record Server(int peakThreads, double peakHeapMb, int maxInFlight) {
+    }
+
+    static LoadTestReport of(LoadTestConfig config, Map<Operation, OperationStats> stats, long measuredNanos,
+                             Server server) {
+        double seconds = measuredNanos / 1e9;
+        List<Row> rows = new ArrayList<>();
+        Histogram requests = new Histogram(3);
+        long errors = 0;
+        long conflicts = 0;
+        long rejected = 0;
+        long dropped = 0;
+        for (Operation operation : Operation.values()) {
+            OperationStats operationStats = stats.get(operation);
+            if (operationStats == null || operationStats.latencies().getTotalCount() == 0) {
+                continue;
+            }
+            rows.add(row(operation.name().toLowerCase(Locale.ROOT), operationStats.latencies(), seconds,
+                    operationStats.errors(), operationStats.conflicts(), operationStats.rejected(),
+                    operationStats.droppedCount()));
+            if (operation != Operation.UPLOAD) {
+                requests.add(operationStats.latencies());
+                errors += operationStats.errors();
+                conflicts += operationStats.conflicts();
+                rejected += operationStats.rejected();
+                dropped += operationStats.droppedCount();
+            }
+        }
+        rows.add(row(REQUESTS, requests, seconds, errors, conflicts, rejected, dropped));
+        return new LoadTestReport(Instant.now().toString(), seconds, config.describe(), rows, server);
+    }
+
+    static LoadTestReport read(Path path) throws IOException {
+        return MAPPER.readValue(path.toFile(), LoadTestReport.class);
+    }
+
+    void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        MAPPER.writeValue(path.toFile(), this);
+    }
+
+    void print(PrintStream out) {
+        out.printf(Locale.ROOT, "Load test: %s, measured %.1f s%n", config, measuredSeconds);
+        out.printf(Locale.ROOT, "%-10s %9s %9s %7s %9s %9s %7s %9s %9s %9s %9s %9s%n", "operation", "count", "ops/s",
+                "errors", "409s", "rejected", "dropped", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Row row : rows) {
+            out.printf(Locale.ROOT, "%-10s %9d %9.1f %7d %9d %9d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    row.operation(), row.count(), row.throughput(), row.errors(), row.conflicts(), row.rejected(),
+                    row.dropped(), row.p50(), row.p90(), row.p99(), row.p999(), row.max());
+        }
+        if (server != null) {
+            out.printf(Locale.ROOT, "peak threads %d, peak heap %.1f MB, max in flight %d%n",
+                    server.peakThreads(), server.peakHeapMb(), server.maxInFlight());
+        }
+    }
+
+    /**
+     * Prints the change of throughput and p99 of every operation the baseline also has.
+     */
+    void compare(LoadTestReport baseline, PrintStream out) {
+        // Compared as text: numbers read back from JSON may have another boxed type than the ones written.
+        if (!baseline.config().toString().equals(config.toString())) {
+            out.println("Warning: the baseline was run with other options: " + baseline.config());
+        }
+        out.printf(Locale.ROOT, "%-10s %12s %12s %12s %12s%n", "operation", "ops/s", "change", "p99 ms", "change");
+        for (Row row : rows) {
+            baseline.rows().stream()
+                    .filter(base -> base.operation().equals(row.operation()))
+                    .findFirst()
+                    .ifPresent(base -> out.printf(Locale.ROOT, "%-10s %12.1f %+11.1f%% %12.2f %+11.1f%%%n",
+                            row.operation(), row.throughput(), change(base.throughput(), row.throughput()),
+                            row.p99(), change(base.p99(), row.p99())));
+        }
+        if (server != null && baseline.server() != null) {
+            out.printf(Locale.ROOT, "%-10s %12d %+11.1f%% %12.1f %+11.1f%%  (peak threads, peak heap MB)%n", "server",
+                    server.peakThreads(), change(baseline.server().peakThreads(), server.peakThreads()),
+                    server.peakHeapMb(), change(baseline.server().peakHeapMb(), server.peakHeapMb()));
+        }
+    }
+
+    private static Row row(String operation, Histogram latencies, double seconds, long errors, long conflicts,
+                           long rejected, long dropped) {
+        long count = latencies.getTotalCount();
+        return new Row(operation, count, count / seconds, errors, conflicts, rejected, dropped,
+                count == 0 ? 0 : (double) conflicts / count,
+                millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(90)),
+                millis(latencies.getValueAtPercentile(99)), millis(latencies.getValueAtPercentile(99.9)),
+                millis(latencies.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static double change(double before, double after) {
+        return before == 0 ? 0 : (after - before) / before * 100;
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.socksproject.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.example.socksproject.SocksProjectApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the whole application, web layer included, on a random localhost port against a throwaway embedded
+ * PostgreSQL instance migrated by Flyway, like the benchmarks do without the web layer.
+ */
+final class LoadTestServer implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+
+    private LoadTestServer(EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    /**
+     * @param properties extra {@code name=value} application properties
+     */
+    static LoadTestServer start(List<String> properties) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.start();
+        try {
+            List<String> args = new ArrayList<>(List.of(
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--server.port=0",
+                    "--spring.ai.openai.api-key=loadtest",
+                    "--logging.level.org.example.socksproject=WARN",
+                    "--socks.inventory-index.consistency-check-interval=PT1H"));
+            for (String property : properties) {
+                args.add("--" + property);
+            }
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(SocksProjectApplication.class)
+                    .logStartupInfo(false)
+                    .run(args.toArray(String[]::new));
+            return new LoadTestServer(postgres, context);
+        } catch (RuntimeException e) {
+            postgres.close();
+            throw e;
+        }
+    }
+
+    URI baseUri() {
+        return URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/socks");
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        postgres.close();
+    }
+}
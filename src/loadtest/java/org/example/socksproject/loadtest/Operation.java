@@ -0,0 +1,8 @@
+package org.example.socksproject.loadtest;
+
+enum Operation {
+    COUNT,
+    INCOME,
+    OUTCOME,
+    UPLOAD
+}
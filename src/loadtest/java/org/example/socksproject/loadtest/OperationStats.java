@@ -0,0 +1,59 @@
+package org.example.socksproject.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of one operation. Latency is measured from the intended start of a request, not
+ * from when it was actually sent, so a stalled server shows up in the percentiles instead of slowing down
+ * the arrivals (coordinated omission).
+ */
+final class OperationStats {
+
+    private final Histogram latencies = new ConcurrentHistogram(3);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param status HTTP status, or -1 if the request failed without a response
+     */
+    void record(long latencyNanos, int status) {
+        latencies.recordValue(Math.max(1, latencyNanos / 1000));
+        if (status == 409) {
+            conflicts.increment();
+        } else if (status >= 400 && status < 500) {
+            // Outcomes beyond the stock are expected to be refused with 400.
+            rejected.increment();
+        } else if (status < 200 || status >= 500) {
+            errors.increment();
+        }
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    Histogram latencies() {
+        return latencies;
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    long conflicts() {
+        return conflicts.sum();
+    }
+
+    long rejected() {
+        return rejected.sum();
+    }
+
+    long droppedCount() {
+        return dropped.sum();
+    }
+}
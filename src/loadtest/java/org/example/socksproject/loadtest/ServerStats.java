@@ -0,0 +1,49 @@
+package org.example.socksproject.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Threads and heap of the JVM during the measured time, to compare how the application scales with platform
+ * threads and with virtual threads ({@code app.spring.threads.virtual.enabled=true}). The server runs in the
+ * same JVM, so the figures include the client's threads, the same in every run; virtual threads are not counted.
+ */
+final class ServerStats {
+
+    private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private volatile boolean running;
+    private volatile long peakHeapBytes;
+    private Thread sampler;
+
+    void start() {
+        threads.resetPeakThreadCount();
+        running = true;
+        sampler = new Thread(this::sample, "loadtest-server-stats");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /**
+     * @param maxInFlight most requests the client had waiting for a response, counted by the caller
+     * @return the peaks since {@link #start()}
+     */
+    LoadTestReport.Server stop(int maxInFlight) throws InterruptedException {
+        running = false;
+        sampler.join();
+        return new LoadTestReport.Server(threads.getPeakThreadCount(), peakHeapBytes / (1024.0 * 1024.0),
+                maxInFlight);
+    }
+
+    private void sample() {
+        while (running) {
+            peakHeapBytes = Math.max(peakHeapBytes, memory.getHeapMemoryUsage().getUsed());
+            LockSupport.parkNanos(SAMPLE_INTERVAL_NANOS);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.socksproject.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Builds the requests of a run. Keys are drawn from a Zipf distribution over a fixed, shuffled ranking, so the
+ * hot keys are spread over colors and cotton percentages rather than being the first ones.
+ */
+final class Workload {
+
+    private static final int COTTON_PERCENTAGES = 101;
+    private static final String[] COMPARISONS = {"moreThan", "lessThan", "equal"};
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Quantity every key is stocked with before the run, so that outcomes rarely run dry.
+     */
+    static final int INITIAL_STOCK = 1_000_000;
+
+    private final LoadTestConfig config;
+    private final URI baseUri;
+    private final List<Key> ranking;
+    private final double[] cumulative;
+
+    Workload(LoadTestConfig config, URI baseUri) {
+        this.config = config;
+        this.baseUri = baseUri;
+
+        List<Key> keys = new ArrayList<>(config.colors() * COTTON_PERCENTAGES);
+        for (int color = 0; color < config.colors(); color++) {
+            for (int cotton = 0; cotton < COTTON_PERCENTAGES; cotton++) {
+                keys.add(new Key("color-" + color, cotton));
+            }
+        }
+        Collections.shuffle(keys, new Random(config.seed()));
+        this.ranking = List.copyOf(keys);
+
+        cumulative = new double[keys.size()];
+        double sum = 0;
+        for (int rank = 0; rank < cumulative.length; rank++) {
+            sum += 1 / Math.pow(rank + 1, config.zipf());
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < cumulative.length; rank++) {
+            cumulative[rank] /= sum;
+        }
+    }
+
+    Operation nextOperation(SplittableRandom random) {
+        if (random.nextDouble() < config.readRatio()) {
+            return Operation.COUNT;
+        }
+        return random.nextDouble() < config.outcomeRatio() ? Operation.OUTCOME : Operation.INCOME;
+    }
+
+    HttpRequest request(Operation operation, SplittableRandom random) {
+        Key key = nextKey(random);
+        return switch (operation) {
+            case COUNT -> HttpRequest.newBuilder(URI.create(baseUri + "?color=" + key.color()
+                            + "&comparison=" + COMPARISONS[random.nextInt(COMPARISONS.length)]
+                            + "&cottonPercentage=" + key.cottonPercentage()))
+                    .timeout(TIMEOUT)
+                    .GET()
+                    .build();
+            case INCOME -> json("/income", key, random.nextInt(1, 10));
+            case OUTCOME -> json("/outcome", key, random.nextInt(1, 10));
+            case UPLOAD -> throw new IllegalArgumentException("Uploads are built by upload()");
+        };
+    }
+
+    /**
+     * A batch upload of {@code rows} rows with keys drawn like those of single requests.
+     */
+    HttpRequest upload(SplittableRandom random, int rows) {
+        StringBuilder csv = new StringBuilder(rows * 24).append("color,cottonPercentage,quantity\n");
+        for (int i = 0; i < rows; i++) {
+            Key key = nextKey(random);
+            csv.append(key.color()).append(',').append(key.cottonPercentage()).append(',')
+                    .append(random.nextInt(1, 10)).append('\n');
+        }
+        return multipart(csv.toString());
+    }
+
+    /**
+     * A batch upload stocking every key with {@link #INITIAL_STOCK} socks.
+     */
+    HttpRequest stockAll() {
+        StringBuilder csv = new StringBuilder(ranking.size() * 24).append("color,cottonPercentage,quantity\n");
+        for (Key key : ranking) {
+            csv.append(key.color()).append(',').append(key.cottonPercentage()).append(',')
+                    .append(INITIAL_STOCK).append('\n');
+        }
+        return multipart(csv.toString());
+    }
+
+    private Key nextKey(SplittableRandom random) {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        return ranking.get(Math.min(rank < 0 ? -rank - 1 : rank, ranking.size() - 1));
+    }
+
+    private HttpRequest json(String path, Key key, int quantity) {
+        String body = "{\"color\":\"" + key.color() + "\",\"cottonPercentage\":" + key.cottonPercentage()
+                + ",\"quantity\":" + quantity + "}";
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest multipart(String csv) {
+        String boundary = "loadtest-" + Long.toHexString(System.nanoTime());
+        String body = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"socks.csv\"\r\n"
+                + "Content-Type: text/csv\r\n\r\n"
+                + csv + "\r\n"
+                + "--" + boundary + "--\r\n";
+        return HttpRequest.newBuilder(URI.create(baseUri + "/batch"))
+                .timeout(Duration.ofMinutes(5))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private record Key(String color, int cottonPercentage) {
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.socksproject.config;
+
+import org.example.socksproject.metrics.DbRoundTripInterceptor;
+import org.example.socksproject.metrics.RoundTripCountingDataSource;
+import org.example.socksproject.metrics.SocksMetrics;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Counts database round trips per request. Service timers come from {@code @Timed}, enabled by
+ * {@code management.observations.annotations.enabled}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "socks.metrics", name = "db-round-trips", havingValue = "true", matchIfMissing = true)
+public class MetricsConfig implements WebMvcConfigurer {
+
+    private final SocksMetrics socksMetrics;
+
+    public MetricsConfig(SocksMetrics socksMetrics) {
+        this.socksMetrics = socksMetrics;
+    }
+
+    @Bean
+    static BeanPostProcessor roundTripCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // The read/write router of ReadReplicaConfig delegates to pools that are wrapped already.
+                if (bean instanceof DataSource dataSource && !(bean instanceof RoundTripCountingDataSource)
+                        && !(bean instanceof LazyConnectionDataSourceProxy)) {
+                    return new RoundTripCountingDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new DbRoundTripInterceptor(socksMetrics)).addPathPatterns("/api/**");
+    }
+}
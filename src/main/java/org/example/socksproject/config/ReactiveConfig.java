@@ -0,0 +1,31 @@
+package org.example.socksproject.config;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Reactive variant of the API, selected with the {@code reactive} profile: WebFlux on Netty in front of
+ * {@code ReactiveSocksService}, which reaches PostgreSQL over the R2DBC pool configured by {@code spring.r2dbc.*}.
+ * Flyway, JPA and the background jobs keep using the JDBC pool, which can be small in this mode.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    /**
+     * Tomcat is on the classpath for the servlet mode and would otherwise be preferred as the reactive server.
+     */
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.socksproject.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.example.socksproject.datasource.ReplicaFallbackDataSource;
+import org.example.socksproject.datasource.ReplicaMonitor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Sends read-only transactions to a replica and everything else to the primary, on with
+ * {@code socks.replica.enabled=true}.
+ * <p>
+ * The application's data source fetches a connection only at the first statement, once the transaction manager
+ * has marked it read-only or not, and takes it from the primary pool or from {@link ReplicaFallbackDataSource}.
+ * Work outside a transaction, Flyway and new colors included, goes to the primary.
+ * <p>
+ * Spring Data runs repository reads outside a transaction read-only, so those go to the replica as well, unless
+ * the repository method is declared {@code @Transactional}, as the reads that must not be stale are.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "socks.replica", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    HikariDataSource replicaDataSource(SocksProperties socksProperties) {
+        SocksProperties.Replica replica = socksProperties.getReplica();
+        if (replica.getUrl() == null) {
+            throw new IllegalStateException("Set socks.replica.url to enable the replica");
+        }
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(replica.getUrl());
+        dataSource.setUsername(replica.getUsername());
+        dataSource.setPassword(replica.getPassword());
+        dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+        dataSource.setConnectionTimeout(replica.getConnectionTimeout().toMillis());
+        dataSource.setReadOnly(true);
+        // The replica may be down at startup; reads use the primary until it answers.
+        dataSource.setInitializationFailTimeout(-1);
+        return dataSource;
+    }
+
+    @Bean
+    ReplicaMonitor replicaMonitor(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                  @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                  SocksProperties socksProperties) {
+        return new ReplicaMonitor(primaryDataSource, replicaDataSource,
+                socksProperties.getReplica().getMaxStaleness());
+    }
+
+    /**
+     * Delegates to the pools without being wrapped itself, so statements are counted and connections limited
+     * once, per pool.
+     */
+    @Bean
+    @Primary
+    DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                          @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                          ReplicaMonitor replicaMonitor) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(
+                new ReplicaFallbackDataSource(replicaDataSource, primaryDataSource, replicaMonitor));
+        return dataSource;
+    }
+}
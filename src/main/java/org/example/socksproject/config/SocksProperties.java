@@ -0,0 +1,460 @@
+package org.example.socksproject.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "socks")
+public class SocksProperties {
+
+    final InventoryIndex inventoryIndex = new InventoryIndex();
+
+    final Batch batch = new Batch();
+
+    final WriteCombining writeCombining = new WriteCombining();
+
+    final Movements movements = new Movements();
+
+    final Metrics metrics = new Metrics();
+
+    final Retry retry = new Retry();
+
+    final Etag etag = new Etag();
+
+    final Changes changes = new Changes();
+
+    final Ledger ledger = new Ledger();
+
+    final Wal wal = new Wal();
+
+    final Logging logging = new Logging();
+
+    final VirtualThreads virtualThreads = new VirtualThreads();
+
+    final Replica replica = new Replica();
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class InventoryIndex {
+
+        /**
+         * Serve count queries from the in-memory index instead of the database.
+         */
+        boolean enabled = true;
+
+        /**
+         * How often the index is compared against the socks table.
+         */
+        Duration consistencyCheckInterval = Duration.ofMinutes(5);
+    }
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Batch {
+
+        /**
+         * Number of CSV rows aggregated and committed together during a batch upload.
+         */
+        int chunkSize = 5000;
+
+        final ParallelParsing parallelParsing = new ParallelParsing();
+
+        final Jobs jobs = new Jobs();
+
+        final Checkpoints checkpoints = new Checkpoints();
+    }
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class ParallelParsing {
+
+        /**
+         * Parse large uploads from a memory-mapped temp file on several threads.
+         */
+        boolean enabled = false;
+
+        /**
+         * Uploads smaller than this are parsed sequentially even when parallel parsing is enabled.
+         */
+        DataSize threshold = DataSize.ofMegabytes(64);
+
+        /**
+         * Number of parser threads.
+         */
+        int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Lower bound for the size of the line-aligned segments a file is split into.
+         */
+        DataSize minSegmentSize = DataSize.ofMegabytes(8);
+    }
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Jobs {
+
+        /**
+         * Number of asynchronous batch uploads imported at the same time.
+         */
+        int maxConcurrent = 2;
+
+        /**
+         * Number of asynchronous batch uploads waiting for a free slot before new ones are rejected.
+         */
+        int queueCapacity = 8;
+
+        /**
+         * How long the status of a finished batch upload stays available.
+         */
+        Duration retention = Duration.ofHours(1);
+    }
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Checkpoints {
+
+        /**
+         * Record the progress of batch uploads that carry an upload id, so a failed upload resubmitted with the
+         * same id resumes and a completed one is not imported twice. Uploads without an id are never tracked.
+         */
+        boolean enabled = true;
+
+        /**
+         * How long a checkpoint is kept after its last chunk: a completed upload id is skipped and a failed one
+         * resumed within it, and imported anew after it.
+         */
+        Duration retention = Duration.ofDays(7);
+
+        /**
+         * How often checkpoints older than the retention period are deleted.
+         */
+        Duration purgeInterval = Duration.ofHours(1);
+    }
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class WriteCombining {
+
+        /**
+         * Combine concurrent incomes for the same socks into one database update.
+         */
+        boolean enabled = false;
+
+        /**
+         * How long the first income of a key waits for others to join before the update is applied.
+         */
+        Duration window = Duration.ofMillis(2);
+
+        /**
+         * Number of incomes after which a combined update is applied without waiting for the window to end.
+         */
+        int maxBatchSize = 64;
+
+        /**
+         * Number of independent lock stripes the keys are spread over.
+         */
+        int stripes = 64;
+    }
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Movements {
+
+        /**
+         * Largest number of movements accepted in one bulk request, all applied in a single transaction.
+         */
+        int maxBatchSize = 1000;
+    }
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Metrics {
+
+        /**
+         * Count the database statements executed by every API request.
+         */
+        boolean dbRoundTrips = true;
+
+        /**
+         * Colors reported as their own tag value; all other colors are tagged as "other".
+         */
+        List<String> colorTags = new ArrayList<>();
+    }
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Retry {
+
+        /**
+         * Policy of operations without their own entry in {@code operations}.
+         */
+        final RetryPolicy defaults = new RetryPolicy();
+
+        /**
+         * Policies by operation name (income, outcome, movements, update). An entry replaces the defaults.
+         */
+        final Map<String, RetryPolicy> operations = new HashMap<>();
+
+        public RetryPolicy policyFor(String operation) {
+            return operations.getOrDefault(operation, defaults);
+        }
+    }
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class RetryPolicy {
+
+        /**
+         * Attempts including the first one; 1 disables retrying.
+         */
+        int maxAttempts = 4;
+
+        /**
+         * Upper bound of the random delay before the first retry.
+         */
+        Duration initialBackoff = Duration.ofMillis(5);
+
+        /**
+         * Growth of the delay bound with every further retry.
+         */
+        double multiplier = 2.0;
+
+        /**
+         * Cap of the delay bound.
+         */
+        Duration maxBackoff = Duration.ofMillis(100);
+    }
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Etag {
+
+        /**
+         * Answer count requests with an ETag and 304 Not Modified while the counts are unchanged. The version
+         * only reflects writes made through this instance, so enable it only when a single instance writes to
+         * the database.
+         */
+        boolean enabled = false;
+
+        /**
+         * Version counts per color, so writes to one color don't invalidate cached counts of the others.
+         */
+        boolean perColor = true;
+    }
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Changes {
+
+        /**
+         * Publish committed movements on the server-sent events change feed.
+         */
+        boolean enabled = true;
+
+        /**
+         * Number of recent changes kept for subscribers resuming from a version.
+         */
+        int historySize = 10_000;
+
+        /**
+         * Number of distinct socks a subscriber may have pending before its buffer is dropped and it is told
+         * to resynchronize.
+         */
+        int subscriberBufferSize = 1000;
+
+        /**
+         * Threads writing events to subscribers.
+         */
+        int senderThreads = 4;
+
+        /**
+         * How long a subscription stays open; clients reconnect with Last-Event-ID afterwards.
+         */
+        Duration timeout = Duration.ofMinutes(30);
+
+        /**
+         * Interval of keep-alive comments sent to idle subscribers.
+         */
+        Duration heartbeatInterval = Duration.ofSeconds(15);
+    }
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Ledger {
+
+        /**
+         * Append incomes and outcomes to the socks ledger instead of updating the socks rows in place.
+         */
+        boolean enabled = false;
+
+        /**
+         * Delay between compactions folding the ledger into the socks quantities.
+         */
+        Duration compactionInterval = Duration.ofSeconds(5);
+
+        /**
+         * Maximum number of ledger entries folded by one compaction transaction.
+         */
+        int compactionBatchSize = 10_000;
+    }
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Wal {
+
+        /**
+         * Acknowledge incomes once they are durable in the local write-ahead log and write them to the
+         * database in the background.
+         */
+        boolean enabled = false;
+
+        /**
+         * Directory of the log segments. Must be local to the instance and not shared with other instances.
+         */
+        Path directory = Path.of("wal");
+
+        /**
+         * Size of a memory-mapped log segment.
+         */
+        DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Incomes waiting to be applied beyond which new incomes are rejected.
+         */
+        int maxPendingRecords = 1_000_000;
+
+        /**
+         * Maximum number of log records applied in one transaction.
+         */
+        int applyBatchSize = 10_000;
+
+        /**
+         * How long the applier waits for new records before checking again.
+         */
+        Duration applyInterval = Duration.ofMillis(50);
+    }
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Logging {
+
+        /**
+         * Share of the requests logged per operation (income, outcome, movements, count, report, export,
+         * changes, update, batch), from 0 (none) to 1 (all).
+         */
+        Map<String, Double> sampleRates = new HashMap<>();
+
+        /**
+         * Share of the requests logged for operations without their own sample rate.
+         */
+        double defaultSampleRate = 1.0;
+
+        final Async async = new Async();
+    }
+
+    /**
+     * Read by {@code logback-spring.xml} when logging starts; changing them later has no effect.
+     */
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Async {
+
+        /**
+         * Log events buffered for the appender thread. Once it is full new events are dropped instead of
+         * blocking the request thread.
+         */
+        int queueSize = 8192;
+
+        /**
+         * Remaining queue capacity below which TRACE, DEBUG and INFO events are dropped, keeping room for
+         * warnings and errors. -1 uses a fifth of the queue size.
+         */
+        int discardingThreshold = -1;
+    }
+
+    /**
+     * Only used when {@code spring.threads.virtual.enabled} is on, see {@code VirtualThreadsConfig}.
+     */
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class VirtualThreads {
+
+        /**
+         * Callers allowed to hold a database connection at once; the others wait in arrival order. 0 leaves one
+         * connection of the pool for callers that need a second connection.
+         */
+        int maxConnections = 0;
+
+        /**
+         * How long a caller waits for a database connection before its request fails.
+         */
+        Duration connectionTimeout = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Read replica for read-only transactions, see {@code ReadReplicaConfig}. The primary stays configured by
+     * {@code spring.datasource}.
+     */
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Replica {
+
+        boolean enabled = false;
+
+        String url;
+
+        String username;
+
+        String password;
+
+        int maximumPoolSize = 10;
+
+        /**
+         * How long a read waits for a replica connection before it falls back to the primary.
+         */
+        Duration connectionTimeout = Duration.ofSeconds(1);
+
+        /**
+         * Replication lag up to which reads still go to the replica; beyond it they go to the primary until the
+         * replica catches up.
+         */
+        Duration maxStaleness = Duration.ofSeconds(5);
+
+        /**
+         * Pause between checks of the replica's availability and lag. Lag is measured in steps of it, so keep it
+         * well below maxStaleness.
+         */
+        Duration checkInterval = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.socksproject.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.example.socksproject.datasource.ConnectionLimitingDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Virtual-thread mode, on with {@code spring.threads.virtual.enabled=true} (the {@code virtual-threads} profile)
+ * on Java 21 or later. Spring Boot then runs Tomcat requests and scheduled tasks on virtual threads, and the
+ * batch import jobs use them too; this puts {@link ConnectionLimitingDataSource} in front of the pool.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadsConfig {
+
+    @Bean
+    static BeanPostProcessor connectionLimitingDataSourcePostProcessor(ObjectProvider<SocksProperties> socksProperties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // The read/write router of ReadReplicaConfig delegates to pools that are limited already.
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConnectionLimitingDataSource)
+                        && !(bean instanceof LazyConnectionDataSourceProxy)) {
+                    SocksProperties.VirtualThreads settings = socksProperties.getObject().getVirtualThreads();
+                    int maxConnections = settings.getMaxConnections() > 0
+                            ? settings.getMaxConnections()
+                            : Math.max(1, poolSize(dataSource) - 1);
+                    log.info("Limiting database connections for virtual threads: dataSource={}, max={}",
+                            beanName, maxConnections);
+                    return new ConnectionLimitingDataSource(dataSource, maxConnections,
+                            settings.getConnectionTimeout());
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read the pool size of the data source", e);
+        }
+        throw new IllegalStateException("Set socks.virtual-threads.max-connections for a data source without a "
+                + "Hikari pool");
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.socksproject.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.logging.RequestLog;
+import org.example.socksproject.service.ReactiveSocksService;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux API of the {@code reactive} profile, replacing {@link SocksController}. It serves income, outcome,
+ * count and synchronous batch upload; the other endpoints are only available in the servlet mode.
+ */
+@RestController
+@RequestMapping("api/socks")
+@RequiredArgsConstructor
+@Profile("reactive")
+public class ReactiveSocksController {
+
+    private static final StringDecoder LINE_DECODER = StringDecoder.textPlainOnly();
+
+    private static final ResolvableType STRING_TYPE = ResolvableType.forClass(String.class);
+
+    private final ReactiveSocksService socksService;
+
+    private final RequestLog requestLog;
+
+    @Operation(summary = "Register incoming socks", description = "Registers new socks.")
+    @ApiResponse(responseCode = "200", description = "Socks income successfully registered")
+    @ApiResponse(responseCode = "400", description = "Invalid input")
+    @PostMapping("/income")
+    public Mono<ResponseEntity<String>> incomeSocks(@RequestBody @Valid SocksDto socksDto) {
+        return socksService.incomeSocks(socksDto)
+                .then(Mono.fromSupplier(() -> {
+                    logSocks("income", socksDto).log("Income request processed");
+                    return ResponseEntity.ok("Socks income successfully");
+                }));
+    }
+
+    @Operation(summary = "Register outgoing socks", description = "Decreases the quantity of socks.")
+    @ApiResponse(responseCode = "200", description = "Socks outcome successfully registered")
+    @ApiResponse(responseCode = "400", description = "Invalid input or insufficient socks")
+    @PostMapping("/outcome")
+    public Mono<ResponseEntity<String>> outcomeSocks(@RequestBody @Valid SocksDto socksDto) {
+        return socksService.outcomeSocks(socksDto)
+                .then(Mono.fromSupplier(() -> {
+                    logSocks("outcome", socksDto).log("Outcome request processed");
+                    return ResponseEntity.ok("Socks outcome successfully");
+                }));
+    }
+
+    @Operation(summary = "Get count of socks", description = "Gets the total count of socks.")
+    @ApiResponse(responseCode = "200", description = "Socks count retrieved successfully")
+    @GetMapping
+    public Mono<Integer> countSocks(@RequestParam String color,
+                                    @RequestParam String comparison,
+                                    @RequestParam int cottonPercentage) {
+        return socksService.getSocksCount(color, comparison, cottonPercentage)
+                .doOnNext(count -> requestLog.event("count")
+                        .addKeyValue("color", color)
+                        .addKeyValue("comparison", comparison)
+                        .addKeyValue("cottonPercentage", cottonPercentage)
+                        .addKeyValue("result", count)
+                        .log("Count request processed"));
+    }
+
+    @Operation(summary = "Upload batch of socks",
+            description = "Uploads socks from a CSV file, importing it while it is received.")
+    @ApiResponse(responseCode = "200", description = "Batch uploaded successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid input or file")
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<ResponseEntity<String>> uploadBatch(@RequestBody Flux<PartEvent> parts) {
+        Flux<String> lines = LINE_DECODER.decode(fileContent(parts, "file"), STRING_TYPE, null, null);
+        return socksService.uploadBatch(lines)
+                .map(result -> {
+                    requestLog.event("batch")
+                            .addKeyValue("rows", result.rows())
+                            .addKeyValue("chunks", result.chunks())
+                            .log("Batch upload request processed");
+                    return ResponseEntity.ok("Batch upload successful");
+                });
+    }
+
+    /**
+     * Content of the file part with the given name as it is received, without buffering the part in memory or
+     * on disk. Other parts are discarded.
+     */
+    private static Flux<DataBuffer> fileContent(Flux<PartEvent> parts, String name) {
+        return parts.windowUntil(PartEvent::isLast)
+                .concatMap(part -> part.switchOnFirst((first, events) -> {
+                    if (first.get() instanceof FilePartEvent event && name.equals(event.name())) {
+                        return events.map(PartEvent::content);
+                    }
+                    return events.doOnNext(event -> DataBufferUtils.release(event.content()))
+                            .thenMany(Flux.<DataBuffer>empty());
+                }));
+    }
+
+    private LoggingEventBuilder logSocks(String operation, SocksDto socksDto) {
+        return requestLog.event(operation)
+                .addKeyValue("color", socksDto.getColor())
+                .addKeyValue("cottonPercentage", socksDto.getCottonPercentage())
+                .addKeyValue("quantity", socksDto.getQuantity());
+    }
+}
@@ -6,37 +6,66 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.socksproject.dto.BatchJobStatusDto;
 import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.dto.SocksMovementDto;
+import org.example.socksproject.dto.SocksMovementResultDto;
+import org.example.socksproject.dto.SocksReportDto;
+import org.example.socksproject.logging.RequestLog;
 import org.example.socksproject.service.SocksService;
+import org.example.socksproject.service.export.SocksExporter;
+import org.example.socksproject.service.support.ServiceOverloadedException;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Slf4j
 @RestController
 @RequestMapping("api/socks")
 @RequiredArgsConstructor
+@Profile("!reactive")
 public class SocksController {
 
     private final SocksService socksService;
 
+    private final RequestLog requestLog;
+
     @Operation(summary = "Register incoming socks", description = "Registers new socks.")
     @ApiResponse(responseCode = "200", description = "Socks income successfully registered")
     @ApiResponse(responseCode = "400", description = "Invalid input", content = @Content(schema = @Schema(implementation = String.class)))
+    @ApiResponse(responseCode = "503", description = "Write-ahead log backlog is full, retry after the Retry-After header, " +
+            "or the write-ahead log failed and refuses incomes",
+            content = @Content(schema = @Schema(implementation = String.class)))
     @PostMapping("/income")
     public ResponseEntity<String> incomeSocks(@RequestBody @Valid SocksDto socksDto) {
-        log.info("Processing income request: {}", socksDto);
         socksService.incomeSocks(socksDto);
-        log.info("Income request processed successfully for {}", socksDto);
+        logSocks("income", socksDto).log("Income request processed");
         return ResponseEntity.ok("Socks income successfully");
     }
 
@@ -45,23 +74,120 @@ public class SocksController {
     @ApiResponse(responseCode = "400", description = "Invalid input or insufficient socks")
     @PostMapping("/outcome")
     public ResponseEntity<String> outcomeSocks(@RequestBody @Valid SocksDto socksDto) {
-        log.info("Processing outcome request: {}", socksDto);
         socksService.outcomeSocks(socksDto);
-        log.info("Outcome request processed successfully for {}", socksDto);
+        logSocks("outcome", socksDto).log("Outcome request processed");
         return ResponseEntity.ok("Socks outcome successfully");
     }
 
-    @Operation(summary = "Get count of socks", description = "Gets the total count of socks")
+    @Operation(summary = "Register socks movements",
+            description = "Applies a list of incomes (positive quantity) and outcomes (negative quantity) "
+                    + "in one transaction. Either all movements are applied or none.")
+    @ApiResponse(responseCode = "200", description = "Movements applied, with the balance after each of them")
+    @ApiResponse(responseCode = "400", description = "Invalid input or insufficient socks for a movement",
+            content = @Content(schema = @Schema(implementation = String.class)))
+    @PostMapping("/movements")
+    public ResponseEntity<List<SocksMovementResultDto>> applyMovements(
+            @RequestBody @NotEmpty List<@Valid SocksMovementDto> movements) {
+        List<SocksMovementResultDto> results = socksService.applyMovements(movements);
+        requestLog.event("movements")
+                .addKeyValue("count", results.size())
+                .log("Movements request processed");
+        return ResponseEntity.ok(results);
+    }
+
+    @Operation(summary = "Get count of socks",
+            description = "Gets the total count of socks. Responses carry an ETag; a request with a matching "
+                    + "If-None-Match is answered with 304 without recounting.")
     @ApiResponse(responseCode = "200", description = "Socks count retrieved successfully")
+    @ApiResponse(responseCode = "304", description = "Socks count unchanged since the given ETag")
     @GetMapping
     public ResponseEntity<Integer> countSocks(@RequestParam String color,
                                               @RequestParam String comparison,
-                                              @RequestParam int cottonPercentage) {
-        log.info("Processing count request: color={}, comparison={}, cottonPercentage={}",
-                color, comparison, cottonPercentage);
+                                              @RequestParam int cottonPercentage,
+                                              WebRequest webRequest) {
+        // Read the version before counting, so a write racing with the count makes the ETag older, not newer.
+        Optional<String> version = socksService.getCountVersion(color);
+        if (version.isPresent() && webRequest.checkNotModified(version.get())) {
+            requestLog.event("count")
+                    .addKeyValue("color", color)
+                    .addKeyValue("comparison", comparison)
+                    .addKeyValue("cottonPercentage", cottonPercentage)
+                    .addKeyValue("version", version.get())
+                    .log("Count request not modified");
+            return null;
+        }
         int count = socksService.getSocksCount(color, comparison, cottonPercentage);
-        log.info("Count request processed successfully: result={}", count);
-        return ResponseEntity.ok(count);
+        requestLog.event("count")
+                .addKeyValue("color", color)
+                .addKeyValue("comparison", comparison)
+                .addKeyValue("cottonPercentage", cottonPercentage)
+                .addKeyValue("result", count)
+                .log("Count request processed");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        version.ifPresent(response::eTag);
+        return response.body(count);
+    }
+
+    @Operation(summary = "Get quantity report",
+            description = "Sums socks quantities with cotton percentage between cottonFrom and cottonTo, "
+                    + "optionally only for the given colors, grouped by color, by cotton range or in total.")
+    @ApiResponse(responseCode = "200", description = "Report built successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid grouping or range")
+    @GetMapping("/report")
+    public ResponseEntity<SocksReportDto> getReport(
+            @RequestParam(defaultValue = "total") String groupBy,
+            @RequestParam(value = "color", required = false) List<String> colors,
+            @RequestParam(defaultValue = "0") int cottonFrom,
+            @RequestParam(defaultValue = "100") int cottonTo,
+            @RequestParam(defaultValue = "10") int bucketSize) {
+        SocksReportDto report = socksService.getReport(groupBy, colors == null ? List.of() : colors,
+                cottonFrom, cottonTo, bucketSize);
+        requestLog.event("report")
+                .addKeyValue("groupBy", groupBy)
+                .addKeyValue("colors", colors)
+                .addKeyValue("cottonFrom", cottonFrom)
+                .addKeyValue("cottonTo", cottonTo)
+                .addKeyValue("totalQuantity", report.getTotalQuantity())
+                .log("Report request processed");
+        return ResponseEntity.ok(report);
+    }
+
+    @Operation(summary = "Export inventory",
+            description = "Streams all socks as CSV (the batch upload format) or as newline-delimited JSON.")
+    @ApiResponse(responseCode = "200", description = "Inventory export streamed")
+    @ApiResponse(responseCode = "400", description = "Invalid format")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportInventory(
+            @RequestParam(defaultValue = SocksExporter.CSV) String format) {
+        if (!SocksExporter.supports(format)) {
+            throw new IllegalArgumentException("Invalid format");
+        }
+        requestLog.event("export").addKeyValue("format", format).log("Export request accepted");
+        boolean csv = SocksExporter.CSV.equals(format);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"socks." + format + "\"")
+                .body(outputStream -> socksService.exportInventory(format, outputStream));
+    }
+
+    @Operation(summary = "Stream inventory changes",
+            description = "Streams committed quantity changes as server-sent events, optionally only for the "
+                    + "given colors. Reconnecting with the last event id in Last-Event-ID or since resumes after "
+                    + "that event. A reset event means changes were dropped, or the id is from before a restart, "
+                    + "and the quantities should be reloaded.")
+    @ApiResponse(responseCode = "200", description = "Change stream opened")
+    @ApiResponse(responseCode = "409", description = "Change feed is disabled")
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(value = "color", required = false) List<String> colors,
+                                    @RequestParam(required = false) String since,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        String resumeAfter = lastEventId != null ? lastEventId : since;
+        SseEmitter emitter = socksService.subscribeToChanges(colors, resumeAfter);
+        requestLog.event("changes")
+                .addKeyValue("colors", colors)
+                .addKeyValue("since", resumeAfter)
+                .log("Change stream opened");
+        return emitter;
     }
 
     @Operation(summary = "Update socks", description = "Updates the details of a specific socks entry.")
@@ -70,27 +196,71 @@ public class SocksController {
     @PutMapping("/{id}")
     public ResponseEntity<String> updateSocks(@PathVariable Long id,
                                               @RequestBody @Valid SocksDto socksDto) {
-        log.info("Processing update request: id={}, {}", id, socksDto);
         socksService.updateSocks(id, socksDto);
-        log.info("Update request processed successfully for id={}", id);
+        logSocks("update", socksDto).addKeyValue("id", id).log("Update request processed");
         return ResponseEntity.ok("Socks updated successfully");
     }
 
-    @Operation(summary = "Upload batch of socks", description = "Uploads socks from a CSV file.")
-    @ApiResponse(responseCode = "200", description = "Batch uploaded successfully")
+    @Operation(summary = "Upload batch of socks",
+            description = "Uploads socks from a CSV file. With async=true the import runs in the background "
+                    + "and the response carries the job id. With an uploadId a failed upload resubmitted under "
+                    + "the same id resumes after its committed rows, and a completed one is not imported again.")
+    @ApiResponse(responseCode = "200", description = "Batch uploaded successfully, or already imported under "
+            + "the upload id")
+    @ApiResponse(responseCode = "202", description = "Batch upload job accepted")
     @ApiResponse(responseCode = "400", description = "Invalid input or file")
+    @ApiResponse(responseCode = "503", description = "Too many batch upload jobs in progress, retry after the "
+            + "Retry-After header")
     @PostMapping("/batch")
-    public ResponseEntity<String> uploadBatch(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<String> uploadBatch(@RequestParam("file") MultipartFile file,
+                                              @RequestParam(value = "async", defaultValue = "false") boolean async,
+                                              @RequestParam(value = "uploadId", required = false)
+                                              @Size(min = 1, max = 64) String uploadId) {
         try {
-            socksService.uploadFile(file);
-            log.info("Batch upload request processed successfully: fileName={}", file.getOriginalFilename());
-            return ResponseEntity.ok("Batch upload successful");
+            if (async) {
+                UUID jobId = socksService.uploadFileAsync(file, uploadId);
+                requestLog.event("batch")
+                        .addKeyValue("fileName", file.getOriginalFilename())
+                        .addKeyValue("jobId", jobId)
+                        .log("Batch upload job accepted");
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/socks/batch/" + jobId))
+                        .body(jobId.toString());
+            }
+            boolean imported = socksService.uploadFile(file, uploadId);
+            requestLog.event("batch")
+                    .addKeyValue("fileName", file.getOriginalFilename())
+                    .addKeyValue("uploadId", uploadId)
+                    .addKeyValue("imported", imported)
+                    .log("Batch upload request processed");
+            return ResponseEntity.ok(imported ? "Batch upload successful" : "Batch already imported, nothing changed");
         } catch (IllegalArgumentException e) {
             log.warn("Batch upload failed due to invalid input: {}", e.getMessage());
             return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            log.warn("Batch upload rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (ServiceOverloadedException e) {
+            log.warn("Batch upload rejected: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Batch upload failed due to an unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().body("Failed to upload batch: " + e.getMessage());
         }
     }
+
+    @Operation(summary = "Get batch upload job", description = "Reports the progress of an asynchronous batch upload.")
+    @ApiResponse(responseCode = "200", description = "Batch upload job status retrieved successfully")
+    @ApiResponse(responseCode = "400", description = "Unknown job id")
+    @GetMapping("/batch/{jobId}")
+    public ResponseEntity<BatchJobStatusDto> getBatchJob(@PathVariable UUID jobId) {
+        return ResponseEntity.ok(socksService.getUploadJob(jobId));
+    }
+
+    private LoggingEventBuilder logSocks(String operation, SocksDto socksDto) {
+        return requestLog.event(operation)
+                .addKeyValue("color", socksDto.getColor())
+                .addKeyValue("cottonPercentage", socksDto.getCottonPercentage())
+                .addKeyValue("quantity", socksDto.getQuantity());
+    }
 }
@@ -0,0 +1,48 @@
+package org.example.socksproject.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Connections for read-only transactions: from the replica while {@link ReplicaMonitor} reports it available,
+ * otherwise from the primary. A replica that fails to hand out a connection is reported to the monitor and the
+ * read falls back to the primary.
+ */
+public class ReplicaFallbackDataSource extends DelegatingDataSource {
+
+    private final DataSource primary;
+    private final ReplicaMonitor monitor;
+
+    public ReplicaFallbackDataSource(DataSource replica, DataSource primary, ReplicaMonitor monitor) {
+        super(replica);
+        this.primary = primary;
+        this.monitor = monitor;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (monitor.isAvailable()) {
+            try {
+                return obtainTargetDataSource().getConnection();
+            } catch (SQLException e) {
+                monitor.failed(e);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (monitor.isAvailable()) {
+            try {
+                return obtainTargetDataSource().getConnection(username, password);
+            } catch (SQLException e) {
+                monitor.failed(e);
+            }
+        }
+        return primary.getConnection(username, password);
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.socksproject.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.LongSupplier;
+
+/**
+ * Tells whether reads may go to the replica: it must answer, and lag behind the primary by at most the
+ * tolerated staleness. Checked on a schedule; a failed replica connection marks it unavailable at once, until
+ * the next check succeeds.
+ * <p>
+ * Each check samples the primary's WAL position and then reads how far the replica has replayed. The replica
+ * holds everything the primary had written at the time of the latest sample it has replayed past, so its
+ * staleness is the age of that sample, measured in steps of the check interval. A standby without a
+ * connected WAL receiver stops replaying, so it counts as unavailable at once rather than when the primary next
+ * writes. Until a sample old enough to compare exists, and whenever the primary does not answer, the replica
+ * counts as unavailable too.
+ */
+@Slf4j
+public class ReplicaMonitor {
+
+    private static final String PRIMARY_LSN_SQL = "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '0/0')";
+
+    // A server that is not in recovery is not a standby and has no replay position; such a replica is only
+    // used in tests and local setups, and is taken as current.
+    private static final String REPLAY_LSN_SQL = "SELECT pg_is_in_recovery(), " +
+            "pg_wal_lsn_diff(pg_last_wal_replay_lsn(), '0/0'), EXISTS (SELECT FROM pg_stat_wal_receiver)";
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final Duration maxStaleness;
+    private final LongSupplier nanoTime;
+    // Primary WAL positions no older than maxStaleness, oldest first; only touched by check().
+    private final Deque<long[]> samples = new ArrayDeque<>();
+    private volatile boolean available;
+
+    public ReplicaMonitor(DataSource primary, DataSource replica, Duration maxStaleness) {
+        this(primary, replica, maxStaleness, System::nanoTime);
+    }
+
+    ReplicaMonitor(DataSource primary, DataSource replica, Duration maxStaleness, LongSupplier nanoTime) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxStaleness = maxStaleness;
+        this.nanoTime = nanoTime;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Scheduled(fixedDelayString = "${socks.replica.check-interval:PT1S}")
+    public synchronized void check() {
+        long now = nanoTime.getAsLong();
+        try {
+            samples.addLast(new long[]{now, queryLsn(primary, PRIMARY_LSN_SQL)});
+        } catch (SQLException e) {
+            update(false, "primary WAL position unknown: " + e.getMessage());
+            return;
+        }
+        while (now - samples.peekFirst()[0] > maxStaleness.toNanos()) {
+            samples.removeFirst();
+        }
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(REPLAY_LSN_SQL)) {
+            resultSet.next();
+            if (!resultSet.getBoolean(1)) {
+                update(true, "not a standby");
+                return;
+            }
+            if (!resultSet.getBoolean(3)) {
+                update(false, "WAL receiver not connected");
+                return;
+            }
+            long replayLsn = resultSet.getLong(2);
+            long sampledAt = Long.MIN_VALUE;
+            for (long[] sample : samples) {
+                if (sample[1] <= replayLsn) {
+                    sampledAt = sample[0];
+                }
+            }
+            if (sampledAt == Long.MIN_VALUE) {
+                update(false, "replay " + (samples.peekLast()[1] - replayLsn) + " bytes behind, no sample within " +
+                        maxStaleness.toMillis() + " ms replayed");
+            } else {
+                update(true, "lag at most " + Duration.ofNanos(now - sampledAt).toMillis() + " ms");
+            }
+        } catch (SQLException e) {
+            failed(e);
+        }
+    }
+
+    /**
+     * Called when a replica connection could not be obtained, so reads stop trying it before the next check.
+     */
+    public void failed(SQLException e) {
+        update(false, e.getMessage());
+    }
+
+    private static long queryLsn(DataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private void update(boolean nowAvailable, String reason) {
+        if (available != nowAvailable) {
+            if (nowAvailable) {
+                log.info("Replica available, reads go to the replica: {}", reason);
+            } else {
+                log.warn("Replica unavailable, reads go to the primary: {}", reason);
+            }
+        }
+        available = nowAvailable;
+    }
+}
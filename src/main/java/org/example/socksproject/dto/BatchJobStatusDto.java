@@ -0,0 +1,39 @@
+package org.example.socksproject.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BatchJobStatusDto {
+
+    UUID jobId;
+
+    String fileName;
+
+    String status;
+
+    long rowsParsed;
+
+    long rowsApplied;
+
+    double rowsPerSecond;
+
+    Instant submittedAt;
+
+    Instant startedAt;
+
+    Instant finishedAt;
+
+    String error;
+}
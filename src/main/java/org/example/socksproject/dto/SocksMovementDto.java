@@ -0,0 +1,42 @@
+package org.example.socksproject.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * A single income (positive quantity) or outcome (negative quantity) in a bulk movements request.
+ */
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SocksMovementDto {
+
+    @NotNull
+    String color;
+
+    @NotNull
+    @Min(0)
+    @Max(100)
+    int cottonPercentage;
+
+    int quantity;
+
+    @JsonIgnore
+    @AssertTrue
+    public boolean isNonZeroQuantity() {
+        return quantity != 0;
+    }
+}
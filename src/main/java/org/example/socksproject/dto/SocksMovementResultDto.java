@@ -0,0 +1,27 @@
+package org.example.socksproject.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SocksMovementResultDto {
+
+    String color;
+
+    int cottonPercentage;
+
+    int quantity;
+
+    /**
+     * Quantity in stock right after this movement.
+     */
+    int balance;
+}
@@ -0,0 +1,30 @@
+package org.example.socksproject.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SocksReportDto {
+
+    String groupBy;
+
+    int cottonFrom;
+
+    int cottonTo;
+
+    List<String> colors;
+
+    long totalQuantity;
+
+    List<SocksReportRowDto> rows;
+}
@@ -0,0 +1,29 @@
+package org.example.socksproject.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Total quantity of one group: a color, or a cotton percentage range.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SocksReportRowDto {
+
+    String color;
+
+    Integer cottonFrom;
+
+    Integer cottonTo;
+
+    long quantity;
+}
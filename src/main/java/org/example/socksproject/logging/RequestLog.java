@@ -0,0 +1,51 @@
+package org.example.socksproject.logging;
+
+import org.example.socksproject.config.SocksProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.slf4j.spi.NOPLoggingEventBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sampled log of handled requests, one event per request on the {@code socks.requests} logger.
+ * <p>
+ * Only a share of the requests to an operation is logged, set by {@code socks.logging.sample-rates}. Fields
+ * are added as key/value pairs to the builder returned by {@link #event(String)}; for a request that isn't
+ * sampled, or while the logger is off, the builder is a no-op and no message is formatted. Rejected
+ * requests are still logged as warnings by the service, unsampled.
+ */
+@Component
+public class RequestLog {
+
+    static final String LOGGER_NAME = "socks.requests";
+
+    private static final Logger log = LoggerFactory.getLogger(LOGGER_NAME);
+
+    private final Map<String, Double> sampleRates;
+    private final double defaultSampleRate;
+
+    public RequestLog(SocksProperties socksProperties) {
+        SocksProperties.Logging logging = socksProperties.getLogging();
+        this.sampleRates = Map.copyOf(logging.getSampleRates());
+        this.defaultSampleRate = logging.getDefaultSampleRate();
+    }
+
+    /**
+     * Starts the event of a request to {@code operation}, the same name as the operation tag of its timer.
+     */
+    public LoggingEventBuilder event(String operation) {
+        if (!log.isInfoEnabled() || !sampled(operation)) {
+            return NOPLoggingEventBuilder.singleton();
+        }
+        return log.atInfo().addKeyValue("operation", operation);
+    }
+
+    boolean sampled(String operation) {
+        double rate = sampleRates.getOrDefault(operation, defaultSampleRate);
+        return rate >= 1 || rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+}
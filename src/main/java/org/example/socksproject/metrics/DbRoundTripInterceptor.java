@@ -0,0 +1,48 @@
+package org.example.socksproject.metrics;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Records the database round trips of every controller request, tagged with the handler method name.
+ * <p>
+ * A handler that starts async processing, like the change feed, is recorded when its request thread is
+ * released, and the count is cleared there so it does not stay on a pooled thread. The later async dispatch
+ * only writes the result and is not counted.
+ */
+@RequiredArgsConstructor
+public class DbRoundTripInterceptor implements AsyncHandlerInterceptor {
+
+    private final SocksMetrics socksMetrics;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod && request.getDispatcherType() != DispatcherType.ASYNC) {
+            DbRoundTrips.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        record(handler);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        record(handler);
+    }
+
+    private void record(Object handler) {
+        int roundTrips = DbRoundTrips.stop();
+        if (roundTrips >= 0 && handler instanceof HandlerMethod handlerMethod) {
+            socksMetrics.dbRoundTrips(handlerMethod.getMethod().getName(), roundTrips);
+        }
+    }
+}
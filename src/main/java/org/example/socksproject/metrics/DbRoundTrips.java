@@ -0,0 +1,33 @@
+package org.example.socksproject.metrics;
+
+/**
+ * Counts the statements the current thread executes between {@link #start()} and {@link #stop()}.
+ * Statements executed outside such a scope, for example by batch upload jobs, are not counted.
+ */
+public final class DbRoundTrips {
+
+    private static final ThreadLocal<int[]> CURRENT = new ThreadLocal<>();
+
+    private DbRoundTrips() {
+    }
+
+    public static void start() {
+        CURRENT.set(new int[1]);
+    }
+
+    /**
+     * @return statements executed since {@link #start()}, or -1 if counting was not started on this thread
+     */
+    public static int stop() {
+        int[] count = CURRENT.get();
+        CURRENT.remove();
+        return count == null ? -1 : count[0];
+    }
+
+    static void executed() {
+        int[] count = CURRENT.get();
+        if (count != null) {
+            count[0]++;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.socksproject.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Reports every statement execution to {@link DbRoundTrips}. A JDBC batch counts as one round trip.
+ */
+public class RoundTripCountingDataSource extends DelegatingDataSource {
+
+    public RoundTripCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return (Connection) wrap(Connection.class, obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return (Connection) wrap(Connection.class, obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private static Object wrap(Class<?> type, Object target) {
+        return Proxy.newProxyInstance(RoundTripCountingDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, new CountingHandler(target));
+    }
+
+    private record CountingHandler(Object target) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (target instanceof Statement && method.getName().startsWith("execute")) {
+                DbRoundTrips.executed();
+            } else if (target instanceof Connection && result instanceof Statement
+                    && Statement.class.isAssignableFrom(method.getReturnType())) {
+                return wrap(method.getReturnType(), result);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.socksproject.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.socksproject.config.SocksProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inventory metrics that the {@code @Timed} service timers don't cover.
+ * <p>
+ * Tag values come from small fixed sets. Colors are only used as tag values if they are listed in
+ * {@code socks.metrics.color-tags}; every other color is reported as {@code other}. Meters are looked up
+ * once and cached, so recording is a map read and an atomic add.
+ */
+@Component
+public class SocksMetrics {
+
+    static final String OTHER_COLOR = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final Set<String> colorTags;
+    private final ConcurrentMap<String, Counter> conflictCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TagPair, Counter> rejectionCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TagPair, Counter> quantityCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DistributionSummary> roundTripSummaries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DistributionSummary> retryAttemptSummaries = new ConcurrentHashMap<>();
+    private final Counter batchRows;
+    private final Counter batchRowErrors;
+    private final Timer batchImports;
+    private final AtomicLong lastBatchRowsPerSecond = new AtomicLong();
+
+    public SocksMetrics(MeterRegistry meterRegistry, SocksProperties socksProperties) {
+        this.meterRegistry = meterRegistry;
+        this.colorTags = Set.copyOf(socksProperties.getMetrics().getColorTags());
+        this.batchRows = Counter.builder("socks.batch.rows")
+                .description("CSV rows imported by batch uploads")
+                .register(meterRegistry);
+        this.batchRowErrors = Counter.builder("socks.batch.row.errors")
+                .description("Batch uploads stopped by an invalid CSV row")
+                .register(meterRegistry);
+        this.batchImports = Timer.builder("socks.batch.imports")
+                .description("Duration of batch uploads")
+                .register(meterRegistry);
+        Gauge.builder("socks.batch.rows.per.second", lastBatchRowsPerSecond, AtomicLong::get)
+                .description("Import rate of the last completed batch upload")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A write that lost an optimistic-lock or row-lock race, whether or not a retry later succeeded.
+     */
+    public void conflict(String operation) {
+        conflictCounters.computeIfAbsent(operation, op -> Counter.builder("socks.conflicts")
+                        .tag("operation", op)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    /**
+     * An outcome refused because the socks don't exist ({@code not_found}) or are short ({@code insufficient}).
+     */
+    public void rejected(String operation, String reason) {
+        rejectionCounters.computeIfAbsent(new TagPair(operation, reason), key -> Counter.builder("socks.rejections")
+                        .tag("operation", key.first())
+                        .tag("reason", key.second())
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    public void quantityMoved(String direction, String color, int quantity) {
+        TagPair tags = new TagPair(direction, colorTag(color));
+        quantityCounters.computeIfAbsent(tags, key -> Counter.builder("socks.quantity")
+                        .tag("direction", key.first())
+                        .tag("color", key.second())
+                        .register(meterRegistry))
+                .increment(quantity);
+    }
+
+    public void batchImported(long rows, long elapsedNanos) {
+        batchRows.increment(rows);
+        batchImports.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (elapsedNanos > 0) {
+            lastBatchRowsPerSecond.set(rows * 1_000_000_000L / elapsedNanos);
+        }
+    }
+
+    public void batchRowError() {
+        batchRowErrors.increment();
+    }
+
+    public void monitorBatchJobs(ThreadPoolExecutor executor) {
+        Gauge.builder("socks.batch.jobs.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Batch upload jobs being imported")
+                .register(meterRegistry);
+        Gauge.builder("socks.batch.jobs.queued", executor, e -> e.getQueue().size())
+                .description("Batch upload jobs waiting for a free slot")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Attempts a conflict-retried operation took, recorded once per call whether it succeeded or gave up.
+     */
+    public void retryAttempts(String operation, int attempts) {
+        retryAttemptSummaries.computeIfAbsent(operation, op -> DistributionSummary.builder("socks.retry.attempts")
+                        .description("Attempts per call of an operation retried on conflicts")
+                        .tag("operation", op)
+                        .register(meterRegistry))
+                .record(attempts);
+    }
+
+    public void dbRoundTrips(String operation, int roundTrips) {
+        roundTripSummaries.computeIfAbsent(operation, op -> DistributionSummary.builder("socks.db.round.trips")
+                        .description("Database statements executed per request")
+                        .tag("operation", op)
+                        .register(meterRegistry))
+                .record(roundTrips);
+    }
+
+    String colorTag(String color) {
+        return colorTags.contains(color) ? color : OTHER_COLOR;
+    }
+
+    /**
+     * Key of a meter with two tags; hashes the tag values' cached hash codes without building a string.
+     */
+    private record TagPair(String first, String second) {
+    }
+}
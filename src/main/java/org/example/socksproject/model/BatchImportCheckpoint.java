@@ -0,0 +1,73 @@
+package org.example.socksproject.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+
+/**
+ * Progress of a batch import, committed together with each chunk of the upload identified by its client-supplied id.
+ */
+@Entity
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "batch_import_checkpoint")
+public class BatchImportCheckpoint {
+
+    @Id
+    @Column(name = "upload_id", length = 64)
+    String uploadId;
+
+    @NotNull
+    String mode;
+
+    int chunkSize;
+
+    long rowsCommitted;
+
+    /**
+     * Where the committed rows end: in characters for the sequential import, in bytes for the parallel one.
+     */
+    long charOffset;
+
+    /**
+     * Chunks committed. The parallel import counts only those of the aggregate it is writing, which covers the
+     * file from {@code charOffset} to {@code contentLength}, and resets the count once the aggregate is written.
+     */
+    int chunksCommitted;
+
+    /**
+     * Length of the file prefix that {@code contentHash} covers, in the unit of {@code charOffset}.
+     */
+    long contentLength;
+
+    /**
+     * Hex SHA-256 of the file prefix the checkpoint was taken against; a resubmission must start with the same
+     * content.
+     */
+    @Column(length = 64)
+    String contentHash;
+
+    boolean completed;
+
+    @NotNull
+    Instant updatedAt;
+
+    @Version
+    Long version;
+}
@@ -0,0 +1,29 @@
+package org.example.socksproject.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.example.socksproject.repository.ColorDictionary;
+
+/**
+ * Stores a color name as its {@code socks_color} id, so entities and JPQL queries keep working with names.
+ * Created by Hibernate through the Spring bean container.
+ */
+@Converter
+public class ColorIdConverter implements AttributeConverter<String, Integer> {
+
+    private final ColorDictionary colorDictionary;
+
+    public ColorIdConverter(ColorDictionary colorDictionary) {
+        this.colorDictionary = colorDictionary;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(String color) {
+        return color == null ? null : colorDictionary.idOf(SocksColor.normalize(color));
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer id) {
+        return id == null ? null : colorDictionary.nameOf(id);
+    }
+}
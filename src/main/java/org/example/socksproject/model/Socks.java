@@ -1,10 +1,13 @@
 package org.example.socksproject.model;
 
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotNull;
 import lombok.AccessLevel;
@@ -22,7 +25,8 @@ import lombok.experimental.FieldDefaults;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "socks")
+@Table(name = "socks", uniqueConstraints = @UniqueConstraint(
+        name = "uk_socks_color_cotton_percentage", columnNames = {"color_id", "cotton_percentage"}))
 public class Socks {
 
     @Id
@@ -30,9 +34,12 @@ public class Socks {
     Long id;
 
     @NotNull
+    @Convert(converter = ColorIdConverter.class)
+    @Column(name = "color_id")
     String color;
 
     @NotNull
+    @Column(name = "cotton_percentage")
     int cottonPercentage;
 
     @NotNull
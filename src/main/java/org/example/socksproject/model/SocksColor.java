@@ -0,0 +1,57 @@
+package org.example.socksproject.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Locale;
+
+/**
+ * Dictionary entry of a color name. Socks and ledger rows store the id instead of the name.
+ */
+@Entity
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "socks_color", uniqueConstraints = @UniqueConstraint(
+        name = "uk_socks_color_name", columnNames = "name"))
+public class SocksColor {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Integer id;
+
+    @NotNull
+    String name;
+
+    /**
+     * Trims and lower-cases a color name, so "Red" and " red" are the same color. A name that is already
+     * normalized is returned as is, without copying.
+     *
+     * @throws IllegalArgumentException if the name is blank
+     */
+    public static String normalize(String color) {
+        if (color == null) {
+            return null;
+        }
+        String normalized = color.strip();
+        if (normalized.isEmpty()) {
+            throw new IllegalArgumentException("Invalid color");
+        }
+        return normalized.toLowerCase(Locale.ROOT);
+    }
+}
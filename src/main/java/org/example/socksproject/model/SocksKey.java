@@ -0,0 +1,22 @@
+package org.example.socksproject.model;
+
+import java.util.Comparator;
+
+/**
+ * Natural key of a socks row. Ordering by key gives a consistent lock order for multi-row writes.
+ * The color is normalized on construction, see {@link SocksColor#normalize}.
+ */
+public record SocksKey(String color, int cottonPercentage) implements Comparable<SocksKey> {
+
+    private static final Comparator<SocksKey> ORDER = Comparator.comparing(SocksKey::color)
+            .thenComparingInt(SocksKey::cottonPercentage);
+
+    public SocksKey {
+        color = SocksColor.normalize(color);
+    }
+
+    @Override
+    public int compareTo(SocksKey other) {
+        return ORDER.compare(this, other);
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.socksproject.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+
+/**
+ * One income (positive quantity) or outcome (negative quantity) appended to the socks ledger.
+ * Entries without a snapshot form the tail not yet folded into the socks quantities.
+ */
+@Entity
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "socks_ledger", indexes = {
+        @Index(name = "ix_socks_ledger_key", columnList = "color_id, cotton_percentage, snapshot_id"),
+        @Index(name = "ix_socks_ledger_snapshot", columnList = "snapshot_id, id")})
+public class SocksLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @NotNull
+    @Convert(converter = ColorIdConverter.class)
+    @Column(name = "color_id")
+    String color;
+
+    @NotNull
+    @Column(name = "cotton_percentage")
+    int cottonPercentage;
+
+    @NotNull
+    int quantity;
+
+    @NotNull
+    Instant createdAt;
+
+    @Column(name = "snapshot_id")
+    Long snapshotId;
+}
@@ -0,0 +1,39 @@
+package org.example.socksproject.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+
+/**
+ * Last record of a local write-ahead log that was written to the database, committed together with it.
+ */
+@Entity
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "wal_checkpoint")
+public class WalCheckpoint {
+
+    @Id
+    @Column(name = "wal_id", length = 36)
+    String walId;
+
+    long appliedSequence;
+
+    @NotNull
+    Instant updatedAt;
+}
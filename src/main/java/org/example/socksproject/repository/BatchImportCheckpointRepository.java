@@ -0,0 +1,31 @@
+package org.example.socksproject.repository;
+
+import org.example.socksproject.model.BatchImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface BatchImportCheckpointRepository extends JpaRepository<BatchImportCheckpoint, String> {
+
+    /**
+     * Not read-only, so that with a replica it reads the primary: a stale one would import chunks twice.
+     */
+    @Override
+    @Transactional
+    Optional<BatchImportCheckpoint> findById(String id);
+
+    /**
+     * @return number of checkpoints deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from BatchImportCheckpoint c where c.updatedAt < :threshold")
+    int deleteByUpdatedAtBefore(@Param("threshold") Instant threshold);
+}
@@ -0,0 +1,213 @@
+package org.example.socksproject.repository;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interning cache of the {@code socks_color} dictionary, mapping normalized color names to their ids and back.
+ * <p>
+ * Entries never change once created, so they are cached for the lifetime of the application and a lookup of a
+ * known color is a map read. Missing colors are created on the caller's connection, in its transaction if it
+ * has one, so that creating a color never takes a second connection from the pool. Their ids are only cached
+ * once that transaction has committed, so an id rolled back with the caller is never handed out; until then a
+ * transaction that creates a color looks it up again on its own connection.
+ */
+@Repository
+public class ColorDictionary {
+
+    private static final String INSERT_SQL = "INSERT INTO socks_color (name) " +
+            "SELECT n.name FROM unnest(?) AS n(name) " +
+            "WHERE NOT EXISTS (SELECT 1 FROM socks_color c WHERE c.name = n.name) " +
+            "ON CONFLICT (name) DO NOTHING";
+
+    private static final String FIND_BY_NAMES_SQL = "SELECT id, name FROM socks_color WHERE name = ANY(?)";
+
+    private static final String FIND_BY_NAME_SQL = "SELECT id, name FROM socks_color WHERE name = ?";
+
+    private static final String FIND_BY_ID_SQL = "SELECT id, name FROM socks_color WHERE id = ?";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+    public ColorDictionary(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * @return the id of the color, creating the color if it is not in the dictionary yet
+     */
+    public int idOf(String color) {
+        Integer id = ids.get(color);
+        return id != null ? id : idsOf(List.of(color)).get(color);
+    }
+
+    /**
+     * Resolves several colors at once, creating the missing ones with one insert.
+     *
+     * @return the id of every given color
+     */
+    public Map<String, Integer> idsOf(Collection<String> colors) {
+        Map<String, Integer> resolved = new HashMap<>();
+        Map<String, Integer> pending = pending();
+        TreeSet<String> missing = new TreeSet<>();
+        for (String color : colors) {
+            Integer id = ids.get(color);
+            if (id == null && pending != null) {
+                id = pending.get(color);
+            }
+            if (id != null) {
+                resolved.put(color, id);
+            } else {
+                missing.add(color);
+            }
+        }
+        if (!missing.isEmpty()) {
+            resolved.putAll(create(missing));
+        }
+        return resolved;
+    }
+
+    /**
+     * Looks the color up without creating it, for reads: a color that is not in the dictionary has no socks.
+     */
+    public OptionalInt find(String color) {
+        Integer id = ids.get(color);
+        Map<String, Integer> pending = pending();
+        if (id == null && pending != null) {
+            id = pending.get(color);
+        }
+        if (id == null) {
+            jdbcTemplate.query(FIND_BY_NAME_SQL, this::cache, color);
+            id = ids.get(color);
+        }
+        return id == null ? OptionalInt.empty() : OptionalInt.of(id);
+    }
+
+    /**
+     * @throws IllegalStateException if there is no color with the id
+     */
+    public String nameOf(int id) {
+        String name = names.get(id);
+        Map<String, Integer> pending = pending();
+        if (name == null && pending != null) {
+            name = pending.entrySet().stream()
+                    .filter(entry -> entry.getValue() == id)
+                    .map(Map.Entry::getKey)
+                    .findFirst()
+                    .orElse(null);
+        }
+        if (name == null) {
+            jdbcTemplate.query(FIND_BY_ID_SQL, this::cache, id);
+            name = names.get(id);
+            if (name == null) {
+                throw new IllegalStateException("Unknown color id: " + id);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Looks the color up in the cache only, for callers that resolve misses themselves without blocking.
+     */
+    public OptionalInt cached(String color) {
+        Integer id = ids.get(color);
+        return id == null ? OptionalInt.empty() : OptionalInt.of(id);
+    }
+
+    /**
+     * Caches a dictionary entry the caller read or created itself; it must be committed.
+     */
+    public void remember(int id, String name) {
+        ids.put(name, id);
+        names.put(id, name);
+    }
+
+    /**
+     * Colors are inserted in name order, so concurrent transactions creating the same colors wait for each
+     * other on the unique key instead of deadlocking.
+     */
+    private Map<String, Integer> create(TreeSet<String> colors) {
+        Map<String, Integer> created = new HashMap<>();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            Array names = connection.createArrayOf("varchar", colors.toArray());
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+                insert.setArray(1, names);
+                insert.executeUpdate();
+            }
+            try (PreparedStatement select = connection.prepareStatement(FIND_BY_NAMES_SQL)) {
+                select.setArray(1, names);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        created.put(rs.getString(2), rs.getInt(1));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Failed to create colors " + colors, e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingForTransaction().putAll(created);
+        } else {
+            created.forEach((name, id) -> remember(id, name));
+        }
+        return created;
+    }
+
+    /**
+     * @return colors created by the current transaction, not committed yet, or null if it created none
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Integer> pending() {
+        return (Map<String, Integer>) TransactionSynchronizationManager.getResource(this);
+    }
+
+    private Map<String, Integer> pendingForTransaction() {
+        Map<String, Integer> pending = pending();
+        if (pending == null) {
+            Map<String, Integer> created = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    created.forEach((name, id) -> remember(id, name));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(ColorDictionary.this);
+                }
+            });
+            pending = created;
+        }
+        return pending;
+    }
+
+    private void cache(ResultSet rs) throws SQLException {
+        remember(rs.getInt(1), rs.getString(2));
+    }
+}
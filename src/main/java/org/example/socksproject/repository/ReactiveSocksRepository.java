@@ -0,0 +1,207 @@
+package org.example.socksproject.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example.socksproject.model.SocksKey;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * Socks statements of the reactive variant, run over R2DBC. Every write is a single statement, so it is atomic
+ * without a transaction and no connection is held between statements.
+ * <p>
+ * Colors share the {@link ColorDictionary} cache with the JDBC side; misses are resolved here without blocking.
+ * Missing colors are created by statements that commit on their own, as there is no transaction to join.
+ */
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveSocksRepository {
+
+    private static final String INSERT_COLORS_SQL = "INSERT INTO socks_color (name) " +
+            "SELECT n.name FROM unnest(CAST(:names AS varchar[])) AS n(name) " +
+            "WHERE NOT EXISTS (SELECT 1 FROM socks_color c WHERE c.name = n.name) " +
+            "ON CONFLICT (name) DO NOTHING";
+
+    private static final String FIND_COLORS_SQL =
+            "SELECT id, name FROM socks_color WHERE name = ANY(CAST(:names AS varchar[]))";
+
+    private static final String UPSERT_QUANTITY_SQL =
+            "INSERT INTO socks (color_id, cotton_percentage, quantity, version) " +
+                    "VALUES (:colorId, :cottonPercentage, :quantity, 0) " +
+                    "ON CONFLICT (color_id, cotton_percentage) " +
+                    "DO UPDATE SET quantity = socks.quantity + EXCLUDED.quantity, version = socks.version + 1 " +
+                    "RETURNING quantity";
+
+    // Keys are passed as arrays in key order; unnest keeps that order, so rows are locked in key order.
+    private static final String UPSERT_QUANTITIES_SQL =
+            "INSERT INTO socks (color_id, cotton_percentage, quantity, version) " +
+                    "SELECT k.color_id, k.cotton_percentage, k.quantity, 0 " +
+                    "FROM unnest(CAST(:colorIds AS int[]), CAST(:cottonPercentages AS int[]), " +
+                    "CAST(:quantities AS int[])) AS k(color_id, cotton_percentage, quantity) " +
+                    "ON CONFLICT (color_id, cotton_percentage) " +
+                    "DO UPDATE SET quantity = socks.quantity + EXCLUDED.quantity, version = socks.version + 1";
+
+    private static final String DECREMENT_QUANTITY_SQL =
+            "UPDATE socks SET quantity = quantity - :quantity, version = version + 1 " +
+                    "WHERE color_id = :colorId AND cotton_percentage = :cottonPercentage AND quantity >= :quantity " +
+                    "RETURNING quantity";
+
+    private static final String EXISTS_SQL =
+            "SELECT 1 FROM socks WHERE color_id = :colorId AND cotton_percentage = :cottonPercentage";
+
+    private static final String COUNT_SQL = "SELECT count(*) FROM socks WHERE color_id = :colorId AND ";
+
+    private final DatabaseClient databaseClient;
+    private final ColorDictionary colorDictionary;
+
+    /**
+     * @return the id of the color, creating the color if it is not in the dictionary yet
+     */
+    public Mono<Integer> colorId(String color) {
+        return colorIds(List.of(color)).map(ids -> ids.get(color));
+    }
+
+    /**
+     * Resolves several colors at once, creating the missing ones with one insert.
+     *
+     * @return the id of every given color
+     */
+    public Mono<Map<String, Integer>> colorIds(Collection<String> colors) {
+        Map<String, Integer> resolved = new HashMap<>();
+        List<String> missing = colors.stream()
+                .distinct()
+                .filter(color -> {
+                    OptionalInt id = colorDictionary.cached(color);
+                    id.ifPresent(value -> resolved.put(color, value));
+                    return id.isEmpty();
+                })
+                .sorted()
+                .toList();
+        if (missing.isEmpty()) {
+            return Mono.just(resolved);
+        }
+        String[] names = missing.toArray(String[]::new);
+        return databaseClient.sql(INSERT_COLORS_SQL)
+                .bind("names", names)
+                .then()
+                .thenMany(findColors(names))
+                .then(Mono.fromSupplier(() -> {
+                    missing.forEach(color -> resolved.put(color, colorDictionary.cached(color).orElseThrow()));
+                    return resolved;
+                }));
+    }
+
+    /**
+     * Looks the color up without creating it, for reads: a color that is not in the dictionary has no socks.
+     */
+    public Mono<Integer> findColorId(String color) {
+        OptionalInt cached = colorDictionary.cached(color);
+        if (cached.isPresent()) {
+            return Mono.just(cached.getAsInt());
+        }
+        return findColors(new String[]{color}).next();
+    }
+
+    /**
+     * Adds the quantity in a single statement, creating the row if it does not exist yet.
+     *
+     * @return the new quantity
+     */
+    public Mono<Integer> upsertQuantity(int colorId, int cottonPercentage, int quantity) {
+        return databaseClient.sql(UPSERT_QUANTITY_SQL)
+                .bind("colorId", colorId)
+                .bind("cottonPercentage", cottonPercentage)
+                .bind("quantity", quantity)
+                .map(row -> row.get(0, Integer.class))
+                .one();
+    }
+
+    /**
+     * Adds the quantities of a chunk in a single statement. Keys must be unique within the chunk, and callers
+     * should pass them sorted so that concurrent chunks lock rows in the same order.
+     *
+     * @param colorIds id of every color of the chunk
+     * @return number of rows written
+     */
+    public Mono<Long> upsertQuantities(List<Map.Entry<SocksKey, Integer>> quantities,
+                                       Map<String, Integer> colorIds) {
+        Integer[] colorIdArray = new Integer[quantities.size()];
+        Integer[] cottonPercentages = new Integer[quantities.size()];
+        Integer[] quantityArray = new Integer[quantities.size()];
+        for (int i = 0; i < quantities.size(); i++) {
+            Map.Entry<SocksKey, Integer> entry = quantities.get(i);
+            colorIdArray[i] = colorIds.get(entry.getKey().color());
+            cottonPercentages[i] = entry.getKey().cottonPercentage();
+            quantityArray[i] = entry.getValue();
+        }
+        return databaseClient.sql(UPSERT_QUANTITIES_SQL)
+                .bind("colorIds", colorIdArray)
+                .bind("cottonPercentages", cottonPercentages)
+                .bind("quantities", quantityArray)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Subtracts the quantity only if enough socks are in stock.
+     *
+     * @return the remaining quantity, or empty if there are no such socks or not enough of them
+     */
+    public Mono<Integer> decrementQuantity(int colorId, int cottonPercentage, int quantity) {
+        return databaseClient.sql(DECREMENT_QUANTITY_SQL)
+                .bind("colorId", colorId)
+                .bind("cottonPercentage", cottonPercentage)
+                .bind("quantity", quantity)
+                .map(row -> row.get(0, Integer.class))
+                .one();
+    }
+
+    public Mono<Boolean> exists(int colorId, int cottonPercentage) {
+        return databaseClient.sql(EXISTS_SQL)
+                .bind("colorId", colorId)
+                .bind("cottonPercentage", cottonPercentage)
+                .map(row -> true)
+                .first()
+                .defaultIfEmpty(false);
+    }
+
+    public Mono<Integer> countGreaterThan(int colorId, int cottonPercentage) {
+        return count("cotton_percentage > :cottonPercentage", colorId, cottonPercentage);
+    }
+
+    public Mono<Integer> countLessThan(int colorId, int cottonPercentage) {
+        return count("cotton_percentage < :cottonPercentage", colorId, cottonPercentage);
+    }
+
+    public Mono<Integer> countEquals(int colorId, int cottonPercentage) {
+        return count("cotton_percentage = :cottonPercentage", colorId, cottonPercentage);
+    }
+
+    private Mono<Integer> count(String condition, int colorId, int cottonPercentage) {
+        return databaseClient.sql(COUNT_SQL + condition)
+                .bind("colorId", colorId)
+                .bind("cottonPercentage", cottonPercentage)
+                .map(row -> row.get(0, Long.class).intValue())
+                .one();
+    }
+
+    private Flux<Integer> findColors(String[] names) {
+        return databaseClient.sql(FIND_COLORS_SQL)
+                .bind("names", names)
+                .map(row -> {
+                    int id = row.get("id", Integer.class);
+                    colorDictionary.remember(id, row.get("name", String.class));
+                    return id;
+                })
+                .all();
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.socksproject.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example.socksproject.model.SocksKey;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+@Repository
+@RequiredArgsConstructor
+public class SocksBatchRepository {
+
+    private static final String UPSERT_QUANTITY_SQL =
+            "INSERT INTO socks (color_id, cotton_percentage, quantity, version) VALUES (?, ?, ?, 0) " +
+                    "ON CONFLICT (color_id, cotton_percentage) " +
+                    "DO UPDATE SET quantity = socks.quantity + EXCLUDED.quantity, version = socks.version + 1";
+
+    // The keys are passed as arrays of color ids and cotton percentages; k.ord is the 1-based index of the key.
+    private static final String FIND_QUANTITIES_SQL =
+            "SELECT k.ord, s.quantity FROM socks s " +
+                    "JOIN unnest(?, ?) WITH ORDINALITY AS k(color_id, cotton_percentage, ord) " +
+                    "ON s.color_id = k.color_id AND s.cotton_percentage = k.cotton_percentage";
+
+    // The keys are passed sorted, so rows are locked in the same order they are written.
+    private static final String LOCK_QUANTITIES_SQL = FIND_QUANTITIES_SQL + " ORDER BY k.ord FOR UPDATE OF s";
+
+    private static final String SUM_LEDGER_TAILS_SQL =
+            "SELECT k.ord, sum(l.quantity) FROM socks_ledger l " +
+                    "JOIN unnest(?, ?) WITH ORDINALITY AS k(color_id, cotton_percentage, ord) " +
+                    "ON l.color_id = k.color_id AND l.cotton_percentage = k.cotton_percentage " +
+                    "WHERE l.snapshot_id IS NULL " +
+                    "GROUP BY k.ord";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ColorDictionary colorDictionary;
+
+    /**
+     * Locks the existing rows of the given keys in key order until the end of the transaction.
+     *
+     * @return the current quantity of every key that has a row
+     */
+    public Map<SocksKey, Integer> lockQuantities(Collection<SocksKey> keys) {
+        return queryQuantities(LOCK_QUANTITIES_SQL, keys);
+    }
+
+    /**
+     * @return the current quantity of every key that has a row
+     */
+    public Map<SocksKey, Integer> findQuantities(Collection<SocksKey> keys) {
+        return queryQuantities(FIND_QUANTITIES_SQL, keys);
+    }
+
+    /**
+     * @return the sum of the socks ledger entries not yet compacted, for every key that has any
+     */
+    public Map<SocksKey, Integer> sumLedgerTails(Collection<SocksKey> keys) {
+        return queryQuantities(SUM_LEDGER_TAILS_SQL, keys);
+    }
+
+    /**
+     * Adds the quantities in one JDBC batch. A negative quantity subtracts and must only be passed for rows that
+     * exist and hold enough socks. Keys must be unique within the batch, and callers should pass
+     * them sorted so that concurrent batches lock rows in the same order.
+     */
+    public void upsertQuantities(List<Map.Entry<SocksKey, Integer>> quantities) {
+        Map<String, Integer> colorIds = colorDictionary.idsOf(
+                quantities.stream().map(entry -> entry.getKey().color()).distinct().toList());
+        jdbcTemplate.batchUpdate(UPSERT_QUANTITY_SQL, quantities, quantities.size(), (ps, entry) -> {
+            ps.setInt(1, colorIds.get(entry.getKey().color()));
+            ps.setInt(2, entry.getKey().cottonPercentage());
+            ps.setInt(3, entry.getValue());
+        });
+    }
+
+    private Map<SocksKey, Integer> queryQuantities(String sql, Collection<SocksKey> keys) {
+        Map<SocksKey, Integer> quantities = new HashMap<>();
+        // Keys of colors that are not in the dictionary have no rows.
+        List<SocksKey> known = new ArrayList<>(keys.size());
+        List<Integer> colorIds = new ArrayList<>(keys.size());
+        Map<String, OptionalInt> resolved = new HashMap<>();
+        keys.stream().sorted().forEach(key -> resolved.computeIfAbsent(key.color(), colorDictionary::find)
+                .ifPresent(colorId -> {
+                    known.add(key);
+                    colorIds.add(colorId);
+                }));
+        if (known.isEmpty()) {
+            return quantities;
+        }
+        jdbcTemplate.query(connection -> {
+            Array colors = connection.createArrayOf("integer", colorIds.toArray());
+            Array cottonPercentages = connection.createArrayOf("integer",
+                    known.stream().map(SocksKey::cottonPercentage).toArray());
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setArray(1, colors);
+            statement.setArray(2, cottonPercentages);
+            return statement;
+        }, rs -> {
+            quantities.put(known.get(rs.getInt(1) - 1), rs.getInt(2));
+        });
+        return quantities;
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.socksproject.repository;
+
+import org.example.socksproject.model.SocksLedgerEntry;
+import org.example.socksproject.repository.projection.LedgerCompaction;
+import org.example.socksproject.repository.projection.SocksUpsertResult;
+import org.example.socksproject.repository.projection.SupersededTail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SocksLedgerRepository extends JpaRepository<SocksLedgerEntry, Long> {
+
+    /**
+     * Appends a ledger entry without touching the socks row, except for creating an empty row for a new key
+     * so that the key is counted and outcomes have a row to lock. Must be called inside a read-write transaction.
+     *
+     * @return the balance of the key including the new entry, and whether the row was created
+     */
+    @Query(value = "WITH created AS (" +
+            "INSERT INTO socks (color_id, cotton_percentage, quantity, version) " +
+            "VALUES (:colorId, :cottonPercentage, 0, 0) " +
+            "ON CONFLICT (color_id, cotton_percentage) DO NOTHING RETURNING id) " +
+            "INSERT INTO socks_ledger (color_id, cotton_percentage, quantity, created_at) " +
+            "VALUES (:colorId, :cottonPercentage, :quantity, now()) " +
+            "RETURNING CAST(:quantity " +
+            "+ coalesce((SELECT s.quantity FROM socks s " +
+            "WHERE s.color_id = :colorId AND s.cotton_percentage = :cottonPercentage), 0) " +
+            "+ coalesce((SELECT sum(l.quantity) FROM socks_ledger l " +
+            "WHERE l.color_id = :colorId AND l.cotton_percentage = :cottonPercentage AND l.snapshot_id IS NULL), 0) " +
+            "AS integer) AS quantity, " +
+            "EXISTS (SELECT 1 FROM created) AS inserted", nativeQuery = true)
+    SocksUpsertResult append(@Param("colorId") int colorId,
+                             @Param("cottonPercentage") int cottonPercentage,
+                             @Param("quantity") int quantity);
+
+    /**
+     * Adds the oldest entries of the tail to the socks quantities and marks them with the snapshot.
+     * Entries locked by a concurrent compaction are skipped. Rows are updated in key order, like the batch
+     * writers do, and without bumping their version, so the change doesn't fail concurrent updates by id.
+     */
+    @Query(value = "WITH folded AS (" +
+            "UPDATE socks_ledger SET snapshot_id = :snapshotId WHERE id IN (" +
+            "SELECT id FROM socks_ledger WHERE snapshot_id IS NULL ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, color_id, cotton_percentage, quantity), " +
+            "applied AS (" +
+            "INSERT INTO socks (color_id, cotton_percentage, quantity, version) " +
+            "SELECT f.color_id, f.cotton_percentage, sum(f.quantity), 0 FROM folded f " +
+            "JOIN socks_color c ON c.id = f.color_id " +
+            "GROUP BY f.color_id, c.name, f.cotton_percentage ORDER BY c.name COLLATE \"C\", f.cotton_percentage " +
+            "ON CONFLICT (color_id, cotton_percentage) DO UPDATE SET quantity = socks.quantity + EXCLUDED.quantity " +
+            "RETURNING 1) " +
+            "SELECT count(*) AS \"entries\", (SELECT count(*) FROM applied) AS \"keyCount\", " +
+            "max(id) AS \"lastEntryId\" FROM folded", nativeQuery = true)
+    LedgerCompaction compact(@Param("snapshotId") long snapshotId, @Param("limit") int limit);
+
+    /**
+     * Marks the tail of the key with the snapshot without adding it to the socks row, for writes that set
+     * the quantity of the row outright.
+     *
+     * @return number and sum of the entries marked
+     */
+    @Query(value = "WITH superseded AS (" +
+            "UPDATE socks_ledger SET snapshot_id = :snapshotId " +
+            "WHERE color_id = :colorId AND cotton_percentage = :cottonPercentage AND snapshot_id IS NULL " +
+            "RETURNING quantity) " +
+            "SELECT count(*) AS \"entries\", CAST(coalesce(sum(quantity), 0) AS integer) AS \"quantity\" " +
+            "FROM superseded", nativeQuery = true)
+    SupersededTail supersedeTail(@Param("snapshotId") long snapshotId,
+                                 @Param("colorId") int colorId,
+                                 @Param("cottonPercentage") int cottonPercentage);
+
+    @Query("select count(e) from SocksLedgerEntry e where e.snapshotId is null")
+    long countTail();
+}
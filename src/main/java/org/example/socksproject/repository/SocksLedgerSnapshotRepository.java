@@ -0,0 +1,9 @@
+package org.example.socksproject.repository;
+
+import org.example.socksproject.model.SocksLedgerSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SocksLedgerSnapshotRepository extends JpaRepository<SocksLedgerSnapshot, Long> {
+}
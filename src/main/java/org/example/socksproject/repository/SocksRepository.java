@@ -1,19 +1,107 @@
 package org.example.socksproject.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.socksproject.model.Socks;
+import org.example.socksproject.repository.projection.ColorQuantity;
+import org.example.socksproject.repository.projection.CottonQuantity;
+import org.example.socksproject.repository.projection.SocksKeyCount;
+import org.example.socksproject.repository.projection.SocksQuantity;
+import org.example.socksproject.repository.projection.SocksUpsertResult;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface SocksRepository extends JpaRepository<Socks, Long> {
 
     Optional<Socks> findByColorAndCottonPercentage(String color, int cottonPercentage);
 
+    boolean existsByColorAndCottonPercentage(String color, int cottonPercentage);
+
     int countSocksByColorAndCottonPercentageGreaterThan(String color, int cottonPercentage);
 
     int countSocksByColorAndCottonPercentageLessThan(String color, int cottonPercentage);
 
     int countSocksByColorAndCottonPercentageEquals(String color, int cottonPercentage);
+
+    /**
+     * Not read-only, so that with a replica the inventory index is loaded from the primary and sees every write.
+     */
+    @Transactional
+    @Query("select s.color as color, s.cottonPercentage as cottonPercentage, count(s) as rowCount " +
+            "from Socks s group by s.color, s.cottonPercentage")
+    List<SocksKeyCount> countRowsByKey();
+
+    @Query("select coalesce(sum(s.quantity), 0) from Socks s " +
+            "where s.cottonPercentage between :from and :to")
+    long sumQuantity(@Param("from") int cottonFrom, @Param("to") int cottonTo);
+
+    @Query("select s.color as color, sum(s.quantity) as quantity from Socks s " +
+            "where s.cottonPercentage between :from and :to " +
+            "group by s.color")
+    List<ColorQuantity> sumQuantityByColor(@Param("from") int cottonFrom, @Param("to") int cottonTo);
+
+    @Query("select s.color as color, sum(s.quantity) as quantity from Socks s " +
+            "where s.color in :colors and s.cottonPercentage between :from and :to " +
+            "group by s.color")
+    List<ColorQuantity> sumQuantityByColorIn(@Param("colors") Collection<String> colors,
+                                             @Param("from") int cottonFrom, @Param("to") int cottonTo);
+
+    @Query("select s.cottonPercentage as cottonPercentage, sum(s.quantity) as quantity from Socks s " +
+            "where s.cottonPercentage between :from and :to " +
+            "group by s.cottonPercentage order by s.cottonPercentage")
+    List<CottonQuantity> sumQuantityByCottonPercentage(@Param("from") int cottonFrom, @Param("to") int cottonTo);
+
+    @Query("select s.cottonPercentage as cottonPercentage, sum(s.quantity) as quantity from Socks s " +
+            "where s.color in :colors and s.cottonPercentage between :from and :to " +
+            "group by s.cottonPercentage order by s.cottonPercentage")
+    List<CottonQuantity> sumQuantityByCottonPercentageAndColorIn(@Param("colors") Collection<String> colors,
+                                                                 @Param("from") int cottonFrom,
+                                                                 @Param("to") int cottonTo);
+
+    /**
+     * Streams all socks as read-only projections, fetched from a server-side cursor in pages of 1000 rows.
+     * Must be consumed, and closed, inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select s.color as color, s.cottonPercentage as cottonPercentage, s.quantity as quantity " +
+            "from Socks s order by s.id")
+    Stream<SocksQuantity> streamAll();
+
+    /**
+     * Adds the quantity to the socks with the given color id and cotton percentage in a single statement,
+     * creating the row if it does not exist yet. Must be called inside a read-write transaction.
+     */
+    @Query(value = "INSERT INTO socks (color_id, cotton_percentage, quantity, version) " +
+            "VALUES (:colorId, :cottonPercentage, :quantity, 0) " +
+            "ON CONFLICT (color_id, cotton_percentage) " +
+            "DO UPDATE SET quantity = socks.quantity + EXCLUDED.quantity, version = socks.version + 1 " +
+            "RETURNING quantity AS quantity, (xmax = 0) AS inserted", nativeQuery = true)
+    SocksUpsertResult upsertQuantity(@Param("colorId") int colorId,
+                                     @Param("cottonPercentage") int cottonPercentage,
+                                     @Param("quantity") int quantity);
+
+    /**
+     * Subtracts the quantity only if enough socks are in stock. Must be called inside a read-write transaction.
+     *
+     * @return the remaining quantity, or empty if there are no such socks or not enough of them
+     */
+    @Query(value = "UPDATE socks SET quantity = quantity - :quantity, version = version + 1 " +
+            "WHERE color_id = :colorId AND cotton_percentage = :cottonPercentage AND quantity >= :quantity " +
+            "RETURNING quantity", nativeQuery = true)
+    Optional<Integer> decrementQuantity(@Param("colorId") int colorId,
+                                        @Param("cottonPercentage") int cottonPercentage,
+                                        @Param("quantity") int quantity);
 }
@@ -0,0 +1,19 @@
+package org.example.socksproject.repository;
+
+import org.example.socksproject.model.WalCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface WalCheckpointRepository extends JpaRepository<WalCheckpoint, String> {
+
+    /**
+     * Not read-only, so that with a replica it reads the primary: a stale one would replay records that were applied already.
+     */
+    @Override
+    @Transactional
+    Optional<WalCheckpoint> findById(String id);
+}
@@ -0,0 +1,8 @@
+package org.example.socksproject.repository.projection;
+
+public interface CottonQuantity {
+
+    int getCottonPercentage();
+
+    long getQuantity();
+}
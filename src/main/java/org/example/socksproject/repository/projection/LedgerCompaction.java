@@ -0,0 +1,10 @@
+package org.example.socksproject.repository.projection;
+
+public interface LedgerCompaction {
+
+    long getEntries();
+
+    int getKeyCount();
+
+    Long getLastEntryId();
+}
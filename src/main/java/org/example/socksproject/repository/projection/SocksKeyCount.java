@@ -0,0 +1,10 @@
+package org.example.socksproject.repository.projection;
+
+public interface SocksKeyCount {
+
+    String getColor();
+
+    int getCottonPercentage();
+
+    long getRowCount();
+}
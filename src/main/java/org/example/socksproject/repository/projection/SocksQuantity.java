@@ -0,0 +1,10 @@
+package org.example.socksproject.repository.projection;
+
+public interface SocksQuantity {
+
+    String getColor();
+
+    int getCottonPercentage();
+
+    int getQuantity();
+}
@@ -0,0 +1,8 @@
+package org.example.socksproject.repository.projection;
+
+public interface SocksUpsertResult {
+
+    int getQuantity();
+
+    boolean isInserted();
+}
@@ -0,0 +1,8 @@
+package org.example.socksproject.repository.projection;
+
+public interface SupersededTail {
+
+    long getEntries();
+
+    int getQuantity();
+}
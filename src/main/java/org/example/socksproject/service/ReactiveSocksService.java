@@ -0,0 +1,29 @@
+package org.example.socksproject.service;
+
+import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.service.batch.BatchImportResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking variant of the core {@link SocksService} operations, served by the WebFlux API of the
+ * {@code reactive} profile. Invalid input and refused outcomes are signalled as {@link IllegalArgumentException},
+ * with the same messages as the blocking service.
+ */
+public interface ReactiveSocksService {
+
+    Mono<Void> incomeSocks(SocksDto socksDto);
+
+    Mono<Void> outcomeSocks(SocksDto socksDto);
+
+    Mono<Integer> getSocksCount(String color, String comparison, int cottonPercentage);
+
+    /**
+     * Imports a CSV file as its lines arrive. The first line is the header; every chunk of rows is written
+     * with one statement before more lines are requested, so a slow database slows down the upload instead of
+     * buffering the file.
+     *
+     * @param lines lines of the file, without line separators
+     */
+    Mono<BatchImportResult> uploadBatch(Flux<String> lines);
+}
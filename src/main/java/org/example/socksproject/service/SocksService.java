@@ -1,8 +1,19 @@
 package org.example.socksproject.service;
 
 import org.apache.commons.csv.CSVRecord;
+import org.example.socksproject.dto.BatchJobStatusDto;
 import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.dto.SocksMovementDto;
+import org.example.socksproject.dto.SocksMovementResultDto;
+import org.example.socksproject.dto.SocksReportDto;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 public interface SocksService {
 
@@ -10,10 +21,39 @@ public interface SocksService {
 
     void outcomeSocks(SocksDto socksDto);
 
+    List<SocksMovementResultDto> applyMovements(List<SocksMovementDto> movements);
+
     int getSocksCount(String color, String comparison, int cottonPercentage);
 
+    /**
+     * Version of the counts of the color, changing whenever a count of the color may have changed.
+     * Empty if count versioning is disabled.
+     */
+    Optional<String> getCountVersion(String color);
+
+    SocksReportDto getReport(String groupBy, List<String> colors, int cottonFrom, int cottonTo, int bucketSize);
+
     void updateSocks(Long id, SocksDto socksDto);
 
-    void uploadFile(MultipartFile file);
+    /**
+     * Opens a server-sent event stream of committed quantity changes.
+     *
+     * @param colors       colors to receive changes of; all colors if empty or {@code null}
+     * @param lastEventId  id of the last event the client received, to resume after it
+     */
+    SseEmitter subscribeToChanges(List<String> colors, String lastEventId);
+
+    void exportInventory(String format, OutputStream outputStream) throws IOException;
+
+    /**
+     * @param uploadId client-supplied id of the upload, to resume it after a failure and import it only once;
+     *                 {@code null} imports the file without a checkpoint
+     * @return false if the upload id was imported completely before, so nothing was imported
+     */
+    boolean uploadFile(MultipartFile file, String uploadId);
+
+    UUID uploadFileAsync(MultipartFile file, String uploadId);
+
+    BatchJobStatusDto getUploadJob(UUID jobId);
 
 }
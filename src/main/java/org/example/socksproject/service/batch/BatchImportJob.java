@@ -0,0 +1,103 @@
+package org.example.socksproject.service.batch;
+
+import lombok.Getter;
+import org.example.socksproject.dto.BatchJobStatusDto;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * State of an asynchronous batch upload. Updated by the import thread and read by status requests.
+ */
+@Getter
+public class BatchImportJob implements BatchImportProgress {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED,
+        /**
+         * The upload id was imported completely before, nothing was imported.
+         */
+        SKIPPED
+    }
+
+    private final UUID id;
+    private final String uploadId;
+    private final String fileName;
+    private final Path file;
+    private final long fileSize;
+    private final Instant submittedAt = Instant.now();
+
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong rowsApplied = new AtomicLong();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public BatchImportJob(UUID id, String uploadId, String fileName, Path file, long fileSize) {
+        this.id = id;
+        this.uploadId = uploadId;
+        this.fileName = fileName;
+        this.file = file;
+        this.fileSize = fileSize;
+    }
+
+    @Override
+    public void rowsParsed(long rows) {
+        rowsParsed.addAndGet(rows);
+    }
+
+    @Override
+    public void rowsApplied(long rows) {
+        rowsApplied.addAndGet(rows);
+    }
+
+    void started() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void completed() {
+        finishedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+
+    void skipped() {
+        finishedAt = Instant.now();
+        status = Status.SKIPPED;
+    }
+
+    void failed(String message) {
+        error = message;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED || status == Status.SKIPPED;
+    }
+
+    public BatchJobStatusDto toDto() {
+        Instant start = startedAt;
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        long elapsedMillis = start == null ? 0 : Duration.between(start, end).toMillis();
+        long parsed = rowsParsed.get();
+
+        return BatchJobStatusDto.builder()
+                .jobId(id)
+                .fileName(fileName)
+                .status(status.name())
+                .rowsParsed(parsed)
+                .rowsApplied(rowsApplied.get())
+                .rowsPerSecond(elapsedMillis == 0 ? 0 : parsed * 1000.0 / elapsedMillis)
+                .submittedAt(submittedAt)
+                .startedAt(start)
+                .finishedAt(finishedAt)
+                .error(error)
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+package org.example.socksproject.service.batch;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.metrics.SocksMetrics;
+import org.example.socksproject.service.support.ServiceOverloadedException;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs batch uploads in the background.
+ * <p>
+ * The upload is spooled to a temp file before the request returns, and the import runs on a small dedicated
+ * pool. The pool size caps how many imports write at once, so imports can't take over the connection pool
+ * used by interactive requests. Submissions beyond the pool and its queue are rejected with
+ * {@link ServiceOverloadedException}. In the virtual-thread
+ * mode the pool threads are virtual; the pool size still caps the imports.
+ */
+@Slf4j
+@Component
+public class BatchImportJobService {
+
+    /**
+     * Suggested wait before resubmitting a rejected upload, about the time a queued import takes to start.
+     */
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(30);
+
+    private final SocksBatchImporter batchImporter;
+    private final ParallelCsvImporter parallelCsvImporter;
+    private final ImportCheckpointService checkpointService;
+    private final SocksMetrics socksMetrics;
+    private final SocksProperties.Jobs settings;
+    private final ThreadPoolExecutor executor;
+    private final Map<UUID, BatchImportJob> jobs = new ConcurrentHashMap<>();
+
+    public BatchImportJobService(SocksBatchImporter batchImporter,
+                                 ParallelCsvImporter parallelCsvImporter,
+                                 ImportCheckpointService checkpointService,
+                                 SocksMetrics socksMetrics,
+                                 SocksProperties socksProperties,
+                                 Environment environment) {
+        this.batchImporter = batchImporter;
+        this.parallelCsvImporter = parallelCsvImporter;
+        this.checkpointService = checkpointService;
+        this.socksMetrics = socksMetrics;
+        this.settings = socksProperties.getBatch().getJobs();
+        ThreadFactory threadFactory = Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor("batch-import-").getVirtualThreadFactory()
+                : new CustomizableThreadFactory("batch-import-");
+        this.executor = new ThreadPoolExecutor(settings.getMaxConcurrent(), settings.getMaxConcurrent(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(settings.getQueueCapacity()), threadFactory);
+        socksMetrics.monitorBatchJobs(executor);
+    }
+
+    /**
+     * @param uploadId client-supplied id of the upload, or {@code null} to import without a checkpoint
+     */
+    public BatchImportJob submit(MultipartFile file, String uploadId) throws IOException {
+        Path spooled = Files.createTempFile("socks-upload-", ".csv");
+        try {
+            file.transferTo(spooled);
+        } catch (IOException e) {
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+
+        BatchImportJob job = new BatchImportJob(UUID.randomUUID(), uploadId, file.getOriginalFilename(), spooled,
+                file.getSize());
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            Files.deleteIfExists(spooled);
+            log.warn("Batch upload rejected, too many jobs in progress: fileName={}", file.getOriginalFilename());
+            throw new ServiceOverloadedException("Too many batch uploads in progress, try again later", RETRY_AFTER);
+        }
+        log.info("Batch upload job submitted: jobId={}, fileName={}", job.getId(), job.getFileName());
+        return job;
+    }
+
+    public Optional<BatchImportJob> find(UUID jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    @Scheduled(fixedDelayString = "${socks.batch.jobs.retention:PT1H}")
+    public void evictFinishedJobs() {
+        Instant threshold = Instant.now().minus(settings.getRetention());
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(threshold));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void run(BatchImportJob job) {
+        job.started();
+        long startedAt = System.nanoTime();
+        try {
+            BatchImportResult result = importFile(job);
+            if (result.skipped()) {
+                job.skipped();
+                log.info("Batch upload job skipped, upload was already imported: jobId={}, uploadId={}",
+                        job.getId(), job.getUploadId());
+                return;
+            }
+            socksMetrics.batchImported(result.rows(), System.nanoTime() - startedAt);
+            job.completed();
+            log.info("Batch upload job completed: jobId={}, rows={}, chunks={}",
+                    job.getId(), result.rows(), result.chunks());
+        } catch (Exception e) {
+            if (e instanceof IllegalArgumentException) {
+                socksMetrics.batchRowError();
+            }
+            log.error("Batch upload job failed: jobId={}", job.getId(), e);
+            job.failed(e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(job.getFile());
+            } catch (IOException e) {
+                log.warn("Failed to delete spooled upload: {}", job.getFile(), e);
+            }
+        }
+    }
+
+    private BatchImportResult importFile(BatchImportJob job) throws IOException {
+        if (parallelCsvImporter.supports(job.getFileSize())) {
+            ImportCheckpoint checkpoint = parallelCsvImporter.openCheckpoint(job.getUploadId());
+            return parallelCsvImporter.importPath(job.getFile(), job, checkpoint);
+        }
+
+        ImportCheckpoint checkpoint = checkpointService.open(job.getUploadId(), ImportCheckpointService.SEQUENTIAL);
+        try (InputStream inputStream = Files.newInputStream(job.getFile())) {
+            return batchImporter.importCsv(inputStream, job, checkpoint);
+        }
+    }
+}
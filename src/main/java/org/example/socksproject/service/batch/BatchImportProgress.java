@@ -0,0 +1,16 @@
+package org.example.socksproject.service.batch;
+
+/**
+ * Receives row counts while a batch import runs. Counts are increments, not totals.
+ */
+public interface BatchImportProgress {
+
+    BatchImportProgress NONE = new BatchImportProgress() {
+    };
+
+    default void rowsParsed(long rows) {
+    }
+
+    default void rowsApplied(long rows) {
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.socksproject.service.batch;
+
+/**
+ * @param skipped the upload id was imported completely before, so nothing was imported
+ */
+public record BatchImportResult(long rows, int chunks, boolean skipped) {
+
+    public BatchImportResult(long rows, int chunks) {
+        this(rows, chunks, false);
+    }
+
+    public static BatchImportResult alreadyImported() {
+        return new BatchImportResult(0, 0, true);
+    }
+}
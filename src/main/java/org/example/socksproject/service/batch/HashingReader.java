@@ -0,0 +1,84 @@
+package org.example.socksproject.service.batch;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Hashes the characters read through it up to a given position, as UTF-8. The CSV parser reads ahead of the
+ * record it returns, so characters are kept until the position they lie before is hashed.
+ */
+final class HashingReader extends FilterReader {
+
+    private final UploadDigest digest = new UploadDigest();
+    private char[] pending = new char[8192];
+    private int pendingLength;
+    private long hashed;
+
+    HashingReader(Reader in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        char[] single = new char[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0];
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+            if (pendingLength + read > pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + read));
+            }
+            System.arraycopy(buffer, offset, pending, pendingLength, read);
+            pendingLength += read;
+        }
+        return read;
+    }
+
+    /**
+     * Reads and hashes up to {@code count} characters, fewer at the end of the input, and returns the hash of
+     * everything read so far.
+     */
+    String skipHashed(long count) throws IOException {
+        char[] buffer = new char[8192];
+        long remaining = count;
+        while (remaining > 0) {
+            int read = read(buffer, 0, (int) Math.min(remaining, buffer.length));
+            if (read < 0) {
+                break;
+            }
+            remaining -= read;
+            digestUpTo(position());
+        }
+        return digest.hash();
+    }
+
+    /**
+     * Number of characters read so far.
+     */
+    long position() {
+        return hashed + pendingLength;
+    }
+
+    /**
+     * Hash of the characters before {@code position}, which must not lie before the last hashed position.
+     */
+    String hashUpTo(long position) {
+        digestUpTo(position);
+        return digest.hash();
+    }
+
+    private void digestUpTo(long position) {
+        int count = (int) (position - hashed);
+        digest.update(StandardCharsets.UTF_8.encode(CharBuffer.wrap(pending, 0, count)));
+        System.arraycopy(pending, count, pending, 0, pendingLength - count);
+        pendingLength -= count;
+        hashed = position;
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.socksproject.service.batch;
+
+import org.example.socksproject.model.BatchImportCheckpoint;
+import org.example.socksproject.repository.BatchImportCheckpointRepository;
+
+import java.time.Instant;
+
+/**
+ * Handle on the checkpoint of one import run. A disabled checkpoint starts at the beginning and records nothing.
+ */
+public class ImportCheckpoint {
+
+    private static final ImportCheckpoint DISABLED = new ImportCheckpoint(null, null);
+
+    private final BatchImportCheckpointRepository repository;
+    private BatchImportCheckpoint state;
+
+    ImportCheckpoint(BatchImportCheckpointRepository repository, BatchImportCheckpoint state) {
+        this.repository = repository;
+        this.state = state;
+    }
+
+    public static ImportCheckpoint disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return state != null;
+    }
+
+    public boolean isCompleted() {
+        return state != null && state.isCompleted();
+    }
+
+    public long getRows() {
+        return state == null ? 0 : state.getRowsCommitted();
+    }
+
+    public long getCharOffset() {
+        return state == null ? 0 : state.getCharOffset();
+    }
+
+    public int getChunks() {
+        return state == null ? 0 : state.getChunksCommitted();
+    }
+
+    public long getContentLength() {
+        return state == null ? 0 : state.getContentLength();
+    }
+
+    /**
+     * Rejects a resubmission whose first {@link #getContentLength()} characters or bytes hash to something else
+     * than the file the checkpoint was taken against: its committed rows are not the ones in the database.
+     */
+    void verifyContent(String contentHash) {
+        if (state != null && state.getContentHash() != null && !state.getContentHash().equals(contentHash)) {
+            throw new IllegalStateException("Upload " + state.getUploadId() + " does not match the file "
+                    + "imported with this id before, upload it with a new id");
+        }
+    }
+
+    /**
+     * Records one more committed chunk. Must run inside the chunk transaction, so that the checkpoint commits
+     * or rolls back together with the rows it describes. A concurrent import of the same file fails here on
+     * the version check.
+     */
+    void advance(long rows, long charOffset, String contentHash, boolean completed) {
+        if (state == null) {
+            return;
+        }
+        state.setRowsCommitted(rows);
+        state.setCharOffset(charOffset);
+        state.setChunksCommitted(state.getChunksCommitted() + 1);
+        state.setContentLength(charOffset);
+        state.setContentHash(contentHash);
+        state.setCompleted(completed);
+        save();
+    }
+
+    /**
+     * Records one more committed chunk of an aggregate summed from the file up to {@code contentLength}; the
+     * rows only count as committed once its last chunk is.
+     */
+    void advanceAggregate(long contentLength, String contentHash) {
+        if (state == null) {
+            return;
+        }
+        state.setChunksCommitted(state.getChunksCommitted() + 1);
+        state.setContentLength(contentLength);
+        state.setContentHash(contentHash);
+        save();
+    }
+
+    /**
+     * Records the last chunk of an aggregate: its rows are committed, up to byte {@code offset}.
+     */
+    void finishAggregate(long rows, long offset, String contentHash, boolean completed) {
+        if (state == null) {
+            return;
+        }
+        state.setRowsCommitted(rows);
+        state.setCharOffset(offset);
+        state.setChunksCommitted(0);
+        state.setContentLength(offset);
+        state.setContentHash(contentHash);
+        state.setCompleted(completed);
+        save();
+    }
+
+    private void save() {
+        state.setUpdatedAt(Instant.now());
+        state = repository.save(state);
+    }
+}
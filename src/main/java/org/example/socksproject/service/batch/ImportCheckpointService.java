@@ -0,0 +1,94 @@
+package org.example.socksproject.service.batch;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.model.BatchImportCheckpoint;
+import org.example.socksproject.repository.BatchImportCheckpointRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Opens import checkpoints keyed by the upload id the client sends with the file.
+ * <p>
+ * Only uploads with an id are tracked. An upload that failed part way resumes after its last committed chunk
+ * when it is resubmitted with the same id, so the client may correct the rows from the failed one on but must
+ * not change the committed ones. An upload that was imported completely is skipped when its id is submitted
+ * again within the retention period, and the caller is told so. The checkpoint keeps a hash of the file up to
+ * the committed rows, and the importers refuse a resubmission that does not start with the same content.
+ * Checkpoints older than the retention period are purged, and an id submitted after that is imported anew.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportCheckpointService {
+
+    public static final String SEQUENTIAL = "SEQUENTIAL";
+    public static final String PARALLEL = "PARALLEL";
+
+    private final BatchImportCheckpointRepository checkpointRepository;
+    private final SocksProperties socksProperties;
+
+    public boolean isEnabled() {
+        return socksProperties.getBatch().getCheckpoints().isEnabled();
+    }
+
+    /**
+     * @param uploadId client-supplied id of the upload; without one the import runs without a checkpoint
+     * @param mode     {@link #SEQUENTIAL} or {@link #PARALLEL}; checkpoints of one mode can't resume the other
+     */
+    public ImportCheckpoint open(String uploadId, String mode) {
+        if (!isEnabled() || uploadId == null) {
+            return ImportCheckpoint.disabled();
+        }
+
+        int chunkSize = socksProperties.getBatch().getChunkSize();
+        Instant expiry = Instant.now().minus(socksProperties.getBatch().getCheckpoints().getRetention());
+
+        Optional<BatchImportCheckpoint> existing = checkpointRepository.findById(uploadId);
+        BatchImportCheckpoint state = existing.orElseGet(BatchImportCheckpoint::new);
+        boolean expired = existing.isPresent() && state.getUpdatedAt().isBefore(expiry);
+
+        if (existing.isEmpty() || expired) {
+            state.setUploadId(uploadId);
+            state.setMode(mode);
+            state.setChunkSize(chunkSize);
+            state.setRowsCommitted(0);
+            state.setCharOffset(0);
+            state.setChunksCommitted(0);
+            state.setContentLength(0);
+            state.setContentHash(null);
+            state.setCompleted(false);
+            state.setUpdatedAt(Instant.now());
+        } else if (!state.isCompleted() && !isResumable(state, mode, chunkSize)) {
+            throw new IllegalStateException("Upload was partially imported with mode " + state.getMode()
+                    + " and chunk size " + state.getChunkSize() + ", it can't be resumed with the current settings");
+        } else {
+            log.info("Found import checkpoint: uploadId={}, rows={}, chunks={}, completed={}",
+                    uploadId, state.getRowsCommitted(), state.getChunksCommitted(), state.isCompleted());
+        }
+        return new ImportCheckpoint(checkpointRepository, state);
+    }
+
+    @Scheduled(fixedDelayString = "${socks.batch.checkpoints.purge-interval:PT1H}")
+    public void purgeExpired() {
+        if (!isEnabled()) {
+            return;
+        }
+        Instant expiry = Instant.now().minus(socksProperties.getBatch().getCheckpoints().getRetention());
+        int purged = checkpointRepository.deleteByUpdatedAtBefore(expiry);
+        if (purged > 0) {
+            log.info("Purged expired import checkpoints: count={}", purged);
+        }
+    }
+
+    private boolean isResumable(BatchImportCheckpoint state, String mode, int chunkSize) {
+        if (!state.getMode().equals(mode)) {
+            return false;
+        }
+        return SEQUENTIAL.equals(mode) || state.getChunkSize() == chunkSize;
+    }
+}
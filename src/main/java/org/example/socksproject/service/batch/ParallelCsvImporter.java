@@ -0,0 +1,322 @@
+package org.example.socksproject.service.batch;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.model.SocksKey;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses large socks CSV files on several threads.
+ * <p>
+ * The upload is spooled to a temp file, which is split into line-aligned segments that are memory-mapped and
+ * parsed in parallel. Every segment sums its own quantities per key; the sums are merged in file order and
+ * written through {@link SocksBatchImporter#importAggregated}. The first invalid row of the file is reported
+ * with the same message as the sequential import, and only the rows before it are written.
+ * Quoted values spanning several lines are not supported in this mode.
+ */
+@Slf4j
+@Component
+public class ParallelCsvImporter {
+
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+    private static final int SEGMENTS_PER_THREAD = 4;
+
+    private final SocksBatchImporter batchImporter;
+    private final ImportCheckpointService checkpointService;
+    private final SocksProperties.ParallelParsing settings;
+    private final ForkJoinPool parserPool;
+
+    public ParallelCsvImporter(SocksBatchImporter batchImporter,
+                               ImportCheckpointService checkpointService,
+                               SocksProperties socksProperties) {
+        this.batchImporter = batchImporter;
+        this.checkpointService = checkpointService;
+        this.settings = socksProperties.getBatch().getParallelParsing();
+        this.parserPool = new ForkJoinPool(settings.getParallelism());
+    }
+
+    public boolean supports(long fileSize) {
+        return settings.isEnabled() && fileSize >= settings.getThreshold().toBytes();
+    }
+
+    /**
+     * @param uploadId client-supplied id of the upload, or {@code null} to import without a checkpoint
+     */
+    public BatchImportResult importFile(MultipartFile file, String uploadId) throws IOException {
+        ImportCheckpoint checkpoint = openCheckpoint(uploadId);
+        Path spooled = Files.createTempFile("socks-upload-", ".csv");
+        try {
+            file.transferTo(spooled);
+            return importPath(spooled, BatchImportProgress.NONE, checkpoint);
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+    }
+
+    public ImportCheckpoint openCheckpoint(String uploadId) {
+        return checkpointService.open(uploadId, ImportCheckpointService.PARALLEL);
+    }
+
+    public BatchImportResult importPath(Path path) throws IOException {
+        return importPath(path, BatchImportProgress.NONE, ImportCheckpoint.disabled());
+    }
+
+    /**
+     * Imports the file, continuing after the rows a previous run of the same file committed.
+     * <p>
+     * A previous run may have stopped while writing the sums of a part of the file, and its checkpoint then
+     * tells which part. The same part is summed again and only its remaining chunks are written, before the
+     * rest of the file is summed and written as a part of its own.
+     *
+     * @return rows parsed and chunks committed by this run
+     */
+    public BatchImportResult importPath(Path path, BatchImportProgress progress,
+                                        ImportCheckpoint checkpoint) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            UploadDigest digest = null;
+            if (checkpoint.isEnabled()) {
+                digest = new UploadDigest();
+                long verified = checkpoint.isCompleted() ? size : checkpoint.getContentLength();
+                if (verified > size) {
+                    throw new IllegalArgumentException("File is shorter than its import checkpoint");
+                }
+                digest.update(channel, verified);
+                checkpoint.verifyContent(digest.hash());
+            }
+            if (checkpoint.isCompleted()) {
+                log.info("Upload was already imported, skipping: rows={}", checkpoint.getRows());
+                return BatchImportResult.alreadyImported();
+            }
+
+            long rows = checkpoint.getRows();
+            long start = checkpoint.getCharOffset();
+            if (start > 0) {
+                log.info("Resuming import from checkpoint: rows={}, offset={}", rows, start);
+            }
+            long imported = 0;
+            int chunks = 0;
+            while (true) {
+                long end = checkpoint.getChunks() > 0 ? checkpoint.getContentLength() : size;
+                Part part = parse(channel, start, end);
+                long partEnd = part.invalidRecord() == null ? end : part.invalidOffset();
+                String contentHash = null;
+                if (digest != null) {
+                    digest.update(channel, partEnd);
+                    contentHash = digest.hash();
+                }
+
+                rows += part.rows();
+                imported += part.rows();
+                progress.rowsParsed(part.rows());
+                chunks += batchImporter.importAggregated(part.quantities(), checkpoint, rows, partEnd, contentHash,
+                        part.invalidRecord() == null && end == size);
+                progress.rowsApplied(part.rows());
+                if (part.invalidRecord() != null) {
+                    // Validating again with the row number in the whole file throws the same error as the
+                    // sequential import.
+                    SocksCsv.parse(part.invalidRecord(), rows + 1);
+                    // A valid record stopped its segment because the sum of its key overflowed.
+                    throw SocksCsv.overflow(part.invalidRecord(), rows + 1, null);
+                }
+                if (end == size) {
+                    return new BatchImportResult(imported, chunks);
+                }
+                start = end;
+            }
+        }
+    }
+
+    /**
+     * Sums the rows between two line starts of the file, up to the first invalid one.
+     */
+    private Part parse(FileChannel channel, long start, long end) throws IOException {
+        Map<SocksKey, Integer> quantities = new HashMap<>();
+        long rows = 0;
+        List<Segment> segments = split(channel, start, end);
+        List<ForkJoinTask<SegmentResult>> tasks = new ArrayList<>(segments.size());
+        for (Segment segment : segments) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, segment.start(), segment.length());
+            tasks.add(parserPool.submit(() -> parseSegment(buffer, segment)));
+        }
+        log.debug("Parsing CSV file in parallel: from={}, to={}, segments={}", start, end, segments.size());
+
+        SegmentResult invalid = null;
+        for (ForkJoinTask<SegmentResult> task : tasks) {
+            SegmentResult result = task.join();
+            if (invalid != null) {
+                continue;
+            }
+            result.quantities().forEach((key, quantity) -> addSegmentSum(quantities, key, quantity));
+            rows += result.rows();
+            if (result.invalidRecord() != null) {
+                invalid = result;
+            }
+        }
+        return invalid == null
+                ? new Part(quantities, rows, null, end)
+                : new Part(quantities, rows, invalid.invalidRecord(), invalid.invalidOffset());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parserPool.shutdown();
+    }
+
+    private List<Segment> split(FileChannel channel, long from, long to) throws IOException {
+        long target = Math.max(settings.getMinSegmentSize().toBytes(),
+                (to - from) / ((long) settings.getParallelism() * SEGMENTS_PER_THREAD));
+        target = Math.max(1, Math.min(target, MAX_SEGMENT_SIZE));
+
+        List<Segment> segments = new ArrayList<>();
+        long start = from;
+        while (start < to) {
+            long end = start + target >= to ? to : nextLineStart(channel, start + target, to);
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid data in CSV file: line is too long");
+            }
+            segments.add(new Segment(start, end - start, start == 0));
+            start = end;
+        }
+        return segments;
+    }
+
+    private long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private SegmentResult parseSegment(ByteBuffer buffer, Segment segment) {
+        Map<SocksKey, Integer> quantities = new HashMap<>();
+        long rows = 0;
+        CSVFormat format = segment.first() ? SocksCsv.FORMAT : SocksCsv.FRAGMENT_FORMAT;
+        Reader reader = new BufferedReader(
+                new InputStreamReader(new ByteBufferInputStream(buffer.duplicate()), StandardCharsets.UTF_8));
+
+        try (CSVParser parser = format.parse(reader)) {
+            for (CSVRecord record : parser) {
+                try {
+                    SocksCsv.add(quantities, SocksCsv.parse(record, rows + 1), record, rows + 1);
+                } catch (IllegalArgumentException e) {
+                    long offset = segment.start() + byteOffset(buffer, record.getCharacterPosition());
+                    return new SegmentResult(quantities, rows, record, offset);
+                }
+                rows++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new SegmentResult(quantities, rows, null, 0);
+    }
+
+    /**
+     * Byte offset of a character position in UTF-8 text; characters outside the BMP count twice, as in Java.
+     */
+    private static int byteOffset(ByteBuffer text, long chars) {
+        int index = 0;
+        for (long counted = 0; counted < chars; index++) {
+            int b = text.get(index) & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                counted += b >= 0xF0 ? 2 : 1;
+            }
+        }
+        while (index < text.limit() && (text.get(index) & 0xC0) == 0x80) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Nothing has been written when segment sums overflow, so no row is named: the sum spans segments.
+     */
+    private static void addSegmentSum(Map<SocksKey, Integer> quantities, SocksKey key, int quantity) {
+        try {
+            quantities.merge(key, quantity, Math::addExact);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid data in CSV file: total quantity of " + key.color()
+                    + "/" + key.cottonPercentage() + " is too large", e);
+        }
+    }
+
+    private record Segment(long start, long length, boolean first) {
+    }
+
+    /**
+     * Sums of a segment up to its first invalid record, if it has one, which starts at byte
+     * {@code invalidOffset} of the file.
+     */
+    private record SegmentResult(Map<SocksKey, Integer> quantities, long rows, CSVRecord invalidRecord,
+                                 long invalidOffset) {
+    }
+
+    /**
+     * Sums of a part of the file up to its first invalid record, if it has one.
+     */
+    private record Part(Map<SocksKey, Integer> quantities, long rows, CSVRecord invalidRecord, long invalidOffset) {
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
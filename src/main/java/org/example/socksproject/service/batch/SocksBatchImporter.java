@@ -0,0 +1,242 @@
+package org.example.socksproject.service.batch;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.repository.SocksBatchRepository;
+import org.example.socksproject.service.changes.SocksChangeFeed;
+import org.example.socksproject.service.inventory.SocksInventoryIndex;
+import org.example.socksproject.service.support.TransactionCallbacks;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a socks CSV file into the database in chunks.
+ * <p>
+ * Rows of a chunk are summed per (color, cottonPercentage) in memory and the sums are written as one JDBC
+ * batch upsert in their own transaction. When a row is invalid, the rows read before it are still applied
+ * and the error is rethrown, which leaves the table as the former row-by-row import did.
+ * <p>
+ * With an enabled {@link ImportCheckpoint} every chunk also records how far the file got, in the same
+ * transaction, so a failed import can be resubmitted and continues after the last committed chunk.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SocksBatchImporter {
+
+    private final SocksBatchRepository socksBatchRepository;
+    private final SocksInventoryIndex inventoryIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final SocksChangeFeed changeFeed;
+    private final SocksProperties socksProperties;
+
+    public BatchImportResult importCsv(InputStream inputStream) throws IOException {
+        return importCsv(inputStream, BatchImportProgress.NONE);
+    }
+
+    public BatchImportResult importCsv(InputStream inputStream, BatchImportProgress progress) throws IOException {
+        return importCsv(inputStream, progress, ImportCheckpoint.disabled());
+    }
+
+    /**
+     * Imports the file, starting after the last chunk committed by a previous run of the same file.
+     *
+     * @return rows and chunks imported by this run
+     */
+    public BatchImportResult importCsv(InputStream inputStream, BatchImportProgress progress,
+                                       ImportCheckpoint checkpoint) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        // Only a checkpoint needs the hash; without one the reader would keep every character it read.
+        HashingReader hashing = checkpoint.isEnabled() ? new HashingReader(reader) : null;
+        if (hashing != null) {
+            reader = hashing;
+        }
+
+        if (checkpoint.isCompleted()) {
+            checkpoint.verifyContent(hashing.skipHashed(Long.MAX_VALUE));
+            log.info("Upload was already imported, skipping: rows={}", checkpoint.getRows());
+            return BatchImportResult.alreadyImported();
+        }
+
+        int chunkSize = socksProperties.getBatch().getChunkSize();
+        Map<SocksKey, Integer> chunk = new HashMap<>();
+        long startRows = checkpoint.getRows();
+        long startOffset = checkpoint.getCharOffset();
+        long rows = startRows;
+        long position = startOffset;
+        int chunkRows = 0;
+        int chunks = 0;
+
+        CSVFormat format = SocksCsv.FORMAT;
+        if (startOffset > 0) {
+            log.info("Resuming import from checkpoint: rows={}, offset={}", startRows, startOffset);
+            String prefixHash = hashing.skipHashed(startOffset);
+            if (hashing.position() < startOffset) {
+                throw new IllegalArgumentException("File is shorter than its import checkpoint");
+            }
+            checkpoint.verifyContent(prefixHash);
+            format = SocksCsv.FRAGMENT_FORMAT;
+        }
+
+        try (CSVParser parser = format.parse(reader)) {
+            for (CSVRecord record : parser) {
+                position = startOffset + record.getCharacterPosition();
+                if (chunkRows == chunkSize) {
+                    commitChunk(chunk, chunkRows, checkpoint, rows, position, hashing, false, progress);
+                    chunks++;
+                    chunk = new HashMap<>();
+                    chunkRows = 0;
+                }
+
+                try {
+                    SocksCsv.add(chunk, SocksCsv.parse(record, rows + 1), record, rows + 1);
+                } catch (IllegalArgumentException e) {
+                    log.warn("Invalid data in CSV record: row={}, error={}", rows + 1, e.getMessage());
+                    commitChunk(chunk, chunkRows, checkpoint, rows, position, hashing, false, progress);
+                    throw e;
+                }
+                rows++;
+                chunkRows++;
+            }
+        }
+
+        // A completed checkpoint covers the whole file, so a resubmission can be compared in full.
+        long end = hashing != null ? hashing.position() : position;
+        commitChunk(chunk, chunkRows, checkpoint, rows, end, hashing, true, progress);
+        if (chunkRows > 0) {
+            chunks++;
+        }
+        return new BatchImportResult(rows - startRows, chunks);
+    }
+
+    public int importAggregated(Map<SocksKey, Integer> quantities) {
+        return importAggregated(quantities, ImportCheckpoint.disabled(), 0, 0, null, true);
+    }
+
+    /**
+     * Writes quantities that were already summed per key, committing every {@code chunkSize} keys.
+     * Chunks committed by a previous run with the same checkpoint are skipped; the caller must have summed the
+     * same rows as that run.
+     *
+     * @param rows        number of file rows committed once the quantities are written
+     * @param end         byte offset in the file where the rows summed up end
+     * @param contentHash hash of the file up to {@code end}, or {@code null} without a checkpoint
+     * @param complete    whether the rows summed up reach the end of the file
+     * @return number of chunks committed by this run
+     */
+    public int importAggregated(Map<SocksKey, Integer> quantities, ImportCheckpoint checkpoint,
+                                long rows, long end, String contentHash, boolean complete) {
+        int chunkSize = socksProperties.getBatch().getChunkSize();
+        List<Map.Entry<SocksKey, Integer>> sorted = new ArrayList<>(quantities.entrySet());
+        sorted.sort(Map.Entry.comparingByKey());
+
+        if (sorted.isEmpty()) {
+            if (complete && checkpoint.isEnabled()) {
+                applySorted(sorted, () -> checkpoint.finishAggregate(rows, end, contentHash, true));
+            }
+            return 0;
+        }
+
+        int chunks = 0;
+        int skipped = checkpoint.getChunks();
+        for (int index = 0, from = 0; from < sorted.size(); index++, from += chunkSize) {
+            if (index < skipped) {
+                continue;
+            }
+            int to = Math.min(from + chunkSize, sorted.size());
+            boolean last = to == sorted.size();
+            long started = System.nanoTime();
+            applySorted(sorted.subList(from, to), () -> {
+                if (last) {
+                    checkpoint.finishAggregate(rows, end, contentHash, complete);
+                } else {
+                    checkpoint.advanceAggregate(end, contentHash);
+                }
+            });
+            chunks++;
+            log.debug("Committed aggregated batch chunk: chunk={}, keys={}, elapsedMillis={}",
+                    index + 1, to - from, (System.nanoTime() - started) / 1_000_000);
+        }
+        return chunks;
+    }
+
+    /**
+     * Writes the aggregated quantities of one chunk in a single transaction.
+     */
+    public void applyChunk(Map<SocksKey, Integer> chunk) {
+        applyChunk(chunk, () -> {
+        });
+    }
+
+    /**
+     * Writes the aggregated quantities of one chunk and runs {@code inTransaction} in the same transaction.
+     */
+    public void applyChunk(Map<SocksKey, Integer> chunk, Runnable inTransaction) {
+        List<Map.Entry<SocksKey, Integer>> quantities = new ArrayList<>(chunk.entrySet());
+        quantities.sort(Map.Entry.comparingByKey());
+        applySorted(quantities, inTransaction);
+    }
+
+    private void commitChunk(Map<SocksKey, Integer> chunk, int chunkRows, ImportCheckpoint checkpoint,
+                             long rows, long nextOffset, HashingReader hashing, boolean completed,
+                             BatchImportProgress progress) {
+        if (chunk.isEmpty() && !checkpoint.isEnabled()) {
+            return;
+        }
+        progress.rowsParsed(chunkRows);
+        long started = System.nanoTime();
+        String contentHash = hashing == null ? null : hashing.hashUpTo(nextOffset);
+        applyChunk(chunk, () -> checkpoint.advance(rows, nextOffset, contentHash, completed));
+        progress.rowsApplied(chunkRows);
+        log.debug("Committed batch chunk: rows={}, keys={}, throughRow={}, elapsedMillis={}",
+                chunkRows, chunk.size(), rows, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void applySorted(List<Map.Entry<SocksKey, Integer>> quantities, Runnable inTransaction) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!quantities.isEmpty()) {
+                socksBatchRepository.upsertQuantities(quantities);
+            }
+            inTransaction.run();
+            TransactionCallbacks.afterCommit(() -> quantities.forEach(entry ->
+                    inventoryIndex.rowPresent(entry.getKey().color(), entry.getKey().cottonPercentage())));
+            publishChanges(quantities);
+        });
+    }
+
+    /**
+     * The batch upsert doesn't return the new quantities, so they are read back, still inside the transaction,
+     * only while somebody is subscribed. Otherwise the feed only records that it missed the chunk.
+     */
+    private void publishChanges(List<Map.Entry<SocksKey, Integer>> quantities) {
+        if (quantities.isEmpty() || !changeFeed.isEnabled()) {
+            return;
+        }
+        if (!changeFeed.hasSubscribers()) {
+            changeFeed.skipAfterCommit();
+            return;
+        }
+        Map<SocksKey, Integer> current = socksBatchRepository.findQuantities(
+                quantities.stream().map(Map.Entry::getKey).toList());
+        for (Map.Entry<SocksKey, Integer> entry : quantities) {
+            changeFeed.publishAfterCommit("batch", entry.getKey(), entry.getValue(),
+                    current.getOrDefault(entry.getKey(), 0));
+        }
+    }
+}
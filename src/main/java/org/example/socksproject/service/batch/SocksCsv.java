@@ -0,0 +1,89 @@
+package org.example.socksproject.service.batch;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.example.socksproject.model.SocksColor;
+import org.example.socksproject.model.SocksKey;
+
+import java.util.Map;
+
+/**
+ * Layout and validation of the socks CSV files accepted by the batch upload.
+ */
+public final class SocksCsv {
+
+    public static final String[] HEADER = {"color", "cottonPercentage", "quantity"};
+
+    public static final CSVFormat FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader(HEADER)
+            .setSkipHeaderRecord(true)
+            .build();
+
+    /**
+     * Format of a file fragment that does not start with the header line.
+     */
+    public static final CSVFormat FRAGMENT_FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader(HEADER)
+            .build();
+
+    /**
+     * Format written by the inventory export. It starts with the header line, so exports can be uploaded again.
+     */
+    public static final CSVFormat EXPORT_FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader(HEADER)
+            .setRecordSeparator('\n')
+            .build();
+
+    private SocksCsv() {
+    }
+
+    /**
+     * Validates one record and normalizes its color.
+     *
+     * @param rowNumber 1-based number of the data row in the whole file, used in the error message
+     */
+    public static SocksCsvRow parse(CSVRecord record, long rowNumber) {
+        String color;
+        int cottonPercentage;
+        int quantity;
+        try {
+            color = SocksColor.normalize(record.get("color"));
+            cottonPercentage = Integer.parseInt(record.get("cottonPercentage"));
+            quantity = Integer.parseInt(record.get("quantity"));
+        } catch (IllegalArgumentException e) {
+            throw invalidData(record, rowNumber, e);
+        }
+
+        if (cottonPercentage < 0 || cottonPercentage > 100 || quantity < 1) {
+            throw invalidData(record, rowNumber, null);
+        }
+        return new SocksCsvRow(new SocksKey(color, cottonPercentage), quantity);
+    }
+
+    /**
+     * Adds the row's quantity to the sum of its key.
+     *
+     * @param rowNumber 1-based number of the data row in the whole file, used in the error message
+     * @throws IllegalArgumentException like an invalid row if the sum no longer fits; the sums are unchanged then
+     */
+    public static void add(Map<SocksKey, Integer> quantities, SocksCsvRow row, CSVRecord record, long rowNumber) {
+        try {
+            quantities.merge(row.key(), row.quantity(), Math::addExact);
+        } catch (ArithmeticException e) {
+            throw overflow(record, rowNumber, e);
+        }
+    }
+
+    /**
+     * Error of a valid row whose quantity makes the sum of its key overflow.
+     */
+    public static IllegalArgumentException overflow(CSVRecord record, long rowNumber, Exception cause) {
+        return new IllegalArgumentException("Invalid data in CSV file: row " + rowNumber + ": "
+                + String.join(",", record.values()) + ": total quantity is too large", cause);
+    }
+
+    private static IllegalArgumentException invalidData(CSVRecord record, long rowNumber, Exception cause) {
+        return new IllegalArgumentException("Invalid data in CSV file: row " + rowNumber + ": "
+                + String.join(",", record.values()), cause);
+    }
+}
@@ -0,0 +1,6 @@
+package org.example.socksproject.service.batch;
+
+import org.example.socksproject.model.SocksKey;
+
+public record SocksCsvRow(SocksKey key, int quantity) {
+}
@@ -0,0 +1,60 @@
+package org.example.socksproject.service.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 of the leading bytes of an upload, stored with its checkpoint so that a resubmission under the same
+ * upload id can be checked to start with the content that was committed.
+ */
+final class UploadDigest {
+
+    private static final long MAX_MAPPING = 1L << 30;
+
+    private final MessageDigest digest;
+    private long length;
+
+    UploadDigest() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Number of bytes hashed so far.
+     */
+    long length() {
+        return length;
+    }
+
+    void update(ByteBuffer bytes) {
+        length += bytes.remaining();
+        digest.update(bytes);
+    }
+
+    /**
+     * Hashes the file from where the digest got so far up to {@code end}.
+     */
+    void update(FileChannel channel, long end) throws IOException {
+        while (length < end) {
+            update(channel.map(FileChannel.MapMode.READ_ONLY, length, Math.min(end - length, MAX_MAPPING)));
+        }
+    }
+
+    /**
+     * Hash of the bytes so far; the digest can be updated further afterwards.
+     */
+    String hash() {
+        try {
+            return HexFormat.of().formatHex(((MessageDigest) digest.clone()).digest());
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
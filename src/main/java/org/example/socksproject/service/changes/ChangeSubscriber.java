@@ -0,0 +1,97 @@
+package org.example.socksproject.service.changes;
+
+import org.example.socksproject.model.SocksKey;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One open subscription. Changes wait in a buffer holding at most one entry per key: a newer change of a key
+ * is merged into the pending one, so a slow subscriber receives fewer, coalesced events instead of slowing
+ * down writers. If more keys are pending than the buffer allows, the buffer is dropped and the subscriber
+ * gets a reset event telling it to reload the inventory.
+ */
+final class ChangeSubscriber {
+
+    private final SseEmitter emitter;
+    private final Set<String> colors;
+    private final int bufferSize;
+
+    private LinkedHashMap<SocksKey, SocksChange> pending = new LinkedHashMap<>();
+    private long resetVersion = -1;
+    private boolean heartbeat;
+    private boolean scheduled;
+
+    ChangeSubscriber(SseEmitter emitter, Set<String> colors, int bufferSize) {
+        this.emitter = emitter;
+        this.colors = colors;
+        this.bufferSize = bufferSize;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    boolean accepts(SocksChange change) {
+        return colors.isEmpty() || colors.contains(change.color());
+    }
+
+    /**
+     * @return whether the caller has to schedule a drain
+     */
+    synchronized boolean offer(SocksChange change) {
+        SocksKey key = new SocksKey(change.color(), change.cottonPercentage());
+        SocksChange previous = pending.get(key);
+        if (previous != null) {
+            pending.put(key, previous.coalesce(change));
+        } else if (pending.size() >= bufferSize) {
+            pending.clear();
+            resetVersion = change.version();
+        } else {
+            pending.put(key, change);
+        }
+        return schedule();
+    }
+
+    synchronized boolean reset(long version) {
+        pending.clear();
+        resetVersion = version;
+        return schedule();
+    }
+
+    synchronized boolean heartbeat() {
+        heartbeat = true;
+        return schedule();
+    }
+
+    /**
+     * Takes everything pending, or marks the subscriber idle and returns {@code null} if nothing is.
+     */
+    synchronized Batch take() {
+        if (pending.isEmpty() && resetVersion < 0 && !heartbeat) {
+            scheduled = false;
+            return null;
+        }
+        Batch batch = new Batch(resetVersion, heartbeat, List.copyOf(pending.values()));
+        pending = new LinkedHashMap<>();
+        resetVersion = -1;
+        heartbeat = false;
+        return batch;
+    }
+
+    private boolean schedule() {
+        if (scheduled) {
+            return false;
+        }
+        scheduled = true;
+        return true;
+    }
+
+    /**
+     * @param resetVersion version the subscriber has to resynchronize at, or -1
+     */
+    record Batch(long resetVersion, boolean heartbeat, List<SocksChange> changes) {
+    }
+}
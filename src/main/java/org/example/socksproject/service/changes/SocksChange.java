@@ -0,0 +1,17 @@
+package org.example.socksproject.service.changes;
+
+/**
+ * A committed change of the quantity of one socks key, as published on the change feed.
+ *
+ * @param version  position of the change in the feed during this run, increasing with every change
+ * @param delta    change of the quantity; coalesced changes carry the sum of their deltas
+ * @param quantity quantity right after the change, or {@code null} in ledger mode, where only the delta is known
+ */
+public record SocksChange(long version, String operation, String color, int cottonPercentage, long delta,
+                          Integer quantity) {
+
+    SocksChange coalesce(SocksChange next) {
+        return new SocksChange(next.version, next.operation, color, cottonPercentage, delta + next.delta,
+                next.quantity);
+    }
+}
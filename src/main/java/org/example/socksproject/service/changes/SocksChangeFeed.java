@@ -0,0 +1,247 @@
+package org.example.socksproject.service.changes;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.service.support.TransactionCallbacks;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes committed quantity changes to server-sent event subscribers.
+ * <p>
+ * Writers publish after commit; publishing only numbers the change, appends it to a bounded history and
+ * hands it to the subscribers' buffers, so it never waits for a subscriber. A small sender pool writes the
+ * buffers to the connections. Every event id is the run epoch and the version of the change, so a
+ * reconnecting client resumes after the last event it saw through {@code Last-Event-ID}. A client that asks
+ * for a version older than the history or from an earlier run, or whose buffer overflowed, gets a
+ * {@code reset} event and should reload the quantities; since events carry the new quantity, applying an
+ * event twice is harmless, except in ledger mode (see below).
+ * <p>
+ * Changes are numbered when they are published, after commit, so two commits of one key may be published in
+ * either order. The writer reserves the order of its write while it still holds the row lock, and the feed
+ * remembers the latest write of every key, so a change published after a newer one of its key carries the
+ * newer quantity and subscribers never end on a stale one. The deltas still add up.
+ * <p>
+ * In ledger mode incomes append without locking the row, so writes of one key are not ordered and no writer
+ * knows the quantity at its own write. Changes then carry only their delta, without a quantity; clients apply
+ * the deltas, which add up in any order, and resume through {@code Last-Event-ID} so they see every event once.
+ */
+@Slf4j
+@Component
+public class SocksChangeFeed {
+
+    static final String CHANGE_EVENT = "change";
+    static final String RESET_EVENT = "reset";
+
+    private final SocksProperties.Changes settings;
+    private final boolean deltasOnly;
+    private final ExecutorService senders;
+    private final ArrayDeque<SocksChange> history = new ArrayDeque<>();
+    private final List<ChangeSubscriber> subscribers = new CopyOnWriteArrayList<>();
+    /**
+     * Order and quantity of the latest write of every key published so far.
+     */
+    private final Map<SocksKey, long[]> latest = new HashMap<>();
+    private final AtomicLong writes = new AtomicLong();
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private long version;
+
+    public SocksChangeFeed(SocksProperties socksProperties) {
+        this.settings = socksProperties.getChanges();
+        this.deltasOnly = socksProperties.getLedger().isEnabled();
+        this.senders = Executors.newFixedThreadPool(settings.getSenderThreads(),
+                new CustomizableThreadFactory("socks-changes-"));
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * Publishes the change once the surrounding transaction commits. Must be called after the write, while
+     * the transaction holds the lock of the row, which orders the writes of the key. In ledger mode the
+     * quantity is dropped, see the class comment.
+     */
+    public void publishAfterCommit(String operation, SocksKey key, long delta, int quantity) {
+        if (isEnabled()) {
+            long order = writes.incrementAndGet();
+            TransactionCallbacks.afterCommit(() -> publish(operation, key, delta, quantity, order));
+        }
+    }
+
+    /**
+     * Records once the surrounding transaction commits that its changes were not published, for writers that
+     * skip publishing while nobody listens. Clients resuming from before it are reset.
+     */
+    public void skipAfterCommit() {
+        if (isEnabled()) {
+            TransactionCallbacks.afterCommit(() -> {
+                synchronized (history) {
+                    version++;
+                    history.clear();
+                }
+            });
+        }
+    }
+
+    public void publish(String operation, SocksKey key, long delta, int quantity) {
+        publish(operation, key, delta, quantity, writes.incrementAndGet());
+    }
+
+    private void publish(String operation, SocksKey key, long delta, int quantity, long order) {
+        synchronized (history) {
+            Integer published = null;
+            if (!deltasOnly) {
+                long[] newest = latest.get(key);
+                if (newest == null || newest[0] < order) {
+                    latest.put(key, new long[]{order, quantity});
+                    published = quantity;
+                } else {
+                    published = (int) newest[1];
+                }
+            }
+            SocksChange change = new SocksChange(++version, operation, key.color(), key.cottonPercentage(),
+                    delta, published);
+            history.addLast(change);
+            if (history.size() > settings.getHistorySize()) {
+                history.removeFirst();
+            }
+            for (ChangeSubscriber subscriber : subscribers) {
+                if (subscriber.accepts(change) && subscriber.offer(change)) {
+                    senders.execute(() -> drain(subscriber));
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens a subscription for the given colors (all colors if empty).
+     *
+     * @param lastEventId id of the last event the client has seen, or {@code null} to receive new changes only
+     */
+    public SseEmitter subscribe(Collection<String> colors, String lastEventId) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Change feed is disabled");
+        }
+        SseEmitter emitter = createEmitter();
+        ChangeSubscriber subscriber = new ChangeSubscriber(emitter, Set.copyOf(colors),
+                settings.getSubscriberBufferSize());
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        Long since = lastEventId == null ? null : versionOf(lastEventId);
+        boolean schedule = false;
+        synchronized (history) {
+            if (lastEventId != null && since == null) {
+                schedule = subscriber.reset(version);
+            } else if (since != null) {
+                SocksChange oldest = history.peekFirst();
+                long oldestVersion = oldest == null ? version + 1 : oldest.version();
+                if (since < oldestVersion - 1 || since > version) {
+                    schedule = subscriber.reset(version);
+                } else {
+                    for (SocksChange change : history) {
+                        if (change.version() > since && subscriber.accepts(change)) {
+                            schedule |= subscriber.offer(change);
+                        }
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        if (schedule) {
+            senders.execute(() -> drain(subscriber));
+        }
+        log.info("Change feed subscribed: colors={}, lastEventId={}, subscribers={}", colors, lastEventId,
+                subscribers.size());
+        return emitter;
+    }
+
+    String eventId(long version) {
+        return epoch + "-" + version;
+    }
+
+    /**
+     * @return the version of an event id of this run, or {@code null} for ids of other runs and malformed ones
+     */
+    private Long versionOf(String eventId) {
+        String prefix = epoch + "-";
+        if (!eventId.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(eventId.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(settings.getTimeout().toMillis());
+    }
+
+    @Scheduled(fixedDelayString = "${socks.changes.heartbeat-interval:PT15S}")
+    public void sendHeartbeats() {
+        for (ChangeSubscriber subscriber : subscribers) {
+            if (subscriber.heartbeat()) {
+                senders.execute(() -> drain(subscriber));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter().complete());
+        senders.shutdown();
+    }
+
+    private void drain(ChangeSubscriber subscriber) {
+        SseEmitter emitter = subscriber.emitter();
+        try {
+            for (ChangeSubscriber.Batch batch = subscriber.take(); batch != null; batch = subscriber.take()) {
+                if (batch.resetVersion() >= 0) {
+                    emitter.send(SseEmitter.event()
+                            .id(eventId(batch.resetVersion()))
+                            .name(RESET_EVENT)
+                            .data(batch.resetVersion()));
+                }
+                for (SocksChange change : batch.changes()) {
+                    emitter.send(SseEmitter.event()
+                            .id(eventId(change.version()))
+                            .name(CHANGE_EVENT)
+                            .data(change, MediaType.APPLICATION_JSON));
+                }
+                if (batch.heartbeat() && batch.changes().isEmpty() && batch.resetVersion() < 0) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Change feed subscriber disconnected: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            emitter.completeWithError(e);
+        }
+    }
+}
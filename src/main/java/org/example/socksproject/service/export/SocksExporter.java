@@ -0,0 +1,96 @@
+package org.example.socksproject.service.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVPrinter;
+import org.example.socksproject.repository.SocksRepository;
+import org.example.socksproject.repository.projection.SocksQuantity;
+import org.example.socksproject.service.batch.SocksCsv;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole inventory to a stream while reading it from a database cursor, so memory use doesn't
+ * depend on the table size.
+ * <p>
+ * CSV uses the upload columns and can be uploaded again. Rows with no socks left are not written to CSV,
+ * because the upload rejects a zero quantity and they would add nothing anyway.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SocksExporter {
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SocksRepository socksRepository;
+    private final ObjectMapper objectMapper;
+
+    public static boolean supports(String format) {
+        return CSV.equals(format) || NDJSON.equals(format);
+    }
+
+    /**
+     * @return number of rows written
+     */
+    @Transactional(readOnly = true)
+    public long export(String format, OutputStream outputStream) throws IOException {
+        if (!supports(format)) {
+            throw new IllegalArgumentException("Invalid format");
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        long rows;
+        try (Stream<SocksQuantity> socks = socksRepository.streamAll()) {
+            rows = CSV.equals(format) ? writeCsv(socks.iterator(), writer) : writeNdjson(socks.iterator(), writer);
+        }
+        writer.flush();
+        log.info("Inventory exported: format={}, rows={}", format, rows);
+        return rows;
+    }
+
+    private long writeCsv(Iterator<SocksQuantity> socks, Writer writer) throws IOException {
+        long rows = 0;
+        CSVPrinter printer = new CSVPrinter(writer, SocksCsv.EXPORT_FORMAT);
+        while (socks.hasNext()) {
+            SocksQuantity row = socks.next();
+            if (row.getQuantity() > 0) {
+                printer.printRecord(row.getColor(), row.getCottonPercentage(), row.getQuantity());
+                rows++;
+            }
+        }
+        printer.flush();
+        return rows;
+    }
+
+    private long writeNdjson(Iterator<SocksQuantity> socks, Writer writer) throws IOException {
+        long rows = 0;
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        while (socks.hasNext()) {
+            SocksQuantity row = socks.next();
+            generator.writeStartObject();
+            generator.writeStringField("color", row.getColor());
+            generator.writeNumberField("cottonPercentage", row.getCottonPercentage());
+            generator.writeNumberField("quantity", row.getQuantity());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            rows++;
+        }
+        generator.flush();
+        return rows;
+    }
+}
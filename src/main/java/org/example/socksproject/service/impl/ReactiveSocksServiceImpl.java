@@ -0,0 +1,165 @@
+package org.example.socksproject.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.metrics.SocksMetrics;
+import org.example.socksproject.model.SocksColor;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.repository.ReactiveSocksRepository;
+import org.example.socksproject.service.ReactiveSocksService;
+import org.example.socksproject.service.batch.BatchImportResult;
+import org.example.socksproject.service.batch.SocksCsv;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Writes go straight to the socks table with single statements: an income is an upsert, an outcome a
+ * conditional decrement. The in-memory inventory index, the change feed, the ledger and the write-ahead log
+ * are not involved, so the reactive profile turns the index off and refuses to start with the ledger or the
+ * write-ahead log enabled.
+ */
+@Slf4j
+@Service
+@Profile("reactive")
+public class ReactiveSocksServiceImpl implements ReactiveSocksService {
+
+    private final ReactiveSocksRepository socksRepository;
+    private final SocksMetrics socksMetrics;
+    private final int chunkSize;
+
+    public ReactiveSocksServiceImpl(ReactiveSocksRepository socksRepository, SocksMetrics socksMetrics,
+                                    SocksProperties socksProperties) {
+        if (socksProperties.getLedger().isEnabled() || socksProperties.getWal().isEnabled()) {
+            throw new IllegalStateException("The reactive profile supports neither socks.ledger nor socks.wal");
+        }
+        this.socksRepository = socksRepository;
+        this.socksMetrics = socksMetrics;
+        this.chunkSize = socksProperties.getBatch().getChunkSize();
+    }
+
+    @Override
+    public Mono<Void> incomeSocks(SocksDto socksDto) {
+        return Mono.defer(() -> {
+            log.debug("Processing income for socks: {}", socksDto);
+            SocksKey key = new SocksKey(socksDto.getColor(), socksDto.getCottonPercentage());
+            return socksRepository.colorId(key.color())
+                    .flatMap(colorId -> socksRepository.upsertQuantity(colorId, key.cottonPercentage(),
+                            socksDto.getQuantity()))
+                    .doOnNext(quantity -> socksMetrics.quantityMoved("in", key.color(), socksDto.getQuantity()))
+                    .then();
+        });
+    }
+
+    @Override
+    public Mono<Void> outcomeSocks(SocksDto socksDto) {
+        return Mono.defer(() -> {
+            log.debug("Processing outcome for socks: {}", socksDto);
+            SocksKey key = new SocksKey(socksDto.getColor(), socksDto.getCottonPercentage());
+            int quantity = socksDto.getQuantity();
+            return socksRepository.findColorId(key.color())
+                    .flatMap(colorId -> socksRepository.decrementQuantity(colorId, key.cottonPercentage(), quantity)
+                            .switchIfEmpty(socksRepository.exists(colorId, key.cottonPercentage())
+                                    .flatMap(exists -> rejectOutcome(key, quantity, exists))))
+                    .switchIfEmpty(Mono.defer(() -> rejectOutcome(key, quantity, false)))
+                    .doOnNext(remaining -> socksMetrics.quantityMoved("out", key.color(), quantity))
+                    .then();
+        });
+    }
+
+    @Override
+    public Mono<Integer> getSocksCount(String requestedColor, String comparison, int cottonPercentage) {
+        return Mono.defer(() -> {
+            String color = SocksColor.normalize(requestedColor);
+            return switch (comparison) {
+                case "moreThan" -> count(color, colorId -> socksRepository.countGreaterThan(colorId, cottonPercentage));
+                case "lessThan" -> count(color, colorId -> socksRepository.countLessThan(colorId, cottonPercentage));
+                case "equal" -> count(color, colorId -> socksRepository.countEquals(colorId, cottonPercentage));
+                default -> {
+                    log.warn("Invalid comparison operator: {}", comparison);
+                    yield Mono.error(new IllegalArgumentException("Invalid comparison"));
+                }
+            };
+        });
+    }
+
+    @Override
+    public Mono<BatchImportResult> uploadBatch(Flux<String> lines) {
+        return Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            long[] rows = {0};
+            return lines
+                    .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("File is empty")))
+                    .skip(1)
+                    .filter(line -> !line.isBlank())
+                    .buffer(chunkSize)
+                    // One chunk at a time: the next lines are only requested once the previous chunk is written.
+                    .concatMap(chunk -> {
+                        Map<SocksKey, Integer> quantities = parseChunk(chunk, rows[0]);
+                        rows[0] += chunk.size();
+                        return applyChunk(quantities);
+                    }, 0)
+                    .count()
+                    .map(chunks -> new BatchImportResult(rows[0], chunks.intValue()))
+                    .doOnNext(result -> {
+                        socksMetrics.batchImported(result.rows(), System.nanoTime() - startedAt);
+                        log.info("Batch imported: rows={}, chunks={}", result.rows(), result.chunks());
+                    })
+                    .doOnError(IllegalArgumentException.class, e -> socksMetrics.batchRowError());
+        });
+    }
+
+    private Mono<Integer> count(String color, Function<Integer, Mono<Integer>> query) {
+        // A color missing from the dictionary has no rows.
+        return socksRepository.findColorId(color).flatMap(query).defaultIfEmpty(0);
+    }
+
+    private Mono<Integer> rejectOutcome(SocksKey key, int quantity, boolean exists) {
+        if (!exists) {
+            log.warn("No socks found for color={} and cottonPercentage={}", key.color(), key.cottonPercentage());
+            socksMetrics.rejected("outcome", "not_found");
+            return Mono.error(new IllegalArgumentException("No socks with parameters"));
+        }
+        log.warn("Not enough socks: requested={}, color={}, cottonPercentage={}",
+                quantity, key.color(), key.cottonPercentage());
+        socksMetrics.rejected("outcome", "insufficient");
+        return Mono.error(new IllegalArgumentException("Not enough socks"));
+    }
+
+    /**
+     * @param rowsBefore data rows of the file before the chunk, for the row numbers of error messages
+     */
+    private static Map<SocksKey, Integer> parseChunk(List<String> lines, long rowsBefore) {
+        Map<SocksKey, Integer> quantities = new HashMap<>();
+        try (CSVParser parser = SocksCsv.FRAGMENT_FORMAT.parse(new StringReader(String.join("\n", lines)))) {
+            long rowNumber = rowsBefore;
+            for (CSVRecord record : parser) {
+                rowNumber++;
+                SocksCsv.add(quantities, SocksCsv.parse(record, rowNumber), record, rowNumber);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return quantities;
+    }
+
+    private Mono<Long> applyChunk(Map<SocksKey, Integer> chunk) {
+        List<Map.Entry<SocksKey, Integer>> quantities = new ArrayList<>(chunk.entrySet());
+        quantities.sort(Map.Entry.comparingByKey());
+        return socksRepository.colorIds(chunk.keySet().stream().map(SocksKey::color).toList())
+                .flatMap(colorIds -> socksRepository.upsertQuantities(quantities, colorIds));
+    }
+}
@@ -1,120 +1,291 @@
 package org.example.socksproject.service.impl;
 
-import jakarta.persistence.OptimisticLockException;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVRecord;
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.dto.BatchJobStatusDto;
 import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.dto.SocksMovementDto;
+import org.example.socksproject.dto.SocksMovementResultDto;
+import org.example.socksproject.dto.SocksReportDto;
+import org.example.socksproject.metrics.SocksMetrics;
 import org.example.socksproject.model.Socks;
+import org.example.socksproject.model.SocksColor;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.repository.ColorDictionary;
 import org.example.socksproject.repository.SocksRepository;
 import org.example.socksproject.service.SocksService;
+import org.example.socksproject.service.batch.BatchImportJob;
+import org.example.socksproject.service.batch.BatchImportJobService;
+import org.example.socksproject.service.batch.BatchImportProgress;
+import org.example.socksproject.service.batch.BatchImportResult;
+import org.example.socksproject.service.batch.ImportCheckpoint;
+import org.example.socksproject.service.batch.ImportCheckpointService;
+import org.example.socksproject.service.batch.ParallelCsvImporter;
+import org.example.socksproject.service.batch.SocksBatchImporter;
+import org.example.socksproject.service.changes.SocksChangeFeed;
+import org.example.socksproject.service.export.SocksExporter;
+import org.example.socksproject.service.inventory.SocksInventoryIndex;
+import org.example.socksproject.service.ledger.SocksLedger;
+import org.example.socksproject.service.ledger.SocksLedgerCompactor;
+import org.example.socksproject.service.report.SocksReporter;
+import org.example.socksproject.service.support.RetryOnConflict;
+import org.example.socksproject.service.support.TransactionCallbacks;
+import org.example.socksproject.service.wal.IncomeWriteAheadLog;
+import org.example.socksproject.service.write.IncomeWriteCombiner;
+import org.example.socksproject.service.write.SocksIncomeWriter;
+import org.example.socksproject.service.write.SocksMovementWriter;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SocksServiceImpl implements SocksService {
 
+    /**
+     * Distinguishes count versions of this run from those handed out before a restart.
+     */
+    private static final String RUN_ID = Long.toString(System.currentTimeMillis(), 36);
+
     private final SocksRepository socksRepository;
+    private final ColorDictionary colorDictionary;
+    private final SocksInventoryIndex inventoryIndex;
+    private final SocksBatchImporter batchImporter;
+    private final ParallelCsvImporter parallelCsvImporter;
+    private final BatchImportJobService batchImportJobService;
+    private final ImportCheckpointService checkpointService;
+    private final SocksIncomeWriter incomeWriter;
+    private final IncomeWriteCombiner writeCombiner;
+    private final SocksMovementWriter movementWriter;
+    private final SocksProperties socksProperties;
+    private final SocksMetrics socksMetrics;
+    private final SocksReporter reporter;
+    private final SocksExporter exporter;
+    private final SocksChangeFeed changeFeed;
+    private final SocksLedger ledger;
+    private final SocksLedgerCompactor ledgerCompactor;
+    private final IncomeWriteAheadLog writeAheadLog;
+    private final TransactionTemplate transactionTemplate;
 
+    /**
+     * Not transactional itself: the income writer opens the transaction, so that incomes waiting to be
+     * combined don't hold a database connection. With the write-ahead log the income is only appended
+     * locally and written to the database later.
+     */
     @Override
-    @Transactional
+    @Timed(value = "socks.service", extraTags = {"operation", "income"}, histogram = true)
+    @RetryOnConflict("income")
     public void incomeSocks(SocksDto socksDto) {
-        log.info("Processing income for socks: {}", socksDto);
-        try {
-            Optional<Socks> existingSocks = socksRepository.findByColorAndCottonPercentage(
-                    socksDto.getColor(), socksDto.getCottonPercentage());
-
-            if (existingSocks.isPresent()) {
-                Socks socks = existingSocks.get();
-                log.info("Existing socks found: {}", socks);
-                socks.setQuantity(socks.getQuantity() + socksDto.getQuantity());
-                socksRepository.save(socks);
-                log.info("Socks updated successfully: {}", socks);
-            } else {
-                Socks newSocks = new Socks(null, socksDto.getColor(), socksDto.getCottonPercentage(),
-                        socksDto.getQuantity());
-                socksRepository.save(newSocks);
-                log.info("New socks added successfully: {}", newSocks);
-            }
-        } catch (OptimisticLockException e) {
-            log.error("Optimistic lock conflict while processing income for socks: {}", socksDto, e);
-            throw new IllegalStateException("Conflict detected: another transaction updated the data.", e);
+        log.debug("Processing income for socks: {}", socksDto);
+
+        SocksKey key = new SocksKey(socksDto.getColor(), socksDto.getCottonPercentage());
+        if (writeAheadLog.isEnabled()) {
+            writeAheadLog.append(key, socksDto.getQuantity());
+        } else if (writeCombiner.isEnabled()) {
+            writeCombiner.income(key, socksDto.getQuantity());
+        } else {
+            incomeWriter.apply(key, socksDto.getQuantity());
         }
+        TransactionCallbacks.afterCommit(() -> socksMetrics.quantityMoved("in", key.color(), socksDto.getQuantity()));
     }
 
     @Override
+    @Timed(value = "socks.service", extraTags = {"operation", "outcome"}, histogram = true)
+    @RetryOnConflict("outcome")
     @Transactional
     public void outcomeSocks(SocksDto socksDto) {
-        log.info("Processing outcome for socks: {}", socksDto);
-        try {
-            Socks existingSocks = socksRepository.findByColorAndCottonPercentage(
-                            socksDto.getColor(), socksDto.getCottonPercentage())
-                    .orElseThrow(() -> {
-                        log.warn("No socks found for color={} and cottonPercentage={}",
-                                socksDto.getColor(), socksDto.getCottonPercentage());
-                        return new IllegalArgumentException("No socks with parameters");
-                    });
-
-            log.info("Existing socks found for outcome: {}", existingSocks);
-
-            if (socksDto.getQuantity() > existingSocks.getQuantity()) {
-                log.warn("Not enough socks: requested={}, available={}",
-                        socksDto.getQuantity(), existingSocks.getQuantity());
-                throw new IllegalArgumentException("Not enough socks");
+        log.debug("Processing outcome for socks: {}", socksDto);
+
+        SocksKey key = new SocksKey(socksDto.getColor(), socksDto.getCottonPercentage());
+        OptionalInt colorId = colorDictionary.find(key.color());
+        Optional<Integer> remaining;
+        if (colorId.isEmpty()) {
+            remaining = Optional.empty();
+        } else if (ledger.isEnabled()) {
+            remaining = ledger.outcome(key, socksDto.getQuantity());
+        } else {
+            remaining = socksRepository.decrementQuantity(colorId.getAsInt(), key.cottonPercentage(),
+                    socksDto.getQuantity());
+        }
+
+        if (remaining.isEmpty()) {
+            if (colorId.isEmpty()
+                    || !socksRepository.existsByColorAndCottonPercentage(key.color(), key.cottonPercentage())) {
+                log.warn("No socks found for color={} and cottonPercentage={}",
+                        key.color(), key.cottonPercentage());
+                socksMetrics.rejected("outcome", "not_found");
+                throw new IllegalArgumentException("No socks with parameters");
             }
+            log.warn("Not enough socks: requested={}, color={}, cottonPercentage={}",
+                    socksDto.getQuantity(), key.color(), key.cottonPercentage());
+            socksMetrics.rejected("outcome", "insufficient");
+            throw new IllegalArgumentException("Not enough socks");
+        }
+
+        changeFeed.publishAfterCommit("outcome", key, -socksDto.getQuantity(), remaining.get());
+        TransactionCallbacks.afterCommit(() -> socksMetrics.quantityMoved("out", key.color(), socksDto.getQuantity()));
+        log.debug("Socks updated successfully after outcome: {}", socksDto);
+    }
+
+    @Override
+    @Timed(value = "socks.service", extraTags = {"operation", "movements"}, histogram = true)
+    @RetryOnConflict("movements")
+    public List<SocksMovementResultDto> applyMovements(List<SocksMovementDto> movements) {
+        log.debug("Processing movements: count={}", movements.size());
 
-            existingSocks.setQuantity(existingSocks.getQuantity() - socksDto.getQuantity());
-            socksRepository.save(existingSocks);
-            log.info("Socks updated successfully after outcome: {}", existingSocks);
-        } catch (OptimisticLockException e) {
-            log.error("Optimistic lock conflict while processing outcome for socks: {}", socksDto, e);
-            throw new IllegalStateException("Conflict detected: another transaction updated the data.", e);
+        if (movements.isEmpty()) {
+            throw new IllegalArgumentException("No movements");
         }
+        int maxBatchSize = socksProperties.getMovements().getMaxBatchSize();
+        if (movements.size() > maxBatchSize) {
+            log.warn("Too many movements: count={}, max={}", movements.size(), maxBatchSize);
+            throw new IllegalArgumentException("Too many movements: at most " + maxBatchSize + " per request");
+        }
+
+        List<SocksMovementResultDto> results;
+        try {
+            results = movementWriter.apply(movements);
+        } catch (IllegalArgumentException e) {
+            socksMetrics.rejected("movements", "insufficient");
+            throw e;
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            for (SocksMovementDto movement : movements) {
+                socksMetrics.quantityMoved(movement.getQuantity() > 0 ? "in" : "out",
+                        SocksColor.normalize(movement.getColor()),
+                        Math.abs(movement.getQuantity()));
+            }
+        });
+        return results;
     }
 
+    /**
+     * Read-only, so that with a replica it is answered there when the inventory index is not ready.
+     */
     @Override
-    public int getSocksCount(String color, String comparison, int cottonPercentage) {
-        log.info("Fetching socks count: color={}, comparison={}, cottonPercentage={}", color, comparison, cottonPercentage);
+    @Timed(value = "socks.service", extraTags = {"operation", "count"}, histogram = true)
+    @Transactional(readOnly = true)
+    public int getSocksCount(String requestedColor, String comparison, int cottonPercentage) {
+        log.debug("Fetching socks count: color={}, comparison={}, cottonPercentage={}",
+                requestedColor, comparison, cottonPercentage);
 
+        String color = SocksColor.normalize(requestedColor);
+        // A color missing from the dictionary has no rows, which the index answers with 0 even when not loaded.
+        boolean fromIndex = inventoryIndex.isReady() || colorDictionary.find(color).isEmpty();
         int count = switch (comparison) {
-            case "moreThan" -> socksRepository.countSocksByColorAndCottonPercentageGreaterThan(color, cottonPercentage);
-            case "lessThan" -> socksRepository.countSocksByColorAndCottonPercentageLessThan(color, cottonPercentage);
-            case "equal" -> socksRepository.countSocksByColorAndCottonPercentageEquals(color, cottonPercentage);
+            case "moreThan" -> fromIndex
+                    ? inventoryIndex.countGreaterThan(color, cottonPercentage)
+                    : socksRepository.countSocksByColorAndCottonPercentageGreaterThan(color, cottonPercentage);
+            case "lessThan" -> fromIndex
+                    ? inventoryIndex.countLessThan(color, cottonPercentage)
+                    : socksRepository.countSocksByColorAndCottonPercentageLessThan(color, cottonPercentage);
+            case "equal" -> fromIndex
+                    ? inventoryIndex.countEquals(color, cottonPercentage)
+                    : socksRepository.countSocksByColorAndCottonPercentageEquals(color, cottonPercentage);
             default -> {
                 log.warn("Invalid comparison operator: {}", comparison);
                 throw new IllegalArgumentException("Invalid comparison");
             }
         };
 
-        log.info("Socks count: {}", count);
+        log.debug("Socks count: {}", count);
         return count;
     }
 
     @Override
+    public Optional<String> getCountVersion(String color) {
+        SocksProperties.Etag etag = socksProperties.getEtag();
+        if (!etag.isEnabled()) {
+            return Optional.empty();
+        }
+        long version = etag.isPerColor()
+                ? inventoryIndex.version(SocksColor.normalize(color))
+                : inventoryIndex.version();
+        return Optional.of(RUN_ID + "-" + version);
+    }
+
+    @Override
+    @Timed(value = "socks.service", extraTags = {"operation", "report"}, histogram = true)
+    public SocksReportDto getReport(String groupBy, List<String> colors, int cottonFrom, int cottonTo,
+                                    int bucketSize) {
+        log.debug("Building socks report: groupBy={}, colors={}, cottonFrom={}, cottonTo={}, bucketSize={}",
+                groupBy, colors, cottonFrom, cottonTo, bucketSize);
+
+        SocksReportDto report = readCompacted(() -> reporter.report(groupBy, colors, cottonFrom, cottonTo, bucketSize));
+
+        log.debug("Socks report built: rows={}, totalQuantity={}", report.getRows().size(), report.getTotalQuantity());
+        return report;
+    }
+
+    @Override
+    @Timed(value = "socks.service", extraTags = {"operation", "update"}, histogram = true)
+    @RetryOnConflict("update")
     @Transactional
     public void updateSocks(Long id, SocksDto socksDto) {
         Socks findSocks = socksRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Socks with id: " + id + " not found"));
 
-        findSocks.setColor(socksDto.getColor());
+        SocksKey oldKey = new SocksKey(findSocks.getColor(), findSocks.getCottonPercentage());
+        SocksKey newKey = new SocksKey(socksDto.getColor(), socksDto.getCottonPercentage());
+        // In ledger mode the balance also includes the tail not compacted into the row yet.
+        int oldQuantity = ledger.isEnabled() ? ledger.supersede(oldKey) : findSocks.getQuantity();
+
+        findSocks.setColor(newKey.color());
         findSocks.setQuantity(socksDto.getQuantity());
-        findSocks.setCottonPercentage(socksDto.getCottonPercentage());
+        findSocks.setCottonPercentage(newKey.cottonPercentage());
+        // Flush so a lost optimistic-lock race fails here rather than at commit time.
+        socksRepository.flush();
+        TransactionCallbacks.afterCommit(() -> inventoryIndex.rowMoved(oldKey.color(), oldKey.cottonPercentage(),
+                newKey.color(), newKey.cottonPercentage()));
+        publishUpdate(oldKey, oldQuantity, newKey, socksDto.getQuantity());
 
-        log.info("Socks updated successfully: {}", findSocks);
+        log.debug("Socks updated: id={}, color={}, cottonPercentage={}, quantity={}",
+                id, newKey.color(), newKey.cottonPercentage(), socksDto.getQuantity());
     }
 
     @Override
-    public void uploadFile(MultipartFile file) {
+    public SseEmitter subscribeToChanges(List<String> colors, String lastEventId) {
+        return changeFeed.subscribe(colors == null
+                ? List.of()
+                : colors.stream().map(SocksColor::normalize).toList(), lastEventId);
+    }
+
+    @Override
+    @Timed(value = "socks.service", extraTags = {"operation", "export"}, histogram = true)
+    public void exportInventory(String format, OutputStream outputStream) throws IOException {
+        log.debug("Exporting inventory: format={}", format);
+        try {
+            readCompacted(() -> {
+                try {
+                    exporter.export(format, outputStream);
+                    return null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    @Timed(value = "socks.service", extraTags = {"operation", "upload"}, histogram = true)
+    public boolean uploadFile(MultipartFile file, String uploadId) {
         log.info("Uploading file: {}", file.getOriginalFilename());
 
         if (file.isEmpty()) {
@@ -122,50 +293,87 @@ public class SocksServiceImpl implements SocksService {
             throw new IllegalArgumentException("File is empty");
         }
 
-        try (InputStream inputStream = file.getInputStream();
-             Reader reader = new InputStreamReader(inputStream)) {
-
-            Iterable<CSVRecord> records = CSVFormat.DEFAULT
-                    .withHeader("color", "cottonPercentage", "quantity")
-                    .withSkipHeaderRecord()
-                    .parse(reader);
-
-            for (CSVRecord record : records) {
-                log.debug("Processing record: {}", record);
-                processRecord(record);
+        long startedAt = System.nanoTime();
+        try {
+            BatchImportResult result = importBatch(file, uploadId);
+            if (result.skipped()) {
+                log.info("File skipped, upload was already imported: {}, uploadId={}",
+                        file.getOriginalFilename(), uploadId);
+                return false;
             }
-
-            log.info("File processed successfully: {}", file.getOriginalFilename());
-
+            socksMetrics.batchImported(result.rows(), System.nanoTime() - startedAt);
+            log.info("File processed successfully: {}, rows={}, chunks={}",
+                    file.getOriginalFilename(), result.rows(), result.chunks());
+            return true;
+        } catch (IllegalArgumentException e) {
+            socksMetrics.batchRowError();
+            throw e;
         } catch (IOException e) {
             log.error("Failed to process file: {}", file.getOriginalFilename(), e);
             throw new RuntimeException("Failed to process file", e);
         }
     }
 
-    private void processRecord(CSVRecord record) {
-        log.debug("Processing record: {}", record);
+    @Override
+    @Timed(value = "socks.service", extraTags = {"operation", "upload_async"}, histogram = true)
+    public UUID uploadFileAsync(MultipartFile file, String uploadId) {
+        log.info("Submitting file upload job: {}", file.getOriginalFilename());
 
-        String color = record.get("color");
-        int cottonPercentage = Integer.parseInt(record.get("cottonPercentage"));
-        int quantity = Integer.parseInt(record.get("quantity"));
+        if (file.isEmpty()) {
+            log.warn("File is empty: {}", file.getOriginalFilename());
+            throw new IllegalArgumentException("File is empty");
+        }
 
-        if (cottonPercentage < 0 || cottonPercentage > 100 || quantity < 1) {
-            log.warn("Invalid data in CSV record: {}", record);
-            throw new IllegalArgumentException("Invalid data in CSV file: " + record);
+        try {
+            return batchImportJobService.submit(file, uploadId).getId();
+        } catch (IOException e) {
+            log.error("Failed to spool file: {}", file.getOriginalFilename(), e);
+            throw new RuntimeException("Failed to process file", e);
         }
+    }
 
-        Optional<Socks> existingSocks = socksRepository.findByColorAndCottonPercentage(color, cottonPercentage);
+    @Override
+    @Timed(value = "socks.service", extraTags = {"operation", "upload_job"}, histogram = true)
+    public BatchJobStatusDto getUploadJob(UUID jobId) {
+        return batchImportJobService.find(jobId)
+                .map(BatchImportJob::toDto)
+                .orElseThrow(() -> new IllegalArgumentException("Upload job with id: " + jobId + " not found"));
+    }
 
-        if (existingSocks.isPresent()) {
-            Socks socks = existingSocks.get();
-            socks.setQuantity(socks.getQuantity() + quantity);
-            socksRepository.save(socks);
-            log.debug("Updated socks: {}", socks);
+    /**
+     * An update that changes the key empties the old key on the feed and fills the new one.
+     */
+    private void publishUpdate(SocksKey oldKey, int oldQuantity, SocksKey newKey, int newQuantity) {
+        if (oldKey.equals(newKey)) {
+            changeFeed.publishAfterCommit("update", newKey, (long) newQuantity - oldQuantity, newQuantity);
         } else {
-            Socks newSocks = new Socks(null, color, cottonPercentage, quantity);
-            socksRepository.save(newSocks);
-            log.debug("Added new socks: {}", newSocks);
+            changeFeed.publishAfterCommit("update", oldKey, -oldQuantity, 0);
+            changeFeed.publishAfterCommit("update", newKey, newQuantity, newQuantity);
+        }
+    }
+
+    /**
+     * Runs a read of the socks table. In ledger mode the pending tail is compacted first and the read runs in a
+     * read-write transaction, which takes its connection from the primary: a replica may not have the compaction
+     * yet, and would count the folded entries neither in the table nor in the tail.
+     */
+    private <T> T readCompacted(Supplier<T> read) {
+        if (!ledger.isEnabled()) {
+            return read.get();
+        }
+        ledgerCompactor.compactPending();
+        return transactionTemplate.execute(status -> read.get());
+    }
+
+    private BatchImportResult importBatch(MultipartFile file, String uploadId) throws IOException {
+        if (parallelCsvImporter.supports(file.getSize())) {
+            return parallelCsvImporter.importFile(file, uploadId);
+        }
+        ImportCheckpoint checkpoint = uploadId == null
+                ? ImportCheckpoint.disabled()
+                : checkpointService.open(uploadId, ImportCheckpointService.SEQUENTIAL);
+        try (InputStream inputStream = file.getInputStream()) {
+            return batchImporter.importCsv(inputStream, BatchImportProgress.NONE, checkpoint);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,273 @@
+package org.example.socksproject.service.inventory;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.repository.SocksRepository;
+import org.example.socksproject.repository.projection.SocksKeyCount;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-process copy of the socks row counts used to answer count queries without a database round trip.
+ * <p>
+ * For every color the index keeps one bucket per cotton percentage (0..100) and the prefix sums over
+ * those buckets, so {@code moreThan}, {@code lessThan} and {@code equal} are two array reads.
+ * The index is rebuilt from the socks table on startup and kept current by the service after each commit.
+ * A periodic consistency check rebuilds it if it has drifted from the table (for example because of
+ * writes made by another application instance).
+ * <p>
+ * Every change also stamps the color with a new version, taken from one counter shared by all colors, so a
+ * version seen by a client is never reused for other counts while the application runs.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SocksInventoryIndex {
+
+    static final int BUCKETS = 101;
+
+    private static final int REBUILD_ATTEMPTS = 3;
+
+    private final SocksRepository socksRepository;
+    private final SocksProperties socksProperties;
+
+    private final AtomicLong modifications = new AtomicLong();
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    private volatile Map<String, ColorBuckets> colors = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Version of the counts of the color; 0 while the color has no rows.
+     */
+    public long version(String color) {
+        ColorBuckets buckets = colors.get(color);
+        return buckets == null ? 0 : buckets.version;
+    }
+
+    /**
+     * Version of the counts of all colors.
+     */
+    public long version() {
+        return modifications.get();
+    }
+
+    public int countGreaterThan(String color, int cottonPercentage) {
+        ColorBuckets buckets = colors.get(color);
+        if (buckets == null) {
+            return 0;
+        }
+        int[] prefix = buckets.prefix;
+        int from = cottonPercentage >= BUCKETS - 1 ? BUCKETS : Math.max(cottonPercentage + 1, 0);
+        return prefix[BUCKETS] - prefix[from];
+    }
+
+    public int countLessThan(String color, int cottonPercentage) {
+        ColorBuckets buckets = colors.get(color);
+        if (buckets == null) {
+            return 0;
+        }
+        int to = cottonPercentage <= 0 ? 0 : Math.min(cottonPercentage, BUCKETS);
+        return buckets.prefix[to];
+    }
+
+    public int countEquals(String color, int cottonPercentage) {
+        ColorBuckets buckets = colors.get(color);
+        if (buckets == null || cottonPercentage < 0 || cottonPercentage >= BUCKETS) {
+            return 0;
+        }
+        return buckets.count(cottonPercentage);
+    }
+
+    public void rowAdded(String color, int cottonPercentage) {
+        apply(color, buckets -> buckets.add(cottonPercentage, 1));
+    }
+
+    public void rowRemoved(String color, int cottonPercentage) {
+        apply(color, buckets -> buckets.add(cottonPercentage, -1));
+    }
+
+    /**
+     * Records that a row exists for the key, for writers that upsert without knowing whether a row was created.
+     */
+    public void rowPresent(String color, int cottonPercentage) {
+        apply(color, buckets -> buckets.ensurePresent(cottonPercentage));
+    }
+
+    public void rowMoved(String oldColor, int oldCottonPercentage, String newColor, int newCottonPercentage) {
+        if (oldColor.equals(newColor) && oldCottonPercentage == newCottonPercentage) {
+            return;
+        }
+        rowRemoved(oldColor, oldCottonPercentage);
+        rowAdded(newColor, newCottonPercentage);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!socksProperties.getInventoryIndex().isEnabled()) {
+            log.info("Inventory index is disabled, count queries will hit the database");
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Failed to build inventory index, count queries will hit the database", e);
+        }
+    }
+
+    /**
+     * Reloads the index from the socks table. Writes that commit while the table is being read make the
+     * loaded snapshot stale, so the load is retried a few times before the snapshot is published anyway.
+     */
+    public void rebuild() {
+        for (int attempt = 1; attempt <= REBUILD_ATTEMPTS; attempt++) {
+            long before = modifications.get();
+            Map<String, ColorBuckets> loaded = new ConcurrentHashMap<>();
+            loadCounts().forEach((color, counts) -> loaded.put(color, new ColorBuckets(counts)));
+
+            swapLock.writeLock().lock();
+            try {
+                if (modifications.get() == before || attempt == REBUILD_ATTEMPTS) {
+                    long version = modifications.incrementAndGet();
+                    loaded.values().forEach(buckets -> buckets.version = version);
+                    colors = loaded;
+                    ready = true;
+                    log.info("Inventory index rebuilt: colors={}, attempt={}", loaded.size(), attempt);
+                    return;
+                }
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            log.debug("Inventory index changed during rebuild, retrying: attempt={}", attempt);
+        }
+    }
+
+    /**
+     * Compares the index with the socks table and returns a description of every differing bucket.
+     */
+    public List<String> checkConsistency() {
+        Map<String, int[]> expected = loadCounts();
+        Map<String, ColorBuckets> actual = colors;
+
+        Set<String> allColors = new HashSet<>(expected.keySet());
+        allColors.addAll(actual.keySet());
+
+        List<String> mismatches = new ArrayList<>();
+        for (String color : allColors) {
+            int[] expectedCounts = expected.get(color);
+            ColorBuckets buckets = actual.get(color);
+            for (int cotton = 0; cotton < BUCKETS; cotton++) {
+                int expectedCount = expectedCounts == null ? 0 : expectedCounts[cotton];
+                int actualCount = buckets == null ? 0 : buckets.count(cotton);
+                if (expectedCount != actualCount) {
+                    mismatches.add(color + "/" + cotton + ": table=" + expectedCount + ", index=" + actualCount);
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    @Scheduled(fixedDelayString = "${socks.inventory-index.consistency-check-interval:PT5M}",
+            initialDelayString = "${socks.inventory-index.consistency-check-interval:PT5M}")
+    public void scheduledConsistencyCheck() {
+        if (!ready) {
+            return;
+        }
+        List<String> mismatches = checkConsistency();
+        if (!mismatches.isEmpty()) {
+            log.warn("Inventory index is inconsistent with the socks table, rebuilding: {}", mismatches);
+            rebuild();
+        }
+    }
+
+    private void apply(String color, Consumer<ColorBuckets> update) {
+        swapLock.readLock().lock();
+        try {
+            long version = modifications.incrementAndGet();
+            ColorBuckets buckets = colors.computeIfAbsent(color, c -> new ColorBuckets(new int[BUCKETS]));
+            update.accept(buckets);
+            buckets.touch(version);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private Map<String, int[]> loadCounts() {
+        Map<String, int[]> counts = new HashMap<>();
+        for (SocksKeyCount keyCount : socksRepository.countRowsByKey()) {
+            int cotton = keyCount.getCottonPercentage();
+            if (cotton < 0 || cotton >= BUCKETS) {
+                log.warn("Skipping socks with cotton percentage out of range: {}", keyCount.getColor());
+                continue;
+            }
+            counts.computeIfAbsent(keyCount.getColor(), c -> new int[BUCKETS])[cotton] += (int) keyCount.getRowCount();
+        }
+        return counts;
+    }
+
+    /**
+     * Buckets of a single color. Writers recompute the prefix sums into a fresh array and publish it,
+     * so readers always see a consistent array without locking.
+     */
+    private static final class ColorBuckets {
+
+        private final int[] counts;
+        private volatile int[] prefix;
+        private volatile long version;
+
+        ColorBuckets(int[] counts) {
+            this.counts = counts;
+            this.prefix = prefixSums(counts);
+        }
+
+        synchronized void add(int cottonPercentage, int delta) {
+            counts[cottonPercentage] += delta;
+            prefix = prefixSums(counts);
+        }
+
+        synchronized void ensurePresent(int cottonPercentage) {
+            if (counts[cottonPercentage] == 0) {
+                counts[cottonPercentage] = 1;
+                prefix = prefixSums(counts);
+            }
+        }
+
+        synchronized void touch(long newVersion) {
+            if (newVersion > version) {
+                version = newVersion;
+            }
+        }
+
+        int count(int cottonPercentage) {
+            int[] snapshot = prefix;
+            return snapshot[cottonPercentage + 1] - snapshot[cottonPercentage];
+        }
+
+        private static int[] prefixSums(int[] counts) {
+            int[] sums = new int[BUCKETS + 1];
+            for (int i = 0; i < BUCKETS; i++) {
+                sums[i + 1] = sums[i] + counts[i];
+            }
+            return sums;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.socksproject.service.ledger;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.model.SocksLedgerSnapshot;
+import org.example.socksproject.repository.ColorDictionary;
+import org.example.socksproject.repository.SocksBatchRepository;
+import org.example.socksproject.repository.SocksLedgerRepository;
+import org.example.socksproject.repository.SocksLedgerSnapshotRepository;
+import org.example.socksproject.repository.projection.SocksUpsertResult;
+import org.example.socksproject.repository.projection.SupersededTail;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Event-sourced write path: incomes and outcomes are appended to the socks ledger instead of updating the
+ * socks rows, and {@link SocksLedgerCompactor} folds the ledger into the socks quantities in the background.
+ * The balance of a key is its socks row plus the ledger entries not compacted yet (the tail).
+ * <p>
+ * Incomes are pure appends and never wait for each other. An outcome locks the socks row of the key, so
+ * outcomes of one key check the balance one at a time, while incomes keep appending; an income can only
+ * raise the balance, so it can't invalidate the check. The row is read under the lock and the tail in a
+ * later statement, which sees every compaction that committed before the lock was granted and none after.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SocksLedger {
+
+    private final SocksLedgerRepository ledgerRepository;
+    private final SocksLedgerSnapshotRepository snapshotRepository;
+    private final SocksBatchRepository socksBatchRepository;
+    private final ColorDictionary colorDictionary;
+    private final SocksProperties socksProperties;
+
+    public boolean isEnabled() {
+        return socksProperties.getLedger().isEnabled();
+    }
+
+    @Transactional
+    public SocksUpsertResult income(SocksKey key, int quantity) {
+        return ledgerRepository.append(colorDictionary.idOf(key.color()), key.cottonPercentage(), quantity);
+    }
+
+    /**
+     * Appends the outcome if the balance covers it.
+     *
+     * @return the remaining balance, or empty if there are no such socks or not enough of them
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<Integer> outcome(SocksKey key, int quantity) {
+        Integer stored = socksBatchRepository.lockQuantities(List.of(key)).get(key);
+        if (stored == null) {
+            return Optional.empty();
+        }
+        int balance = stored + socksBatchRepository.sumLedgerTails(List.of(key)).getOrDefault(key, 0);
+        if (balance < quantity) {
+            return Optional.empty();
+        }
+        ledgerRepository.append(colorDictionary.idOf(key.color()), key.cottonPercentage(), -quantity);
+        return Optional.of(balance - quantity);
+    }
+
+    /**
+     * Adds the tails to quantities read from socks rows that the caller has locked.
+     */
+    public void addTails(Map<SocksKey, Integer> lockedQuantities) {
+        Map<SocksKey, Integer> tails = socksBatchRepository.sumLedgerTails(lockedQuantities.keySet());
+        tails.forEach((key, tail) -> lockedQuantities.computeIfPresent(key, (k, stored) -> stored + tail));
+    }
+
+    /**
+     * Drops the tail of the key from the balance, for an update that is about to set the quantity of its row.
+     * Locks the row first, so no outcome is checking the balance meanwhile.
+     *
+     * @return the balance the update replaces: the row read under the lock plus the entries dropped, 0 if there
+     * is no row. Incomes that commit meanwhile stay in the tail and count on top of the update.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int supersede(SocksKey key) {
+        int stored = socksBatchRepository.lockQuantities(List.of(key)).getOrDefault(key, 0);
+        if (socksBatchRepository.sumLedgerTails(List.of(key)).isEmpty()) {
+            return stored;
+        }
+        SocksLedgerSnapshot snapshot = snapshotRepository.save(SocksLedgerSnapshot.builder()
+                .createdAt(Instant.now())
+                .keyCount(1)
+                .build());
+        SupersededTail tail = ledgerRepository.supersedeTail(snapshot.getId(), colorDictionary.idOf(key.color()),
+                key.cottonPercentage());
+        snapshot.setEntries(tail.getEntries());
+        log.info("Ledger tail superseded by update: {}, entries={}, quantity={}", key, tail.getEntries(),
+                tail.getQuantity());
+        return stored + tail.getQuantity();
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.socksproject.service.ledger;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.model.SocksLedgerSnapshot;
+import org.example.socksproject.repository.SocksLedgerRepository;
+import org.example.socksproject.repository.SocksLedgerSnapshotRepository;
+import org.example.socksproject.repository.projection.LedgerCompaction;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+
+/**
+ * Folds the socks ledger into the socks quantities.
+ * <p>
+ * Every compaction takes the oldest entries of the tail, adds their sums to the socks rows and records a
+ * snapshot, all in one transaction, so a reader always sees an entry either in the tail or in the row.
+ * Entries stay in the ledger, marked with their snapshot, as the movement history.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SocksLedgerCompactor {
+
+    private final SocksLedgerRepository ledgerRepository;
+    private final SocksLedgerSnapshotRepository snapshotRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SocksProperties socksProperties;
+
+    @Scheduled(fixedDelayString = "${socks.ledger.compaction-interval:PT5S}")
+    public void scheduledCompaction() {
+        if (!socksProperties.getLedger().isEnabled()) {
+            return;
+        }
+        try {
+            compactPending();
+        } catch (RuntimeException e) {
+            log.warn("Ledger compaction failed, retrying on the next run", e);
+        }
+    }
+
+    /**
+     * Compacts until the tail committed so far is folded.
+     *
+     * @return number of entries folded
+     */
+    public long compactPending() {
+        int batchSize = socksProperties.getLedger().getCompactionBatchSize();
+        long total = 0;
+        long folded;
+        do {
+            folded = compact(batchSize);
+            total += folded;
+        } while (folded == batchSize);
+        if (total > 0) {
+            log.info("Ledger compacted: entries={}", total);
+        }
+        return total;
+    }
+
+    private long compact(int batchSize) {
+        Long folded = transactionTemplate.execute(status -> {
+            SocksLedgerSnapshot snapshot = snapshotRepository.save(SocksLedgerSnapshot.builder()
+                    .createdAt(Instant.now())
+                    .build());
+            LedgerCompaction compaction = ledgerRepository.compact(snapshot.getId(), batchSize);
+            if (compaction.getEntries() == 0) {
+                status.setRollbackOnly();
+                return 0L;
+            }
+            snapshot.setEntries(compaction.getEntries());
+            snapshot.setKeyCount(compaction.getKeyCount());
+            snapshot.setLastEntryId(compaction.getLastEntryId());
+            log.debug("Ledger snapshot recorded: id={}, entries={}, keys={}", snapshot.getId(),
+                    compaction.getEntries(), compaction.getKeyCount());
+            return compaction.getEntries();
+        });
+        return folded == null ? 0 : folded;
+    }
+}
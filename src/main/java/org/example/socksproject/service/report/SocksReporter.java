@@ -0,0 +1,119 @@
+package org.example.socksproject.service.report;
+
+import lombok.RequiredArgsConstructor;
+import org.example.socksproject.dto.SocksReportDto;
+import org.example.socksproject.dto.SocksReportRowDto;
+import org.example.socksproject.model.SocksColor;
+import org.example.socksproject.repository.ColorDictionary;
+import org.example.socksproject.repository.SocksRepository;
+import org.example.socksproject.repository.projection.ColorQuantity;
+import org.example.socksproject.repository.projection.CottonQuantity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Builds quantity reports from {@code SUM(quantity) ... GROUP BY} queries, without loading socks entities.
+ * <p>
+ * Cotton ranges are summed per cotton percentage in the database (at most 101 groups) and folded into
+ * ranges of {@code bucketSize} here. Requested colors that are not in the color dictionary have no socks and
+ * are left out of the queries.
+ */
+@Component
+@RequiredArgsConstructor
+public class SocksReporter {
+
+    public static final String BY_COLOR = "color";
+    public static final String BY_COTTON_RANGE = "cottonRange";
+    public static final String TOTAL = "total";
+
+    private final SocksRepository socksRepository;
+    private final ColorDictionary colorDictionary;
+
+    @Transactional(readOnly = true)
+    public SocksReportDto report(String groupBy, List<String> colors, int cottonFrom, int cottonTo, int bucketSize) {
+        if (cottonFrom < 0 || cottonTo > 100 || cottonFrom > cottonTo) {
+            throw new IllegalArgumentException("Invalid cotton percentage range");
+        }
+        List<String> requested = colors.stream().map(SocksColor::normalize).distinct().toList();
+        // null selects all colors; an empty filter means none of the requested colors exists.
+        List<String> filter = requested.isEmpty() ? null : requested.stream()
+                .filter(color -> colorDictionary.find(color).isPresent())
+                .toList();
+        List<SocksReportRowDto> rows = switch (groupBy) {
+            case BY_COLOR -> byColor(filter, cottonFrom, cottonTo);
+            case BY_COTTON_RANGE -> byCottonRange(filter, cottonFrom, cottonTo, bucketSize);
+            case TOTAL -> List.of();
+            default -> throw new IllegalArgumentException("Invalid groupBy");
+        };
+        long total = groupBy.equals(TOTAL)
+                ? total(filter, cottonFrom, cottonTo)
+                : rows.stream().mapToLong(SocksReportRowDto::getQuantity).sum();
+
+        return SocksReportDto.builder()
+                .groupBy(groupBy)
+                .cottonFrom(cottonFrom)
+                .cottonTo(cottonTo)
+                .colors(requested)
+                .totalQuantity(total)
+                .rows(rows)
+                .build();
+    }
+
+    private long total(List<String> filter, int cottonFrom, int cottonTo) {
+        if (filter == null) {
+            return socksRepository.sumQuantity(cottonFrom, cottonTo);
+        }
+        return colorSums(filter, cottonFrom, cottonTo).stream()
+                .mapToLong(ColorQuantity::getQuantity)
+                .sum();
+    }
+
+    private List<SocksReportRowDto> byColor(List<String> filter, int cottonFrom, int cottonTo) {
+        return colorSums(filter, cottonFrom, cottonTo).stream()
+                .sorted(Comparator.comparing(ColorQuantity::getColor))
+                .map(sum -> SocksReportRowDto.builder().color(sum.getColor()).quantity(sum.getQuantity()).build())
+                .toList();
+    }
+
+    private List<SocksReportRowDto> byCottonRange(List<String> filter, int cottonFrom, int cottonTo,
+                                                  int bucketSize) {
+        // 101 percentages exist; a larger bucket also overflows the bucket bounds near Integer.MAX_VALUE.
+        if (bucketSize < 1 || bucketSize > 101) {
+            throw new IllegalArgumentException("Invalid bucketSize");
+        }
+        List<CottonQuantity> sums;
+        if (filter == null) {
+            sums = socksRepository.sumQuantityByCottonPercentage(cottonFrom, cottonTo);
+        } else {
+            sums = filter.isEmpty()
+                    ? List.of()
+                    : socksRepository.sumQuantityByCottonPercentageAndColorIn(filter, cottonFrom, cottonTo);
+        }
+
+        List<SocksReportRowDto> rows = new ArrayList<>();
+        int next = 0;
+        for (int from = cottonFrom; from <= cottonTo; from += bucketSize) {
+            int to = Math.min(from + bucketSize - 1, cottonTo);
+            long quantity = 0;
+            while (next < sums.size() && sums.get(next).getCottonPercentage() <= to) {
+                quantity += sums.get(next++).getQuantity();
+            }
+            rows.add(SocksReportRowDto.builder().cottonFrom(from).cottonTo(to).quantity(quantity).build());
+        }
+        return rows;
+    }
+
+    /**
+     * Groups by color id; the rows are sorted by name by the caller.
+     */
+    private List<ColorQuantity> colorSums(List<String> filter, int cottonFrom, int cottonTo) {
+        if (filter == null) {
+            return socksRepository.sumQuantityByColor(cottonFrom, cottonTo);
+        }
+        return filter.isEmpty() ? List.of() : socksRepository.sumQuantityByColorIn(filter, cottonFrom, cottonTo);
+    }
+}
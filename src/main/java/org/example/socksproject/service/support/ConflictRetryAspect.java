@@ -0,0 +1,75 @@
+package org.example.socksproject.service.support;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.metrics.SocksMetrics;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries {@link RetryOnConflict} methods that fail with a {@link ConcurrencyFailureException} (optimistic-lock
+ * failures, lock timeouts, deadlocks) instead of sending the conflict back to the client right away.
+ * <p>
+ * The aspect is ordered before the transaction interceptor, so every attempt runs in a fresh transaction.
+ * Attempts are spaced by exponential backoff with full jitter, so threads that collided once don't collide
+ * again in lockstep. When the attempts are used up the conflict is reported as an {@link IllegalStateException}.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@RequiredArgsConstructor
+public class ConflictRetryAspect {
+
+    private final SocksProperties socksProperties;
+    private final SocksMetrics socksMetrics;
+
+    @Around("@annotation(retryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint, RetryOnConflict retryOnConflict) throws Throwable {
+        String operation = retryOnConflict.value();
+        SocksProperties.RetryPolicy policy = socksProperties.getRetry().policyFor(operation);
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Object result = joinPoint.proceed();
+                socksMetrics.retryAttempts(operation, attempt);
+                return result;
+            } catch (ConcurrencyFailureException e) {
+                socksMetrics.conflict(operation);
+                if (attempt >= policy.getMaxAttempts()) {
+                    socksMetrics.retryAttempts(operation, attempt);
+                    log.warn("Conflict persisted, giving up: operation={}, attempts={}", operation, attempt);
+                    throw new IllegalStateException("Socks were modified concurrently, try again", e);
+                }
+                long backoffNanos = backoffNanos(policy, attempt);
+                log.debug("Conflict, retrying: operation={}, attempt={}, backoffMicros={}",
+                        operation, attempt, TimeUnit.NANOSECONDS.toMicros(backoffNanos));
+                sleep(backoffNanos);
+            }
+        }
+    }
+
+    static long backoffNanos(SocksProperties.RetryPolicy policy, int attempt) {
+        double ceiling = policy.getInitialBackoff().toNanos() * Math.pow(policy.getMultiplier(), attempt - 1);
+        long bound = (long) Math.min(ceiling, policy.getMaxBackoff().toNanos());
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.socksproject.service.support;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Re-runs the whole method, including its transaction, when it fails with a concurrency conflict.
+ *
+ * @see ConflictRetryAspect
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+
+    /**
+     * Operation name used to look up the retry policy under {@code socks.retry.operations} and to tag metrics.
+     */
+    String value();
+}
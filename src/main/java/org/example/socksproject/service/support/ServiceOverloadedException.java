@@ -0,0 +1,20 @@
+package org.example.socksproject.service.support;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Work rejected because a queue is full. Unlike a conflict, the same request may succeed once the queue drains,
+ * so clients are told when to try again.
+ */
+@Getter
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ServiceOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.socksproject.service.support;
+
+/**
+ * Work refused because a component it depends on has failed and stays failed until it is repaired. Unlike
+ * {@link ServiceOverloadedException}, retrying soon does not help, so no retry delay is suggested.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
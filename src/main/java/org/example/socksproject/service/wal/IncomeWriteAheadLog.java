@@ -0,0 +1,410 @@
+package org.example.socksproject.service.wal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.model.WalCheckpoint;
+import org.example.socksproject.repository.WalCheckpointRepository;
+import org.example.socksproject.service.batch.SocksBatchImporter;
+import org.example.socksproject.service.support.ServiceOverloadedException;
+import org.example.socksproject.service.support.ServiceUnavailableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Local write-ahead log for incomes, acknowledged once durable on disk and written to the database behind.
+ * <p>
+ * Appends go to a memory-mapped segment file. A flusher thread forces everything appended so far to disk
+ * and then releases all the callers it covered, so one fsync commits a whole group of incomes. An applier
+ * thread sums durable records per key and writes them through {@link SocksBatchImporter#applyChunk}, storing
+ * the last applied sequence in the same transaction. On startup the segments are read back and the records
+ * after that sequence are applied again, so a record is applied exactly once however often the application
+ * stops. Segments are deleted once all their records are applied.
+ * <p>
+ * An acknowledged income shows up in counts and outcomes only after the applier has written it. If the log can't
+ * be forced to disk, it refuses all later incomes with 503 while the applier still writes the durable records,
+ * and {@link IncomeWriteAheadLogHealthIndicator} reports it down.
+ */
+@Slf4j
+@Component
+public class IncomeWriteAheadLog {
+
+    private static final String ID_FILE = "wal.id";
+
+    /**
+     * Suggested wait before retrying a rejected income; the applier drains a full batch well within it.
+     */
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final SocksBatchImporter batchImporter;
+    private final WalCheckpointRepository checkpointRepository;
+    private final SocksProperties.Wal settings;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Signalled when there are records to force, and when closing.
+    private final Condition appended = lock.newCondition();
+    // Signalled when records became durable, and when forcing failed.
+    private final Condition forced = lock.newCondition();
+    private final BlockingQueue<WalRecord> applyQueue = new LinkedBlockingQueue<>();
+    private final Deque<WalSegment> closedSegments = new ArrayDeque<>();
+    private final List<WalRecord> unforced = new ArrayList<>();
+
+    private String walId;
+    private WalSegment segment;
+    private long lastSequence;
+    private long durableSequence;
+    private volatile RuntimeException failure;
+    private volatile long appliedSequence;
+    private volatile boolean running;
+    private Thread flusher;
+    private Thread applier;
+
+    public IncomeWriteAheadLog(SocksBatchImporter batchImporter,
+                               WalCheckpointRepository checkpointRepository,
+                               SocksProperties socksProperties) {
+        this.batchImporter = batchImporter;
+        this.checkpointRepository = checkpointRepository;
+        this.settings = socksProperties.getWal();
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Path directory = settings.getDirectory();
+        Files.createDirectories(directory);
+        walId = readOrCreateId(directory);
+        appliedSequence = checkpointRepository.findById(walId).map(WalCheckpoint::getAppliedSequence).orElse(0L);
+        lastSequence = appliedSequence;
+
+        long replayed = 0;
+        for (Path path : segmentPaths(directory)) {
+            List<WalRecord> records = WalSegment.read(path);
+            for (WalRecord record : records) {
+                lastSequence = Math.max(lastSequence, record.sequence());
+                if (record.sequence() > appliedSequence) {
+                    applyQueue.add(record);
+                    replayed++;
+                }
+            }
+            long segmentLast = records.isEmpty() ? 0 : records.get(records.size() - 1).sequence();
+            closedSegments.add(WalSegment.replayed(path, segmentLast));
+        }
+        durableSequence = lastSequence;
+        deleteAppliedSegments();
+        segment = WalSegment.create(directory, lastSequence + 1, settings.getSegmentSize().toBytes());
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "socks-wal-flusher");
+        applier = new Thread(this::applyLoop, "socks-wal-applier");
+        flusher.start();
+        applier.start();
+        log.info("Write-ahead log opened: id={}, applied={}, replaying={}", walId, appliedSequence, replayed);
+    }
+
+    /**
+     * Appends the income and returns once it is durable on disk. Callers wait on a {@link ReentrantLock}
+     * condition rather than a monitor, so a virtual thread waiting for the fsync does not pin its carrier.
+     *
+     * @throws ServiceOverloadedException  if too many incomes are waiting to be applied
+     * @throws ServiceUnavailableException if the log could not be forced to disk and refuses incomes
+     */
+    public void append(SocksKey key, int quantity) {
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new ServiceUnavailableException("Write-ahead log is not writable, incomes are refused",
+                        failure);
+            }
+            if (!running) {
+                throw new IllegalStateException("Write-ahead log is closed");
+            }
+            if (applyQueue.size() + unforced.size() >= settings.getMaxPendingRecords()) {
+                throw new ServiceOverloadedException("Too many incomes waiting to be applied, try again later",
+                        RETRY_AFTER);
+            }
+            long sequence = lastSequence + 1;
+            WalRecord record = new WalRecord(sequence, key, quantity);
+            byte[] encoded = WalSegment.encode(record);
+            if (!segment.append(encoded, sequence)) {
+                roll(sequence);
+                if (!segment.append(encoded, sequence)) {
+                    throw new IllegalArgumentException("Income is too large for a log segment");
+                }
+            }
+            lastSequence = sequence;
+            unforced.add(record);
+            appended.signal();
+
+            while (durableSequence < sequence && failure == null) {
+                try {
+                    forced.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the write-ahead log", e);
+                }
+            }
+            if (durableSequence < sequence) {
+                throw new ServiceUnavailableException("Write-ahead log is not writable, incomes are refused",
+                        failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Last sequence written to the database.
+     */
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * Last sequence acknowledged to a caller.
+     */
+    public long getDurableSequence() {
+        lock.lock();
+        try {
+            return durableSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Why the log stopped accepting incomes, if forcing it to disk failed. Records that were already durable
+     * are still applied.
+     */
+    public Optional<RuntimeException> getFailure() {
+        return Optional.ofNullable(failure);
+    }
+
+    /**
+     * Stops the threads. Durable records not applied yet stay in the segments and are applied after a restart.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        lock.lock();
+        try {
+            running = false;
+            appended.signalAll();
+            forced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join();
+        applier.join(TimeUnit.SECONDS.toMillis(30));
+        log.info("Write-ahead log closed: durable={}, applied={}", durableSequence, appliedSequence);
+    }
+
+    /**
+     * Starts a new segment once the current one is full. The full segment is forced here, so the flusher
+     * only ever has to force the current segment. Appends wait while the new segment is written out, once per
+     * segment.
+     */
+    private void roll(long firstSequence) {
+        try {
+            segment.force(segment.position());
+            closedSegments.add(segment);
+            segment = WalSegment.create(settings.getDirectory(), firstSequence, settings.getSegmentSize().toBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start a write-ahead log segment", e);
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            WalSegment target;
+            int end;
+            long sequence;
+            List<WalRecord> group;
+            lock.lock();
+            try {
+                while (running && unforced.isEmpty()) {
+                    try {
+                        appended.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (unforced.isEmpty()) {
+                    return;
+                }
+                target = segment;
+                end = segment.position();
+                sequence = lastSequence;
+                group = new ArrayList<>(unforced);
+                unforced.clear();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                target.force(end);
+            } catch (RuntimeException e) {
+                // The applier keeps writing the records that were durable before; the health indicator reports
+                // the log down until it is repaired and the application restarted.
+                log.error("Failed to force the write-ahead log, refusing incomes until restart", e);
+                lock.lock();
+                try {
+                    failure = e;
+                    forced.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            applyQueue.addAll(group);
+            lock.lock();
+            try {
+                durableSequence = sequence;
+                forced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void applyLoop() {
+        List<WalRecord> batch = new ArrayList<>();
+        while (running) {
+            try {
+                if (batch.isEmpty()) {
+                    WalRecord first = applyQueue.poll(settings.getApplyInterval().toMillis(), TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    applyQueue.drainTo(batch, settings.getApplyBatchSize() - 1);
+                }
+                apply(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // The batch is kept and retried; records it already committed are skipped by sequence.
+                log.error("Failed to apply write-ahead log records, retrying: records={}", batch.size(), e);
+                try {
+                    Thread.sleep(settings.getApplyInterval().toMillis() * 20);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void apply(List<WalRecord> records) {
+        Map<SocksKey, Integer> quantities = new HashMap<>();
+        long last = appliedSequence;
+        for (WalRecord record : records) {
+            if (record.sequence() <= appliedSequence) {
+                continue;
+            }
+            Integer summed = quantities.get(record.key());
+            if (summed != null && (long) summed + record.quantity() > Integer.MAX_VALUE) {
+                commit(quantities, last);
+                quantities = new HashMap<>();
+            }
+            quantities.merge(record.key(), record.quantity(), Integer::sum);
+            last = record.sequence();
+        }
+        commit(quantities, last);
+    }
+
+    private void commit(Map<SocksKey, Integer> quantities, long sequence) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        batchImporter.applyChunk(quantities, () -> checkpointRepository.save(WalCheckpoint.builder()
+                .walId(walId)
+                .appliedSequence(sequence)
+                .updatedAt(Instant.now())
+                .build()));
+        appliedSequence = sequence;
+        log.debug("Write-ahead log applied: sequence={}, keys={}", sequence, quantities.size());
+        deleteAppliedSegments();
+    }
+
+    private void deleteAppliedSegments() {
+        lock.lock();
+        try {
+            while (!closedSegments.isEmpty() && closedSegments.peekFirst().lastSequence() <= appliedSequence) {
+                Path path = closedSegments.pollFirst().path();
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("Failed to delete applied write-ahead log segment: {}", path, e);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static List<Path> segmentPaths(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(WalSegment.PREFIX) && name.endsWith(WalSegment.SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * The checkpoint is keyed by an id stored next to the segments, so a new, empty directory starts over.
+     */
+    private static String readOrCreateId(Path directory) throws IOException {
+        Path file = directory.resolve(ID_FILE);
+        if (Files.exists(file)) {
+            return Files.readString(file, StandardCharsets.UTF_8).trim();
+        }
+        String id = UUID.randomUUID().toString();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(id.getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        WalSegment.syncDirectory(directory);
+        return id;
+    }
+}
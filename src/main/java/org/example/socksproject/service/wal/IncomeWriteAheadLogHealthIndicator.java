@@ -0,0 +1,29 @@
+package org.example.socksproject.service.wal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the write-ahead log down once forcing it to disk failed, since it refuses every income from then on.
+ */
+@Component
+@ConditionalOnProperty(prefix = "socks.wal", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class IncomeWriteAheadLogHealthIndicator implements HealthIndicator {
+
+    private final IncomeWriteAheadLog writeAheadLog;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = writeAheadLog.getFailure()
+                .map(Health::down)
+                .orElseGet(Health::up);
+        return builder
+                .withDetail("durableSequence", writeAheadLog.getDurableSequence())
+                .withDetail("appliedSequence", writeAheadLog.getAppliedSequence())
+                .build();
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.socksproject.service.wal;
+
+import org.example.socksproject.model.SocksKey;
+
+/**
+ * An income in the write-ahead log.
+ *
+ * @param sequence position in the log, increasing by one with every record and never reused
+ */
+record WalRecord(long sequence, SocksKey key, int quantity) {
+}
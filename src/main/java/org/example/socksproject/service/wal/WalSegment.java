@@ -0,0 +1,167 @@
+package org.example.socksproject.service.wal;
+
+import org.example.socksproject.model.SocksKey;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * One file of the write-ahead log, preallocated and memory-mapped.
+ * <p>
+ * A new segment is written out with zeros and forced before it is mapped, so its blocks are allocated up front:
+ * a full disk fails the roll to the new segment with an IOException instead of failing a write into a sparse
+ * mapping later. The directory is forced as well, so the file itself survives a crash.
+ * <p>
+ * A record is stored as its payload length, the payload (sequence, cotton percentage, quantity, color length
+ * and UTF-8 color) and a CRC32C of the payload. The file starts zeroed, so reading stops at the first zero
+ * length; a record torn by a crash fails its checksum and ends the segment as well.
+ */
+final class WalSegment {
+
+    static final String PREFIX = "income-";
+    static final String SUFFIX = ".wal";
+
+    private static final int FIXED_PAYLOAD_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES + Short.BYTES;
+
+    private static final int ZERO_FILL_BYTES = 1 << 20;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private int position;
+    private int forcedPosition;
+    private long lastSequence;
+
+    private WalSegment(Path path, MappedByteBuffer buffer, long lastSequence) {
+        this.path = path;
+        this.buffer = buffer;
+        this.lastSequence = lastSequence;
+    }
+
+    static WalSegment create(Path directory, long firstSequence, long size) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer zeros = ByteBuffer.allocate(ZERO_FILL_BYTES);
+            for (long written = 0; written < size; ) {
+                zeros.clear().limit((int) Math.min(ZERO_FILL_BYTES, size - written));
+                written += channel.write(zeros, written);
+            }
+            channel.force(true);
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            syncDirectory(directory);
+            return new WalSegment(path, buffer, firstSequence - 1);
+        }
+    }
+
+    /**
+     * Forces the directory entries, so files created in it are not lost in a crash.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * A segment written before a restart, kept only to be deleted once its records are applied.
+     */
+    static WalSegment replayed(Path path, long lastSequence) {
+        return new WalSegment(path, null, lastSequence);
+    }
+
+    /**
+     * Reads the valid records of a segment written before a restart.
+     */
+    static List<WalRecord> read(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        List<WalRecord> records = new ArrayList<>();
+        CRC32C crc = new CRC32C();
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length < FIXED_PAYLOAD_BYTES || buffer.remaining() < length + Integer.BYTES) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt()) {
+                break;
+            }
+            long sequence = payload.getLong();
+            int cottonPercentage = payload.getInt();
+            int quantity = payload.getInt();
+            byte[] color = new byte[payload.getShort()];
+            payload.get(color);
+            records.add(new WalRecord(sequence, new SocksKey(new String(color, StandardCharsets.UTF_8),
+                    cottonPercentage), quantity));
+        }
+        return records;
+    }
+
+    static byte[] encode(WalRecord record) {
+        byte[] color = record.key().color().getBytes(StandardCharsets.UTF_8);
+        if (color.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Color is too long");
+        }
+        int length = FIXED_PAYLOAD_BYTES + color.length;
+        ByteBuffer encoded = ByteBuffer.allocate(Integer.BYTES + length + Integer.BYTES);
+        encoded.putInt(length)
+                .putLong(record.sequence())
+                .putInt(record.key().cottonPercentage())
+                .putInt(record.quantity())
+                .putShort((short) color.length)
+                .put(color);
+        CRC32C crc = new CRC32C();
+        crc.update(encoded.array(), Integer.BYTES, length);
+        encoded.putInt((int) crc.getValue());
+        return encoded.array();
+    }
+
+    /**
+     * Copies an encoded record into the mapping. Callers serialize appends.
+     *
+     * @return false if the segment has no room left for the record
+     */
+    boolean append(byte[] record, long sequence) {
+        if (buffer.capacity() - position < record.length) {
+            return false;
+        }
+        buffer.put(position, record);
+        position += record.length;
+        lastSequence = sequence;
+        return true;
+    }
+
+    /**
+     * Writes the records up to {@code end}, a position read under the append lock, to the storage device.
+     */
+    synchronized void force(int end) {
+        if (end > forcedPosition) {
+            buffer.force(forcedPosition, end - forcedPosition);
+            forcedPosition = end;
+        }
+    }
+
+    int position() {
+        return position;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long lastSequence() {
+        return lastSequence;
+    }
+}
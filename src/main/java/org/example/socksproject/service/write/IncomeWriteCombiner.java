@@ -0,0 +1,158 @@
+package org.example.socksproject.service.write;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.model.SocksKey;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Combines concurrent incomes for the same key into one database update.
+ * <p>
+ * The first request for a key opens a batch and waits up to the configured window (or until the batch is full)
+ * for more requests of that key to join. It then applies the summed quantity in one transaction and completes
+ * every request of the batch with the shared outcome. Keys are spread over independent lock stripes, so
+ * batches of unrelated keys don't wait for each other.
+ */
+@Slf4j
+@Component
+public class IncomeWriteCombiner {
+
+    private final SocksIncomeWriter incomeWriter;
+    private final SocksProperties.WriteCombining settings;
+    private final Stripe[] stripes;
+
+    public IncomeWriteCombiner(SocksIncomeWriter incomeWriter, SocksProperties socksProperties) {
+        this.incomeWriter = incomeWriter;
+        this.settings = socksProperties.getWriteCombining();
+        this.stripes = new Stripe[settings.getStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    public void income(SocksKey key, int quantity) {
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingIncome opened = stripe.join(key, quantity, done, settings.getMaxBatchSize());
+        if (opened != null) {
+            stripe.awaitClose(opened, settings.getWindow().toNanos());
+            flush(opened);
+        }
+
+        try {
+            done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void flush(PendingIncome batch) {
+        try {
+            incomeWriter.apply(batch.key, (int) batch.quantity);
+            batch.waiters.forEach(waiter -> waiter.complete(null));
+        } catch (RuntimeException e) {
+            batch.waiters.forEach(waiter -> waiter.completeExceptionally(e));
+        }
+        log.debug("Combined income applied: {}, requests={}, quantity={}",
+                batch.key, batch.waiters.size(), batch.quantity);
+    }
+
+    private static final class PendingIncome {
+
+        private final SocksKey key;
+        private final List<CompletableFuture<Void>> waiters = new ArrayList<>();
+        private long quantity;
+        private boolean closed;
+
+        PendingIncome(SocksKey key) {
+            this.key = key;
+        }
+
+        boolean canAdd(int more) {
+            return quantity + more <= Integer.MAX_VALUE;
+        }
+
+        void add(int more, CompletableFuture<Void> waiter) {
+            quantity += more;
+            waiters.add(waiter);
+        }
+    }
+
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition batchClosed = lock.newCondition();
+        private final Map<SocksKey, PendingIncome> pending = new HashMap<>();
+
+        /**
+         * Adds the income to the open batch of the key.
+         *
+         * @return the batch if the caller opened it and has to flush it, otherwise {@code null}
+         */
+        PendingIncome join(SocksKey key, int quantity, CompletableFuture<Void> waiter, int maxBatchSize) {
+            lock.lock();
+            try {
+                PendingIncome batch = pending.get(key);
+                PendingIncome opened = null;
+                if (batch == null || !batch.canAdd(quantity)) {
+                    if (batch != null) {
+                        close(batch);
+                    }
+                    batch = new PendingIncome(key);
+                    pending.put(key, batch);
+                    opened = batch;
+                }
+                batch.add(quantity, waiter);
+                if (batch.waiters.size() >= maxBatchSize) {
+                    close(batch);
+                }
+                return opened;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void awaitClose(PendingIncome batch, long windowNanos) {
+            lock.lock();
+            try {
+                long remaining = windowNanos;
+                while (!batch.closed && remaining > 0) {
+                    try {
+                        remaining = batchClosed.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                if (!batch.closed) {
+                    close(batch);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void close(PendingIncome batch) {
+            batch.closed = true;
+            pending.remove(batch.key, batch);
+            batchClosed.signalAll();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.socksproject.service.write;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.repository.ColorDictionary;
+import org.example.socksproject.repository.SocksRepository;
+import org.example.socksproject.repository.projection.SocksUpsertResult;
+import org.example.socksproject.service.changes.SocksChangeFeed;
+import org.example.socksproject.service.inventory.SocksInventoryIndex;
+import org.example.socksproject.service.ledger.SocksLedger;
+import org.example.socksproject.service.support.TransactionCallbacks;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SocksIncomeWriter {
+
+    private final SocksRepository socksRepository;
+    private final ColorDictionary colorDictionary;
+    private final SocksInventoryIndex inventoryIndex;
+    private final SocksChangeFeed changeFeed;
+    private final SocksLedger ledger;
+
+    @Transactional
+    public void apply(SocksKey key, int quantity) {
+        SocksUpsertResult result = ledger.isEnabled()
+                ? ledger.income(key, quantity)
+                : socksRepository.upsertQuantity(colorDictionary.idOf(key.color()), key.cottonPercentage(), quantity);
+
+        if (result.isInserted()) {
+            TransactionCallbacks.afterCommit(() -> inventoryIndex.rowAdded(key.color(), key.cottonPercentage()));
+            log.debug("New socks added successfully: {}, quantity={}", key, quantity);
+        } else {
+            log.debug("Socks updated successfully: {}, quantity={}", key, result.getQuantity());
+        }
+        changeFeed.publishAfterCommit("income", key, quantity, result.getQuantity());
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.socksproject.service.write;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.socksproject.dto.SocksMovementDto;
+import org.example.socksproject.dto.SocksMovementResultDto;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.repository.SocksBatchRepository;
+import org.example.socksproject.service.changes.SocksChangeFeed;
+import org.example.socksproject.service.inventory.SocksInventoryIndex;
+import org.example.socksproject.service.ledger.SocksLedger;
+import org.example.socksproject.service.support.TransactionCallbacks;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Applies a list of incomes and outcomes as one transaction.
+ * <p>
+ * The rows of all keys are locked up front in key order, so requests touching the same socks in a different
+ * order can't deadlock. The movements are then checked in request order against the locked quantities, and
+ * the net change of every key is written in a single JDBC batch. If any outcome can't be served, nothing is
+ * written.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SocksMovementWriter {
+
+    private final SocksBatchRepository socksBatchRepository;
+    private final SocksInventoryIndex inventoryIndex;
+    private final SocksChangeFeed changeFeed;
+    private final SocksLedger ledger;
+
+    /**
+     * @return the balance after every movement, in request order
+     * @throws IllegalArgumentException naming the index of the first movement that can't be applied
+     */
+    @Transactional
+    public List<SocksMovementResultDto> apply(List<SocksMovementDto> movements) {
+        Map<SocksKey, Integer> netQuantities = new TreeMap<>();
+        for (SocksMovementDto movement : movements) {
+            netQuantities.merge(keyOf(movement), movement.getQuantity(), Math::addExact);
+        }
+
+        Map<SocksKey, Integer> stock = socksBatchRepository.lockQuantities(netQuantities.keySet());
+        if (ledger.isEnabled()) {
+            ledger.addTails(stock);
+        }
+        Map<SocksKey, Integer> balances = new HashMap<>(stock);
+        List<SocksMovementResultDto> results = new ArrayList<>(movements.size());
+
+        for (int i = 0; i < movements.size(); i++) {
+            SocksMovementDto movement = movements.get(i);
+            SocksKey key = keyOf(movement);
+            Integer balance = balances.get(key);
+            if (movement.getQuantity() < 0) {
+                if (balance == null) {
+                    throw new IllegalArgumentException("Movement " + i + ": No socks with parameters");
+                }
+                if (balance < -movement.getQuantity()) {
+                    throw new IllegalArgumentException("Movement " + i + ": Not enough socks");
+                }
+            }
+            int updated = Math.addExact(balance == null ? 0 : balance, movement.getQuantity());
+            balances.put(key, updated);
+            results.add(SocksMovementResultDto.builder()
+                    .color(key.color())
+                    .cottonPercentage(key.cottonPercentage())
+                    .quantity(movement.getQuantity())
+                    .balance(updated)
+                    .build());
+        }
+
+        List<Map.Entry<SocksKey, Integer>> changes = new ArrayList<>(netQuantities.size());
+        List<SocksKey> created = new ArrayList<>();
+        netQuantities.forEach((key, quantity) -> {
+            // A key without a row gets one even if its movements cancel out, as it would with single requests.
+            if (!stock.containsKey(key)) {
+                created.add(key);
+                changes.add(Map.entry(key, quantity));
+            } else if (quantity != 0) {
+                changes.add(Map.entry(key, quantity));
+            }
+        });
+        if (!changes.isEmpty()) {
+            socksBatchRepository.upsertQuantities(changes);
+        }
+        if (!created.isEmpty()) {
+            TransactionCallbacks.afterCommit(() -> created.forEach(
+                    key -> inventoryIndex.rowPresent(key.color(), key.cottonPercentage())));
+        }
+        for (Map.Entry<SocksKey, Integer> change : changes) {
+            changeFeed.publishAfterCommit("movements", change.getKey(), change.getValue(),
+                    balances.get(change.getKey()));
+        }
+
+        log.debug("Movements applied: movements={}, keys={}, written={}", movements.size(), netQuantities.size(),
+                changes.size());
+        return results;
+    }
+
+    private static SocksKey keyOf(SocksMovementDto movement) {
+        return new SocksKey(movement.getColor(), movement.getCottonPercentage());
+    }
+}
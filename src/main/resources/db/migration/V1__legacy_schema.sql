@@ -0,0 +1,10 @@
+-- The schema as Hibernate generated it before Flyway managed it: one table with the color name on every row.
+-- Databases created that way have no schema history; they are baselined at this version and migrated from V2.
+create table socks (
+    cotton_percentage integer not null,
+    quantity integer not null,
+    version integer not null,
+    id bigint generated by default as identity,
+    color varchar(255) not null,
+    primary key (id)
+);
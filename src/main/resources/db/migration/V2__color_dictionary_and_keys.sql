@@ -0,0 +1,87 @@
+-- Color names are stored once; socks and ledger rows reference them by id.
+CREATE TABLE socks_color (
+    id   integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name varchar(255) NOT NULL,
+    CONSTRAINT uk_socks_color_name UNIQUE (name)
+);
+
+-- Existing names are normalized as SocksColor.normalize does: surrounding whitespace stripped, lower-cased.
+-- "Red" and "red " become one color.
+INSERT INTO socks_color (name)
+SELECT DISTINCT lower(regexp_replace(color, '^\s+|\s+$', '', 'g'))
+FROM socks
+ORDER BY 1;
+
+ALTER TABLE socks ADD COLUMN color_id integer;
+
+UPDATE socks s
+SET color_id = c.id
+FROM socks_color c
+WHERE c.name = lower(regexp_replace(s.color, '^\s+|\s+$', '', 'g'));
+
+-- Rows whose names only differed before normalization now share a key. Their quantities are summed into the
+-- oldest row and the others are deleted, so the unique key below can be created.
+UPDATE socks s
+SET quantity = d.quantity,
+    version  = s.version + 1
+FROM (SELECT min(id) AS id, sum(quantity) AS quantity
+      FROM socks
+      GROUP BY color_id, cotton_percentage
+      HAVING count(*) > 1) d
+WHERE s.id = d.id;
+
+DELETE FROM socks s
+USING socks k
+WHERE k.color_id = s.color_id
+  AND k.cotton_percentage = s.cotton_percentage
+  AND k.id < s.id;
+
+ALTER TABLE socks
+    ALTER COLUMN color_id SET NOT NULL,
+    ADD CONSTRAINT fk_socks_color FOREIGN KEY (color_id) REFERENCES socks_color (id),
+    DROP COLUMN color,
+    -- Serves the lookups and counts by color and cotton percentage, and is the ON CONFLICT target of the upserts.
+    ADD CONSTRAINT uk_socks_color_cotton_percentage UNIQUE (color_id, cotton_percentage);
+
+-- Serves the report sums over a cotton percentage range as index-only scans.
+CREATE INDEX ix_socks_cotton_percentage_quantity ON socks (cotton_percentage, color_id) INCLUDE (quantity);
+
+CREATE TABLE socks_ledger_snapshot (
+    id            bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at    timestamp(6) with time zone NOT NULL,
+    entries       bigint NOT NULL,
+    key_count     integer NOT NULL,
+    last_entry_id bigint
+);
+
+CREATE TABLE socks_ledger (
+    id                bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    color_id          integer NOT NULL REFERENCES socks_color (id),
+    cotton_percentage integer NOT NULL,
+    quantity          integer NOT NULL,
+    created_at        timestamp(6) with time zone NOT NULL,
+    snapshot_id       bigint REFERENCES socks_ledger_snapshot (id)
+);
+
+CREATE INDEX ix_socks_ledger_key ON socks_ledger (color_id, cotton_percentage, snapshot_id);
+CREATE INDEX ix_socks_ledger_snapshot ON socks_ledger (snapshot_id, id);
+
+CREATE TABLE batch_import_checkpoint (
+    upload_id        varchar(64) PRIMARY KEY,
+    mode             varchar(255) NOT NULL,
+    chunk_size       integer NOT NULL,
+    rows_committed   bigint NOT NULL,
+    char_offset      bigint NOT NULL,
+    chunks_committed integer NOT NULL,
+    content_length   bigint NOT NULL,
+    content_hash     varchar(64),
+    completed        boolean NOT NULL,
+    updated_at       timestamp(6) with time zone NOT NULL,
+    version          bigint
+);
+
+CREATE TABLE wal_checkpoint (
+    wal_id           varchar(36) PRIMARY KEY,
+    applied_sequence bigint NOT NULL,
+    updated_at       timestamp(6) with time zone NOT NULL
+);
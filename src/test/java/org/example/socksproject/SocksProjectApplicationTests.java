@@ -1,9 +1,9 @@
 package org.example.socksproject;
 
+import org.example.socksproject.helper.PostgresIntegrationTest;
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@PostgresIntegrationTest
 class SocksProjectApplicationTests {
 
     @Test
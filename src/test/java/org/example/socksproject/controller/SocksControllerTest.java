@@ -1,30 +1,51 @@
 package org.example.socksproject.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.dto.BatchJobStatusDto;
 import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.dto.SocksMovementDto;
+import org.example.socksproject.dto.SocksMovementResultDto;
 import org.example.socksproject.helper.DtoGeneratorHelper;
+import org.example.socksproject.logging.RequestLog;
 import org.example.socksproject.service.SocksService;
+import org.example.socksproject.service.support.ServiceOverloadedException;
+import org.example.socksproject.service.support.ServiceUnavailableException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,6 +60,9 @@ public class SocksControllerTest {
     @Mock
     SocksService socksService;
 
+    @Spy
+    RequestLog requestLog = new RequestLog(new SocksProperties());
+
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
@@ -58,6 +82,21 @@ public class SocksControllerTest {
         verify(socksService).incomeSocks(any(SocksDto.class));
     }
 
+    @Test
+    void testIncomeSocksWithFailedWriteAheadLog() throws Exception {
+        SocksDto socksDto = DtoGeneratorHelper.generateSocksDto();
+
+        doThrow(new ServiceUnavailableException("Write-ahead log is not writable, incomes are refused",
+                new UncheckedIOException(new IOException("No space left on device"))))
+                .when(socksService).incomeSocks(any(SocksDto.class));
+
+        mockMvc.perform(post("/api/socks/income")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(socksDto)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().doesNotExist("Retry-After"));
+    }
+
     @Test
     void testOutcomeSocks() throws Exception {
         SocksDto socksDto = DtoGeneratorHelper.generateSocksDto();
@@ -84,6 +123,25 @@ public class SocksControllerTest {
                 .andExpect(content().string("Not enough socks"));
     }
 
+    @Test
+    void testApplyMovements() throws Exception {
+        List<SocksMovementDto> movements = List.of(
+                SocksMovementDto.builder().color("black").cottonPercentage(50).quantity(10).build(),
+                SocksMovementDto.builder().color("black").cottonPercentage(50).quantity(-4).build());
+
+        when(socksService.applyMovements(anyList())).thenReturn(List.of(
+                SocksMovementResultDto.builder().color("black").cottonPercentage(50).quantity(10).balance(10).build(),
+                SocksMovementResultDto.builder().color("black").cottonPercentage(50).quantity(-4).balance(6).build()));
+
+        mockMvc.perform(post("/api/socks/movements")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(movements)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].quantity").value(-4))
+                .andExpect(jsonPath("$[1].balance").value(6));
+    }
+
     @Test
     void testCountSocks() throws Exception {
         when(socksService.getSocksCount("red", "moreThan", 50)).thenReturn(150);
@@ -98,6 +156,35 @@ public class SocksControllerTest {
         verify(socksService).getSocksCount("red", "moreThan", 50);
     }
 
+    @Test
+    void testCountSocksReturnsETag() throws Exception {
+        when(socksService.getCountVersion("red")).thenReturn(Optional.of("run-7"));
+        when(socksService.getSocksCount("red", "moreThan", 50)).thenReturn(150);
+
+        mockMvc.perform(get("/api/socks")
+                        .param("color", "red")
+                        .param("comparison", "moreThan")
+                        .param("cottonPercentage", "50"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"run-7\""))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(content().string("150"));
+    }
+
+    @Test
+    void testCountSocksNotModified() throws Exception {
+        when(socksService.getCountVersion("red")).thenReturn(Optional.of("run-7"));
+
+        mockMvc.perform(get("/api/socks")
+                        .param("color", "red")
+                        .param("comparison", "moreThan")
+                        .param("cottonPercentage", "50")
+                        .header("If-None-Match", "\"run-7\""))
+                .andExpect(status().isNotModified());
+
+        verify(socksService, never()).getSocksCount(any(), any(), anyInt());
+    }
+
     @Test
     void testCountSocksInvalidComparison() throws Exception {
         mockMvc.perform(get("/api/socks")
@@ -108,6 +195,19 @@ public class SocksControllerTest {
                 .andExpect(content().string("Invalid comparison operator"));
     }
 
+    @Test
+    void testStreamChangesResumesFromLastEventId() throws Exception {
+        when(socksService.subscribeToChanges(List.of("black"), "run-42")).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/socks/changes")
+                        .param("color", "black")
+                        .param("since", "run-7")
+                        .header("Last-Event-ID", "run-42"))
+                .andExpect(status().isOk());
+
+        verify(socksService).subscribeToChanges(List.of("black"), "run-42");
+    }
+
     @Test
     void testUpdateSocks() throws Exception {
         SocksDto socksDto = DtoGeneratorHelper.generateSocksDto();
@@ -138,13 +238,27 @@ public class SocksControllerTest {
     void testUploadBatch() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "socks.csv", "text/csv",
                 "color,cottonPercentage,quantity\nred,50,100\nblue,70,150".getBytes());
+        when(socksService.uploadFile(any(), any())).thenReturn(true);
 
         mockMvc.perform(multipart("/api/socks/batch")
                         .file(file))
                 .andExpect(status().isOk())
                 .andExpect(content().string("Batch upload successful"));
 
-        verify(socksService).uploadFile(any());
+        verify(socksService).uploadFile(any(), eq(null));
+    }
+
+    @Test
+    void testUploadBatchAlreadyImported() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "socks.csv", "text/csv",
+                "color,cottonPercentage,quantity\nred,50,100".getBytes());
+        when(socksService.uploadFile(any(), eq("upload-1"))).thenReturn(false);
+
+        mockMvc.perform(multipart("/api/socks/batch")
+                        .file(file)
+                        .param("uploadId", "upload-1"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Batch already imported, nothing changed"));
     }
 
     @Test
@@ -156,4 +270,55 @@ public class SocksControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string("File is empty"));
     }
+
+    @Test
+    void testUploadBatchAsync() throws Exception {
+        UUID jobId = UUID.randomUUID();
+        MockMultipartFile file = new MockMultipartFile("file", "socks.csv", "text/csv",
+                "color,cottonPercentage,quantity\nred,50,100".getBytes());
+
+        when(socksService.uploadFileAsync(any(), any())).thenReturn(jobId);
+
+        mockMvc.perform(multipart("/api/socks/batch")
+                        .file(file)
+                        .param("async", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/socks/batch/" + jobId))
+                .andExpect(content().string(jobId.toString()));
+
+        verify(socksService, never()).uploadFile(any(), any());
+    }
+
+    @Test
+    void testUploadBatchAsyncRejected() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "socks.csv", "text/csv",
+                "color,cottonPercentage,quantity\nred,50,100".getBytes());
+
+        when(socksService.uploadFileAsync(any(), any()))
+                .thenThrow(new ServiceOverloadedException("Too many batch uploads in progress, try again later",
+                        Duration.ofSeconds(30)));
+
+        mockMvc.perform(multipart("/api/socks/batch")
+                        .file(file)
+                        .param("async", "true"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "30"));
+    }
+
+    @Test
+    void testGetBatchJob() throws Exception {
+        UUID jobId = UUID.randomUUID();
+        when(socksService.getUploadJob(jobId)).thenReturn(BatchJobStatusDto.builder()
+                .jobId(jobId)
+                .status("RUNNING")
+                .rowsParsed(5000)
+                .rowsApplied(4000)
+                .build());
+
+        mockMvc.perform(get("/api/socks/batch/" + jobId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("RUNNING"))
+                .andExpect(jsonPath("$.rowsParsed").value(5000))
+                .andExpect(jsonPath("$.rowsApplied").value(4000));
+    }
 }
@@ -0,0 +1,97 @@
+package org.example.socksproject.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionLimitingDataSourceTest {
+
+    @Mock
+    private DataSource targetDataSource;
+
+    @Mock
+    private Connection connection;
+
+    private ConnectionLimitingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new ConnectionLimitingDataSource(targetDataSource, 2, Duration.ofMillis(50));
+        lenient().when(targetDataSource.getConnection()).thenReturn(connection);
+    }
+
+    @Test
+    void testCallersBeyondTheLimitTimeOut() throws SQLException {
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        verify(targetDataSource, times(2)).getConnection();
+    }
+
+    @Test
+    void testClosingReturnsThePermitOnce() throws SQLException {
+        Connection first = dataSource.getConnection();
+        dataSource.getConnection();
+
+        first.close();
+        first.close();
+
+        dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        verify(connection, times(2)).close();
+    }
+
+    @Test
+    void testPermitIsReturnedWhenThePoolFails() throws SQLException {
+        when(targetDataSource.getConnection()).thenThrow(new SQLException("pool failure")).thenReturn(connection);
+
+        assertThrows(SQLException.class, dataSource::getConnection);
+
+        dataSource.getConnection();
+        dataSource.getConnection();
+    }
+
+    @Test
+    void testSecondConnectionOfAThreadNeedsNoPermit() throws SQLException {
+        dataSource.getConnection();
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        verify(targetDataSource, times(3)).getConnection();
+        assertThrows(SQLTransientConnectionException.class, () -> runOnOtherThread(dataSource::getConnection));
+    }
+
+    private static void runOnOtherThread(ThrowingAction action) throws Exception {
+        Exception[] failure = new Exception[1];
+        Thread thread = new Thread(() -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                failure[0] = e;
+            }
+        });
+        thread.start();
+        thread.join();
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThrowingAction {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.socksproject.datasource;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.repository.ColorDictionary;
+import org.example.socksproject.repository.SocksRepository;
+import org.example.socksproject.service.SocksService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two embedded PostgreSQL instances stand in for primary and replica. They do not replicate, so rows written
+ * only to the replica show which instance a read went to.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class ReadReplicaRoutingTest {
+
+    private static final EmbeddedPostgres primary = startPostgres();
+
+    private static final EmbeddedPostgres replica = startPostgres();
+
+    @Autowired
+    private SocksService socksService;
+
+    @Autowired
+    private SocksRepository socksRepository;
+
+    @Autowired
+    private ColorDictionary colorDictionary;
+
+    @Autowired
+    private ReplicaMonitor replicaMonitor;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        Flyway.configure().dataSource(replica.getPostgresDatabase()).load().migrate();
+        registry.add("spring.datasource.url", () -> primary.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("socks.replica.enabled", () -> "true");
+        registry.add("socks.replica.url", () -> replica.getJdbcUrl("postgres", "postgres"));
+        registry.add("socks.replica.username", () -> "postgres");
+        registry.add("socks.replica.check-interval", () -> "PT1H");
+        registry.add("socks.inventory-index.enabled", () -> "false");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        primary.close();
+    }
+
+    @Test
+    void testReadOnlyTransactionsUseReplicaUntilItStops() throws IOException {
+        socksService.incomeSocks(SocksDto.builder().color("red").cottonPercentage(50).quantity(5).build());
+        int colorId = colorDictionary.idOf("red");
+        JdbcTemplate replicaJdbc = new JdbcTemplate(replica.getPostgresDatabase());
+        replicaJdbc.update("INSERT INTO socks_color (id, name) VALUES (?, 'red')", colorId);
+        replicaJdbc.update("INSERT INTO socks (color_id, cotton_percentage, quantity, version) "
+                + "VALUES (?, 50, 5, 0), (?, 60, 5, 0)", colorId, colorId);
+
+        replicaMonitor.check();
+
+        assertTrue(replicaMonitor.isAvailable());
+        assertEquals(2, socksService.getSocksCount("red", "moreThan", 0));
+        // Declared @Transactional, so it reads the primary.
+        assertEquals(1, socksRepository.countRowsByKey().size());
+
+        replica.close();
+        replicaMonitor.check();
+
+        assertFalse(replicaMonitor.isAvailable());
+        assertEquals(1, socksService.getSocksCount("red", "moreThan", 0));
+    }
+
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.socksproject.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaMonitorTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Statement primaryStatement;
+
+    @Mock
+    private ResultSet primaryResultSet;
+
+    @Mock
+    private DataSource replica;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Statement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private long nanoTime;
+
+    private ReplicaMonitor monitor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        monitor = new ReplicaMonitor(primary, replica, Duration.ofSeconds(5), () -> nanoTime);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(primaryConnection.createStatement()).thenReturn(primaryStatement);
+        when(primaryStatement.executeQuery(anyString())).thenReturn(primaryResultSet);
+        when(primaryResultSet.next()).thenReturn(true);
+        when(replica.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+    }
+
+    @Test
+    void testReplicaCaughtUpWithPrimaryIsAvailable() throws SQLException {
+        positions(100, 100);
+
+        monitor.check();
+
+        assertTrue(monitor.isAvailable());
+    }
+
+    @Test
+    void testReplicaPastAnEarlierSampleIsAvailable() throws SQLException {
+        positions(100, 90);
+        monitor.check();
+        assertFalse(monitor.isAvailable());
+        nanoTime += Duration.ofSeconds(1).toNanos();
+        positions(200, 150);
+
+        monitor.check();
+
+        assertTrue(monitor.isAvailable());
+    }
+
+    @Test
+    void testReplicaBeyondStalenessIsUnavailable() throws SQLException {
+        positions(100, 100);
+        monitor.check();
+        nanoTime += Duration.ofSeconds(6).toNanos();
+        positions(200, 100);
+
+        monitor.check();
+
+        assertFalse(monitor.isAvailable());
+    }
+
+    @Test
+    void testDisconnectedReceiverMakesReplicaUnavailable() throws SQLException {
+        positions(100, 100);
+        monitor.check();
+        when(resultSet.getBoolean(3)).thenReturn(false);
+
+        monitor.check();
+
+        assertFalse(monitor.isAvailable());
+    }
+
+    @Test
+    void testServerNotInRecoveryIsAvailable() throws SQLException {
+        when(primaryResultSet.getLong(1)).thenReturn(100L);
+        when(resultSet.getBoolean(1)).thenReturn(false);
+
+        monitor.check();
+
+        assertTrue(monitor.isAvailable());
+    }
+
+    @Test
+    void testFailedPrimaryMakesReplicaUnavailable() throws SQLException {
+        positions(100, 100);
+        monitor.check();
+        when(primary.getConnection()).thenThrow(new SQLTransientConnectionException("Connection is not available"));
+
+        monitor.check();
+
+        assertFalse(monitor.isAvailable());
+    }
+
+    @Test
+    void testFailedConnectionMakesReplicaUnavailable() throws SQLException {
+        positions(100, 100);
+        monitor.check();
+        when(replica.getConnection()).thenThrow(new SQLTransientConnectionException("Connection is not available"));
+
+        monitor.check();
+
+        assertFalse(monitor.isAvailable());
+    }
+
+    @Test
+    void testFallbackDataSourceUsesPrimaryWhenReplicaFails() throws SQLException {
+        positions(100, 100);
+        monitor.check();
+        reset(replica);
+        when(replica.getConnection()).thenThrow(new SQLTransientConnectionException("Connection is not available"));
+        ReplicaFallbackDataSource dataSource = new ReplicaFallbackDataSource(replica, primary, monitor);
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        assertFalse(monitor.isAvailable());
+        assertSame(primaryConnection, dataSource.getConnection());
+        verify(replica, times(1)).getConnection();
+    }
+
+    private void positions(long primaryLsn, long replayLsn) throws SQLException {
+        when(primaryResultSet.getLong(1)).thenReturn(primaryLsn);
+        when(resultSet.getBoolean(1)).thenReturn(true);
+        when(resultSet.getLong(2)).thenReturn(replayLsn);
+        when(resultSet.getBoolean(3)).thenReturn(true);
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.socksproject.logging;
+
+import org.example.socksproject.config.SocksProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestLogTest {
+
+    @Test
+    void testOperationsAreSampledAtTheirRate() {
+        SocksProperties socksProperties = new SocksProperties();
+        socksProperties.getLogging().setSampleRates(Map.of("count", 0.0, "income", 0.5));
+        socksProperties.getLogging().setDefaultSampleRate(1.0);
+        RequestLog requestLog = new RequestLog(socksProperties);
+
+        long income = IntStream.range(0, 10_000).filter(i -> requestLog.sampled("income")).count();
+
+        assertFalse(requestLog.sampled("count"));
+        assertTrue(requestLog.sampled("report"));
+        assertTrue(income > 4_000 && income < 6_000, "sampled " + income + " of 10000");
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.socksproject.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.example.socksproject.config.SocksProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SocksMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SocksMetrics socksMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        SocksProperties socksProperties = new SocksProperties();
+        socksProperties.getMetrics().setColorTags(List.of("black"));
+        socksMetrics = new SocksMetrics(meterRegistry, socksProperties);
+    }
+
+    @Test
+    void testColorsOutsideAllowListAreTaggedAsOther() {
+        socksMetrics.quantityMoved("in", "black", 10);
+        socksMetrics.quantityMoved("in", "red", 5);
+        socksMetrics.quantityMoved("in", "blue", 3);
+
+        assertEquals(10, meterRegistry.get("socks.quantity").tag("color", "black").counter().count());
+        assertEquals(8, meterRegistry.get("socks.quantity").tag("color", "other").counter().count());
+        assertEquals(2, meterRegistry.get("socks.quantity").counters().size());
+    }
+
+    @Test
+    void testBatchImportRecordsRowsAndRate() {
+        socksMetrics.batchImported(5000, 500_000_000L);
+
+        assertEquals(5000, meterRegistry.get("socks.batch.rows").counter().count());
+        assertEquals(10_000, meterRegistry.get("socks.batch.rows.per.second").gauge().value());
+    }
+
+    @Test
+    void testRoundTripsAreCountedOnlyWhileStarted() {
+        DbRoundTrips.executed();
+        DbRoundTrips.start();
+        DbRoundTrips.executed();
+        DbRoundTrips.executed();
+
+        assertEquals(2, DbRoundTrips.stop());
+        assertEquals(-1, DbRoundTrips.stop());
+    }
+
+    @Test
+    void testAsyncRequestIsRecordedAndClearedWhenThreadIsReleased() throws Exception {
+        DbRoundTripInterceptor interceptor = new DbRoundTripInterceptor(socksMetrics);
+        HandlerMethod handler = new HandlerMethod(this, getClass().getDeclaredMethod("setUp"));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, handler);
+        DbRoundTrips.executed();
+        interceptor.afterConcurrentHandlingStarted(request, response, handler);
+
+        assertEquals(-1, DbRoundTrips.stop());
+        request.setDispatcherType(DispatcherType.ASYNC);
+        interceptor.preHandle(request, response, handler);
+        interceptor.afterCompletion(request, response, handler, null);
+        assertEquals(1, meterRegistry.get("socks.db.round.trips").summary().count());
+        assertEquals(1, meterRegistry.get("socks.db.round.trips").summary().totalAmount());
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.socksproject.repository;
+
+import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.helper.PostgresIntegrationTest;
+import org.example.socksproject.model.Socks;
+import org.example.socksproject.service.SocksService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@PostgresIntegrationTest
+class ColorDictionaryTest {
+
+    @Autowired
+    private ColorDictionary colorDictionary;
+
+    @Autowired
+    private SocksService socksService;
+
+    @Autowired
+    private SocksRepository socksRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void testColorsDifferingInCaseAndSpacesShareOneRow() {
+        socksService.incomeSocks(SocksDto.builder().color("Navy").cottonPercentage(40).quantity(3).build());
+        socksService.incomeSocks(SocksDto.builder().color(" navy ").cottonPercentage(40).quantity(4).build());
+
+        Socks socks = socksRepository.findByColorAndCottonPercentage("navy", 40).orElseThrow();
+        assertEquals(7, socks.getQuantity());
+        assertEquals(1, socksService.getSocksCount("NAVY", "equal", 40));
+        assertEquals("navy", jdbcTemplate.queryForObject("SELECT c.name FROM socks s " +
+                "JOIN socks_color c ON c.id = s.color_id WHERE s.id = ?", String.class, socks.getId()));
+    }
+
+    @Test
+    void testConcurrentFirstUseCreatesOneId() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> ids = IntStream.range(0, 8)
+                    .mapToObj(i -> executor.submit(() -> colorDictionary.idOf("teal")))
+                    .toList();
+            Set<Integer> distinct = ids.stream().map(this::join).collect(Collectors.toSet());
+
+            assertEquals(1, distinct.size());
+            assertEquals("teal", colorDictionary.nameOf(distinct.iterator().next()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testColorCreatedInRolledBackTransactionIsNotCached() {
+        transactionTemplate.executeWithoutResult(status -> {
+            int id = colorDictionary.idOf("crimson");
+            assertEquals(OptionalInt.of(id), colorDictionary.find("crimson"));
+            assertEquals("crimson", colorDictionary.nameOf(id));
+            status.setRollbackOnly();
+        });
+
+        assertTrue(colorDictionary.cached("crimson").isEmpty());
+        assertTrue(colorDictionary.find("crimson").isEmpty());
+    }
+
+    @Test
+    void testFindDoesNotCreateColors() {
+        assertTrue(colorDictionary.find("no-such-color").isEmpty());
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM socks_color WHERE name = 'no-such-color'", Integer.class));
+    }
+
+    private Integer join(Future<Integer> future) {
+        try {
+            return future.get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.socksproject.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.example.socksproject.service.SocksService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the application on a database created by Hibernate before the migrations existed: the legacy socks
+ * table with color names and no schema history. Flyway must baseline it and convert the rows.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class LegacySchemaMigrationTest {
+
+    private static final EmbeddedPostgres postgres = startLegacyDatabase();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SocksRepository socksRepository;
+
+    @Autowired
+    private SocksService socksService;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void testLegacyDatabaseIsBaselinedAndMigrated() {
+        List<String> history = jdbcTemplate.queryForList(
+                "SELECT version || ':' || type FROM flyway_schema_history ORDER BY installed_rank", String.class);
+        assertEquals(List.of("1:BASELINE", "2:SQL"), history);
+
+        assertEquals(List.of("blue", "red"),
+                jdbcTemplate.queryForList("SELECT name FROM socks_color ORDER BY name", String.class));
+        Map<String, Object> red = jdbcTemplate.queryForMap("SELECT s.quantity, s.version FROM socks s " +
+                "JOIN socks_color c ON c.id = s.color_id WHERE c.name = 'red' AND s.cotton_percentage = 50");
+        assertEquals(17, red.get("quantity"));
+        assertEquals(3, red.get("version"));
+        assertEquals(3, socksRepository.count());
+    }
+
+    @Test
+    void testMigratedRowsAreReachableByNormalizedNames() {
+        assertEquals(17, socksRepository.findByColorAndCottonPercentage("red", 50).orElseThrow().getQuantity());
+        assertEquals(2, socksService.getSocksCount(" RED ", "moreThan", 0));
+        assertEquals(1, socksService.getSocksCount("Blue", "equal", 80));
+    }
+
+    private static EmbeddedPostgres startLegacyDatabase() {
+        try {
+            EmbeddedPostgres postgres = EmbeddedPostgres.start();
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+            jdbcTemplate.execute("create table socks (cotton_percentage integer not null, " +
+                    "quantity integer not null, version integer not null, " +
+                    "id bigint generated by default as identity, color varchar(255) not null, primary key (id))");
+            jdbcTemplate.update("INSERT INTO socks (color, cotton_percentage, quantity, version) VALUES " +
+                    "('red', 50, 10, 2), ('Red', 50, 4, 0), (' red ', 50, 3, 1), " +
+                    "('red', 60, 1, 0), ('BLUE', 80, 6, 0)");
+            return postgres;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
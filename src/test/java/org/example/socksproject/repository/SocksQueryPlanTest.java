@@ -0,0 +1,81 @@
+package org.example.socksproject.repository;
+
+import org.example.socksproject.helper.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks on a populated table that the statements behind the service's queries are planned on the indexes
+ * of the migrations rather than as sequential scans. The SQL mirrors what Hibernate generates for the
+ * repository methods named in each test.
+ */
+@PostgresIntegrationTest
+class SocksQueryPlanTest {
+
+    private static final String KEY_INDEX = "uk_socks_color_cotton_percentage";
+    private static final String COVERING_INDEX = "ix_socks_cotton_percentage_quantity";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private int colorId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM socks");
+        jdbcTemplate.update("INSERT INTO socks_color (name) " +
+                "SELECT 'plan-' || n FROM generate_series(1, 200) n ON CONFLICT (name) DO NOTHING");
+        jdbcTemplate.update("INSERT INTO socks (color_id, cotton_percentage, quantity, version) " +
+                "SELECT c.id, p, 10, 0 FROM socks_color c, generate_series(0, 100) p WHERE c.name LIKE 'plan-%'");
+        jdbcTemplate.execute("VACUUM ANALYZE socks");
+        colorId = jdbcTemplate.queryForObject("SELECT id FROM socks_color WHERE name = 'plan-1'", Integer.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM socks");
+    }
+
+    @Test
+    void testLookupByKeyUsesUniqueIndex() {
+        // findByColorAndCottonPercentage, existsByColorAndCottonPercentage, decrementQuantity
+        assertUsesIndex(KEY_INDEX, "SELECT id, quantity, version FROM socks " +
+                "WHERE color_id = " + colorId + " AND cotton_percentage = 50");
+    }
+
+    @Test
+    void testCountsUseUniqueIndex() {
+        // countSocksByColorAndCottonPercentageGreaterThan / LessThan
+        assertUsesIndex(KEY_INDEX, "SELECT count(id) FROM socks " +
+                "WHERE color_id = " + colorId + " AND cotton_percentage > 90");
+        assertUsesIndex(KEY_INDEX, "SELECT count(id) FROM socks " +
+                "WHERE color_id = " + colorId + " AND cotton_percentage < 10");
+    }
+
+    @Test
+    void testReportSumsUseCoveringIndex() {
+        // sumQuantityByColor, sumQuantityByCottonPercentage
+        String byColor = explain("SELECT color_id, sum(quantity) FROM socks " +
+                "WHERE cotton_percentage BETWEEN 40 AND 42 GROUP BY color_id");
+        assertTrue(byColor.contains("Index Only Scan using " + COVERING_INDEX), byColor);
+
+        String byCotton = explain("SELECT cotton_percentage, sum(quantity) FROM socks " +
+                "WHERE cotton_percentage BETWEEN 40 AND 42 GROUP BY cotton_percentage ORDER BY cotton_percentage");
+        assertTrue(byCotton.contains("Index Only Scan using " + COVERING_INDEX), byCotton);
+    }
+
+    private void assertUsesIndex(String index, String sql) {
+        String plan = explain(sql);
+        assertTrue(plan.contains(index), plan);
+        assertFalse(plan.contains("Seq Scan"), plan);
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+}
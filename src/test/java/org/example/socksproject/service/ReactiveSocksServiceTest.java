@@ -0,0 +1,177 @@
+package org.example.socksproject.service;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.model.Socks;
+import org.example.socksproject.repository.SocksRepository;
+import org.example.socksproject.service.batch.BatchImportResult;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The behavior tested for {@code SocksServiceImpl}, against the reactive service. JDBC and R2DBC need to reach the
+ * same database, so it runs its own embedded PostgreSQL instead of {@code @PostgresIntegrationTest}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles({"test", "reactive"})
+class ReactiveSocksServiceTest {
+
+    private static final EmbeddedPostgres postgres = startPostgres();
+
+    @Autowired
+    private ReactiveSocksService reactiveSocksService;
+
+    @Autowired
+    private SocksService socksService;
+
+    @Autowired
+    private SocksRepository socksRepository;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.main.web-application-type", () -> "none");
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://localhost:" + postgres.getPort() + "/postgres");
+        registry.add("spring.r2dbc.username", () -> "postgres");
+        registry.add("socks.batch.chunk-size", () -> "2");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        socksRepository.deleteAll();
+    }
+
+    @Test
+    void testIncomeSocksCreatesAndAddsUp() {
+        reactiveSocksService.incomeSocks(socks(" Black ", 50, 10)).block();
+        reactiveSocksService.incomeSocks(socks("black", 50, 5)).block();
+
+        assertEquals(15, quantity("black", 50));
+    }
+
+    @Test
+    void testCountsMatchBlockingService() {
+        for (int cottonPercentage : new int[]{10, 50, 50, 90}) {
+            reactiveSocksService.incomeSocks(socks("red", cottonPercentage, 3)).block();
+        }
+
+        for (String comparison : List.of("moreThan", "lessThan", "equal")) {
+            for (int cottonPercentage : new int[]{0, 10, 50, 100}) {
+                assertEquals(socksService.getSocksCount("red", comparison, cottonPercentage),
+                        reactiveSocksService.getSocksCount("red", comparison, cottonPercentage).block(),
+                        comparison + " " + cottonPercentage);
+            }
+        }
+        assertEquals(0, reactiveSocksService.getSocksCount("never-stocked", "moreThan", 0).block());
+    }
+
+    @Test
+    void testGetSocksCountInvalidComparison() {
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> reactiveSocksService.getSocksCount("red", "invalid", 50).block());
+
+        assertEquals("Invalid comparison", exception.getMessage());
+    }
+
+    @Test
+    void testOutcomeSocksWhenSufficientQuantity() {
+        socksRepository.save(new Socks(null, "black", 50, 10));
+
+        reactiveSocksService.outcomeSocks(socks("black", 50, 4)).block();
+
+        assertEquals(6, quantity("black", 50));
+    }
+
+    @Test
+    void testOutcomeSocksWhenInsufficientQuantity() {
+        socksRepository.save(new Socks(null, "black", 50, 3));
+
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> reactiveSocksService.outcomeSocks(socks("black", 50, 4)).block());
+
+        assertEquals("Not enough socks", exception.getMessage());
+        assertEquals(3, quantity("black", 50));
+    }
+
+    @Test
+    void testOutcomeSocksWhenSocksNotFound() {
+        socksRepository.save(new Socks(null, "black", 50, 3));
+
+        Exception otherKey = assertThrows(IllegalArgumentException.class,
+                () -> reactiveSocksService.outcomeSocks(socks("black", 60, 1)).block());
+        Exception unknownColor = assertThrows(IllegalArgumentException.class,
+                () -> reactiveSocksService.outcomeSocks(socks("never-stocked", 50, 1)).block());
+
+        assertEquals("No socks with parameters", otherKey.getMessage());
+        assertEquals("No socks with parameters", unknownColor.getMessage());
+    }
+
+    @Test
+    void testUploadBatchSumsRowsAcrossChunks() {
+        Flux<String> lines = Flux.just("color,cottonPercentage,quantity",
+                "black,50,1", "white,20,2", "Black,50,3", "", "white,20,4", "green,70,5");
+
+        BatchImportResult result = reactiveSocksService.uploadBatch(lines).block();
+
+        assertEquals(new BatchImportResult(5, 3), result);
+        assertEquals(4, quantity("black", 50));
+        assertEquals(6, quantity("white", 20));
+        assertEquals(5, quantity("green", 70));
+    }
+
+    @Test
+    void testUploadBatchStopsAtInvalidRow() {
+        Flux<String> lines = Flux.just("color,cottonPercentage,quantity",
+                "black,50,1", "white,20,2", "black,50,3", "white,101,4");
+
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> reactiveSocksService.uploadBatch(lines).block());
+
+        assertTrue(exception.getMessage().startsWith("Invalid data in CSV file: row 4"), exception.getMessage());
+        // The first chunk was written before the invalid row was read.
+        assertEquals(1, quantity("black", 50));
+    }
+
+    @Test
+    void testUploadBatchEmptyFile() {
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> reactiveSocksService.uploadBatch(Flux.empty()).block());
+
+        assertEquals("File is empty", exception.getMessage());
+    }
+
+    private int quantity(String color, int cottonPercentage) {
+        return socksRepository.findByColorAndCottonPercentage(color, cottonPercentage).orElseThrow().getQuantity();
+    }
+
+    private static SocksDto socks(String color, int cottonPercentage, int quantity) {
+        return SocksDto.builder().color(color).cottonPercentage(cottonPercentage).quantity(quantity).build();
+    }
+
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
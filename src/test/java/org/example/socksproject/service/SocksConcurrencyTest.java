@@ -0,0 +1,201 @@
+package org.example.socksproject.service;
+
+import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.dto.SocksMovementDto;
+import org.example.socksproject.helper.PostgresIntegrationTest;
+import org.example.socksproject.model.Socks;
+import org.example.socksproject.repository.SocksRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@PostgresIntegrationTest
+// Enough update attempts that no retried update runs out of them however the threads are scheduled.
+@TestPropertySource(properties = "socks.retry.operations.update.max-attempts=1000")
+class SocksConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SocksConcurrencyTest.class);
+
+    private static final int THREADS = 16;
+    private static final int INCOMES_PER_THREAD = 200;
+
+    @Autowired
+    private SocksService socksService;
+
+    @Autowired
+    private SocksRepository socksRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        socksRepository.deleteAll();
+    }
+
+    @Test
+    void testConcurrentIncomeHasNoLostUpdatesOrConflicts() throws Exception {
+        SocksDto income = SocksDto.builder().color("black").cottonPercentage(50).quantity(1).build();
+
+        Result upsert = run(() -> socksService.incomeSocks(income));
+
+        assertEquals(0, upsert.failures());
+        assertEquals(1, socksRepository.count());
+        assertEquals(THREADS * INCOMES_PER_THREAD,
+                socksRepository.findByColorAndCottonPercentage("black", 50).orElseThrow().getQuantity());
+
+        socksRepository.save(new Socks(null, "white", 50, 0));
+        Result readModifyWrite = run(() -> transactionTemplate.executeWithoutResult(status -> {
+            Socks socks = socksRepository.findByColorAndCottonPercentage("white", 50).orElseThrow();
+            socks.setQuantity(socks.getQuantity() + 1);
+            socksRepository.save(socks);
+        }));
+
+        double ratio = upsert.opsPerSecond() / readModifyWrite.opsPerSecond();
+        log.info("Concurrent income: upsert={} ops/s ({} failures), read-modify-write={} ops/s ({} failures), ratio={}",
+                Math.round(upsert.opsPerSecond()), upsert.failures(),
+                Math.round(readModifyWrite.opsPerSecond()), readModifyWrite.failures(), String.format("%.2f", ratio));
+
+        // Absolute throughput depends on the machine, so the bound is loose: the upsert must not fall far behind
+        // a path that loses most of its writes to conflicts.
+        assertTrue(ratio > 0.5, "upsert/read-modify-write throughput ratio " + ratio);
+        assertEquals(readModifyWrite.successes(),
+                socksRepository.findByColorAndCottonPercentage("white", 50).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testConcurrentOutcomeNeverOversells() throws Exception {
+        int stock = THREADS * INCOMES_PER_THREAD / 2;
+        socksRepository.save(new Socks(null, "black", 50, stock));
+        SocksDto outcome = SocksDto.builder().color("black").cottonPercentage(50).quantity(1).build();
+
+        Result result = run(() -> socksService.outcomeSocks(outcome));
+
+        assertEquals(stock, result.successes());
+        assertEquals(THREADS * INCOMES_PER_THREAD - stock, result.failures());
+        assertEquals(0, socksRepository.findByColorAndCottonPercentage("black", 50).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testConcurrentMovementsInOppositeOrderDoNotDeadlock() throws Exception {
+        socksRepository.save(new Socks(null, "black", 50, 0));
+        socksRepository.save(new Socks(null, "white", 50, 0));
+        List<SocksMovementDto> forward = List.of(movement("black", 1), movement("white", 1));
+        List<SocksMovementDto> backward = List.of(movement("white", 1), movement("black", 1));
+        AtomicInteger calls = new AtomicInteger();
+
+        Result result = run(() -> socksService.applyMovements(calls.incrementAndGet() % 2 == 0 ? forward : backward));
+
+        assertEquals(0, result.failures());
+        assertEquals(THREADS * INCOMES_PER_THREAD,
+                socksRepository.findByColorAndCottonPercentage("black", 50).orElseThrow().getQuantity());
+        assertEquals(THREADS * INCOMES_PER_THREAD,
+                socksRepository.findByColorAndCottonPercentage("white", 50).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testMovementsAreAllOrNothing() {
+        socksRepository.save(new Socks(null, "black", 50, 5));
+
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> socksService.applyMovements(List.of(
+                movement("red", 70, 10), movement("black", 50, -3), movement("black", 50, -3))));
+
+        assertEquals("Movement 2: Not enough socks", exception.getMessage());
+        assertEquals(5, socksRepository.findByColorAndCottonPercentage("black", 50).orElseThrow().getQuantity());
+        assertTrue(socksRepository.findByColorAndCottonPercentage("red", 70).isEmpty());
+    }
+
+    @Test
+    void testConflictRetryCompletesMoreUpdatesThanSingleAttempts() throws Exception {
+        Socks saved = socksRepository.save(new Socks(null, "black", 50, 0));
+        // Every update sets a new quantity, so each one bumps the version and can conflict with the others.
+        AtomicInteger quantities = new AtomicInteger();
+        // The service without its proxy, run in a transaction of its own: the update with a single attempt.
+        SocksService singleAttempt = AopTestUtils.getUltimateTargetObject(socksService);
+
+        Result baseline = run(() -> transactionTemplate.executeWithoutResult(status -> singleAttempt.updateSocks(
+                saved.getId(), SocksDto.builder().color("black").cottonPercentage(50)
+                        .quantity(quantities.incrementAndGet()).build())));
+        int baselineVersion = socksRepository.findById(saved.getId()).orElseThrow().getVersion();
+        Result retried = run(() -> socksService.updateSocks(saved.getId(), SocksDto.builder()
+                .color("black").cottonPercentage(50).quantity(quantities.incrementAndGet()).build()));
+
+        log.info("Concurrent update: single attempt {} conflicts, p99 {} ms; with retry {} conflicts, p99 {} ms",
+                baseline.failures(), baseline.p99Millis(), retried.failures(), retried.p99Millis());
+
+        assertTrue(baseline.failures() > 0, "single attempts should conflict under contention");
+        assertEquals(0, retried.failures());
+        assertEquals(saved.getVersion() + baseline.successes(), baselineVersion);
+        Socks updated = socksRepository.findById(saved.getId()).orElseThrow();
+        assertEquals(baselineVersion + THREADS * INCOMES_PER_THREAD, updated.getVersion());
+        assertTrue(updated.getQuantity() >= 1 && updated.getQuantity() <= quantities.get());
+    }
+
+    private static SocksMovementDto movement(String color, int quantity) {
+        return movement(color, 50, quantity);
+    }
+
+    private static SocksMovementDto movement(String color, int cottonPercentage, int quantity) {
+        return SocksMovementDto.builder().color(color).cottonPercentage(cottonPercentage).quantity(quantity).build();
+    }
+
+    private Result run(Runnable income) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        long[] latencies = new long[THREADS * INCOMES_PER_THREAD];
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < THREADS; i++) {
+            executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < INCOMES_PER_THREAD; j++) {
+                    long callStartedAt = System.nanoTime();
+                    try {
+                        income.run();
+                        successes.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                    latencies[calls.getAndIncrement()] = System.nanoTime() - callStartedAt;
+                }
+                return null;
+            });
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+        return new Result(successes.get(), failures.get(), System.nanoTime() - startedAt, latencies);
+    }
+
+    private record Result(int successes, int failures, long elapsedNanos, long[] latencies) {
+
+        double opsPerSecond() {
+            return successes * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        double p99Millis() {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            return sorted[(int) (sorted.length * 0.99)] / 1_000_000.0;
+        }
+    }
+}
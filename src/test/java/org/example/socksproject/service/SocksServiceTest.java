@@ -1,22 +1,55 @@
 package org.example.socksproject.service;
 
+import org.example.socksproject.config.SocksProperties;
 import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.dto.SocksMovementDto;
+import org.example.socksproject.dto.SocksReportDto;
 import org.example.socksproject.helper.DtoGeneratorHelper;
+import org.example.socksproject.metrics.SocksMetrics;
 import org.example.socksproject.model.Socks;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.repository.ColorDictionary;
 import org.example.socksproject.repository.SocksRepository;
+import org.example.socksproject.service.batch.BatchImportJobService;
+import org.example.socksproject.service.batch.BatchImportResult;
+import org.example.socksproject.service.batch.ImportCheckpoint;
+import org.example.socksproject.service.batch.ImportCheckpointService;
+import org.example.socksproject.service.batch.ParallelCsvImporter;
+import org.example.socksproject.service.batch.SocksBatchImporter;
+import org.example.socksproject.service.changes.SocksChangeFeed;
+import org.example.socksproject.service.impl.SocksServiceImpl;
+import org.example.socksproject.service.export.SocksExporter;
+import org.example.socksproject.service.inventory.SocksInventoryIndex;
+import org.example.socksproject.service.ledger.SocksLedger;
+import org.example.socksproject.service.ledger.SocksLedgerCompactor;
+import org.example.socksproject.service.report.SocksReporter;
+import org.example.socksproject.service.wal.IncomeWriteAheadLog;
+import org.example.socksproject.service.write.IncomeWriteCombiner;
+import org.example.socksproject.service.write.SocksIncomeWriter;
+import org.example.socksproject.service.write.SocksMovementWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,8 +58,62 @@ class SocksServiceImplTest {
     @Mock
     private SocksRepository socksRepository;
 
+    @Mock
+    private ColorDictionary colorDictionary;
+
+    @Mock
+    private SocksInventoryIndex inventoryIndex;
+
+    @Mock
+    private SocksBatchImporter batchImporter;
+
+    @Mock
+    private ParallelCsvImporter parallelCsvImporter;
+
+    @Mock
+    private BatchImportJobService batchImportJobService;
+
+    @Mock
+    private ImportCheckpointService checkpointService;
+
+    @Mock
+    private SocksIncomeWriter incomeWriter;
+
+    @Mock
+    private IncomeWriteCombiner writeCombiner;
+
+    @Mock
+    private SocksMovementWriter movementWriter;
+
+    @Spy
+    private SocksProperties socksProperties = new SocksProperties();
+
+    @Mock
+    private SocksMetrics socksMetrics;
+
+    @Mock
+    private SocksReporter reporter;
+
+    @Mock
+    private SocksExporter exporter;
+
+    @Mock
+    private SocksChangeFeed changeFeed;
+
+    @Mock
+    private SocksLedger ledger;
+
+    @Mock
+    private SocksLedgerCompactor ledgerCompactor;
+
+    @Mock
+    private IncomeWriteAheadLog writeAheadLog;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
-    private SocksService socksService;
+    private SocksServiceImpl socksService;
 
     private Socks existingSocks;
 
@@ -36,45 +123,51 @@ class SocksServiceImplTest {
     }
 
     @Test
-    void testIncomeSocksWhenSocksExist() {
+    void testIncomeSocks() {
         SocksDto socksDto = DtoGeneratorHelper.generateSocksDto();
 
-        when(socksRepository.findByColorAndCottonPercentage("black", 50))
-                .thenReturn(Optional.of(existingSocks));
-
         socksService.incomeSocks(socksDto);
 
-        verify(socksRepository).save(any(Socks.class));
-        assertEquals(20, existingSocks.getQuantity());
+        verify(incomeWriter).apply(new SocksKey("black", 50), 10);
+        verify(writeCombiner, never()).income(any(), anyInt());
     }
 
     @Test
-    void testIncomeSocksWhenSocksDoNotExist() {
+    void testIncomeSocksWithWriteCombining() {
         SocksDto socksDto = DtoGeneratorHelper.generateSocksDto();
 
-        when(socksRepository.findByColorAndCottonPercentage("black", 50))
-                .thenReturn(Optional.empty());
+        when(writeCombiner.isEnabled()).thenReturn(true);
 
         socksService.incomeSocks(socksDto);
 
-        verify(socksRepository).save(argThat(socks ->
-                socks.getColor().equals("black") &&
-                        socks.getCottonPercentage() == 50 &&
-                        socks.getQuantity() == 10
-        ));
+        verify(writeCombiner).income(new SocksKey("black", 50), 10);
+        verifyNoInteractions(incomeWriter);
+    }
+
+    @Test
+    void testIncomeSocksWithWriteAheadLog() {
+        SocksDto socksDto = DtoGeneratorHelper.generateSocksDto();
+        when(writeAheadLog.isEnabled()).thenReturn(true);
+
+        socksService.incomeSocks(socksDto);
+
+        verify(writeAheadLog).append(new SocksKey("black", 50), 10);
+        verifyNoInteractions(incomeWriter, writeCombiner);
     }
 
     @Test
     void testOutcomeSocksWhenSufficientQuantity() {
         SocksDto socksDto = DtoGeneratorHelper.generateSocksDto();
 
-        when(socksRepository.findByColorAndCottonPercentage("black", 50))
-                .thenReturn(Optional.of(existingSocks));
+        when(colorDictionary.find("black")).thenReturn(OptionalInt.of(1));
+        when(socksRepository.decrementQuantity(1, 50, 10)).thenReturn(Optional.of(40));
 
         socksService.outcomeSocks(socksDto);
 
-        verify(socksRepository).save(any(Socks.class));
-        assertEquals(0, existingSocks.getQuantity());
+        verify(socksRepository).decrementQuantity(1, 50, 10);
+        verify(changeFeed).publishAfterCommit("outcome", new SocksKey("black", 50), -10, 40);
+        verify(socksRepository, never()).findByColorAndCottonPercentage(any(), anyInt());
+        verify(socksRepository, never()).save(any(Socks.class));
     }
 
     @Test
@@ -85,8 +178,9 @@ class SocksServiceImplTest {
                 .quantity(20)
                 .build();
 
-        when(socksRepository.findByColorAndCottonPercentage("black", 50))
-                .thenReturn(Optional.of(existingSocks));
+        when(colorDictionary.find("black")).thenReturn(OptionalInt.of(1));
+        when(socksRepository.decrementQuantity(1, 50, 20)).thenReturn(Optional.empty());
+        when(socksRepository.existsByColorAndCottonPercentage("black", 50)).thenReturn(true);
 
         Exception exception = assertThrows(IllegalArgumentException.class, () -> {
             socksService.outcomeSocks(socksDto);
@@ -94,14 +188,16 @@ class SocksServiceImplTest {
 
         assertEquals("Not enough socks", exception.getMessage());
         verify(socksRepository, never()).save(any(Socks.class));
+        verify(socksMetrics).rejected("outcome", "insufficient");
     }
 
     @Test
     void testOutcomeSocksWhenSocksNotFound() {
         SocksDto socksDto = DtoGeneratorHelper.generateSocksDto();
 
-        when(socksRepository.findByColorAndCottonPercentage("black", 50))
-                .thenReturn(Optional.empty());
+        when(colorDictionary.find("black")).thenReturn(OptionalInt.of(1));
+        when(socksRepository.decrementQuantity(1, 50, 10)).thenReturn(Optional.empty());
+        when(socksRepository.existsByColorAndCottonPercentage("black", 50)).thenReturn(false);
 
         Exception exception = assertThrows(IllegalArgumentException.class, () -> {
             socksService.outcomeSocks(socksDto);
@@ -110,17 +206,109 @@ class SocksServiceImplTest {
         assertEquals("No socks with parameters", exception.getMessage());
     }
 
+    @Test
+    void testOutcomeSocksOfUnknownColorSkipsDatabase() {
+        SocksDto socksDto = SocksDto.builder().color(" Purple").cottonPercentage(50).quantity(10).build();
+
+        when(colorDictionary.find("purple")).thenReturn(OptionalInt.empty());
+
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            socksService.outcomeSocks(socksDto);
+        });
+
+        assertEquals("No socks with parameters", exception.getMessage());
+        verifyNoInteractions(socksRepository);
+    }
+
+    @Test
+    void testLedgerReportCompactsAndReadsInReadWriteTransaction() {
+        SocksReportDto report = SocksReportDto.builder().groupBy("color").rows(List.of()).build();
+
+        when(ledger.isEnabled()).thenReturn(true);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(reporter.report("color", List.of(), 0, 100, 10)).thenReturn(report);
+
+        assertSame(report, socksService.getReport("color", List.of(), 0, 100, 10));
+
+        InOrder inOrder = inOrder(ledgerCompactor, transactionTemplate, reporter);
+        inOrder.verify(ledgerCompactor).compactPending();
+        inOrder.verify(transactionTemplate).execute(any());
+        inOrder.verify(reporter).report("color", List.of(), 0, 100, 10);
+    }
+
+    @Test
+    void testUpdateSocksConflict() {
+        SocksDto socksDto = DtoGeneratorHelper.generateSocksDto();
+
+        when(socksRepository.findById(1L)).thenReturn(Optional.of(existingSocks));
+        doThrow(new ObjectOptimisticLockingFailureException(Socks.class, 1L)).when(socksRepository).flush();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> socksService.updateSocks(1L, socksDto));
+
+        verifyNoInteractions(inventoryIndex, changeFeed);
+    }
+
+    @Test
+    void testUpdateSocksToOtherKeyPublishesBothKeys() {
+        SocksDto socksDto = SocksDto.builder().color("red").cottonPercentage(70).quantity(5).build();
+
+        when(socksRepository.findById(1L)).thenReturn(Optional.of(existingSocks));
+
+        socksService.updateSocks(1L, socksDto);
+
+        verify(inventoryIndex).rowMoved("black", 50, "red", 70);
+        verify(changeFeed).publishAfterCommit("update", new SocksKey("black", 50), -10, 0);
+        verify(changeFeed).publishAfterCommit("update", new SocksKey("red", 70), 5, 5);
+    }
+
+    @Test
+    void testApplyMovements() {
+        List<SocksMovementDto> movements = List.of(
+                SocksMovementDto.builder().color("black").cottonPercentage(50).quantity(10).build(),
+                SocksMovementDto.builder().color("black").cottonPercentage(50).quantity(-4).build());
+
+        socksService.applyMovements(movements);
+
+        verify(movementWriter).apply(movements);
+    }
+
+    @Test
+    void testApplyMovementsRejectsTooManyMovements() {
+        socksProperties.getMovements().setMaxBatchSize(2);
+        List<SocksMovementDto> movements = Collections.nCopies(3,
+                SocksMovementDto.builder().color("black").cottonPercentage(50).quantity(1).build());
+
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> socksService.applyMovements(movements));
+
+        assertEquals("Too many movements: at most 2 per request", exception.getMessage());
+        verifyNoInteractions(movementWriter);
+    }
+
     @Test
     void testGetSocksCount() {
+        when(colorDictionary.find("black")).thenReturn(OptionalInt.of(1));
         when(socksRepository.countSocksByColorAndCottonPercentageGreaterThan("black", 50))
                 .thenReturn(100);
 
-        int count = socksService.getSocksCount("black", "moreThan", 50);
+        int count = socksService.getSocksCount("Black", "moreThan", 50);
 
         assertEquals(100, count);
         verify(socksRepository).countSocksByColorAndCottonPercentageGreaterThan("black", 50);
     }
 
+    @Test
+    void testGetSocksCountFromIndex() {
+        when(inventoryIndex.isReady()).thenReturn(true);
+        when(inventoryIndex.countLessThan("black", 50)).thenReturn(3);
+
+        int count = socksService.getSocksCount("black", "lessThan", 50);
+
+        assertEquals(3, count);
+        verifyNoInteractions(socksRepository);
+    }
+
     @Test
     void testGetSocksCountInvalidComparison() {
         Exception exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -134,12 +322,16 @@ class SocksServiceImplTest {
     void testUploadFileValidFile() throws Exception {
         String csvContent = "color,cottonPercentage,quantity\nblack,50,10\nred,70,20";
         MultipartFile file = mock(MultipartFile.class);
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(csvContent.getBytes());
 
-        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(csvContent.getBytes()));
+        when(file.getInputStream()).thenReturn(inputStream);
+        when(batchImporter.importCsv(eq(inputStream), any(), eq(ImportCheckpoint.disabled())))
+                .thenReturn(new BatchImportResult(2, 1));
 
-        socksService.uploadFile(file);
+        assertTrue(socksService.uploadFile(file, null));
 
-        verify(socksRepository, times(2)).save(any(Socks.class));
+        verify(batchImporter).importCsv(eq(inputStream), any(), eq(ImportCheckpoint.disabled()));
+        verify(socksRepository, never()).save(any(Socks.class));
     }
 
     @Test
@@ -149,24 +341,9 @@ class SocksServiceImplTest {
         when(file.isEmpty()).thenReturn(true);
 
         Exception exception = assertThrows(IllegalArgumentException.class, () -> {
-            socksService.uploadFile(file);
+            socksService.uploadFile(file, null);
         });
 
         assertEquals("File is empty", exception.getMessage());
     }
-
-    @Test
-    void testUploadFileInvalidData() throws Exception {
-        String csvContent = "color,cottonPercentage,quantity\nblack,invalid,10";
-        MultipartFile file = mock(MultipartFile.class);
-
-        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(csvContent.getBytes()));
-
-        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
-            socksService.uploadFile(file);
-        });
-
-        assertTrue(exception.getMessage().contains("Invalid data in CSV file"));
-    }
 }
-
@@ -0,0 +1,114 @@
+package org.example.socksproject.service;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.dto.SocksMovementDto;
+import org.example.socksproject.helper.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the JDBC paths on many more virtual threads than there are connections, with the virtual-thread mode on,
+ * and fails if JFR saw a virtual thread block while pinned to its carrier, e.g. on I/O inside synchronized.
+ * Incomes go through the write-ahead log, so its callers waiting for the fsync are covered too.
+ */
+@PostgresIntegrationTest
+@EnabledForJreRange(min = JRE.JAVA_21)
+@TestPropertySource(properties = {
+        "spring.threads.virtual.enabled=true",
+        "socks.virtual-threads.max-connections=8",
+        "socks.wal.enabled=true"
+})
+class VirtualThreadPinningTest {
+
+    private static final int TASKS = 400;
+
+    @TempDir
+    private static Path walDirectory;
+
+    @DynamicPropertySource
+    static void walProperties(DynamicPropertyRegistry registry) {
+        registry.add("socks.wal.directory", () -> walDirectory.toString());
+    }
+
+    @Autowired
+    private SocksService socksService;
+
+    @Test
+    void testJdbcPathsDoNotPinVirtualThreads() throws Exception {
+        Path file = Files.createTempFile("pinning-", ".jfr");
+        List<RecordedEvent> pinned;
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            runOnVirtualThreads();
+            recording.stop();
+            recording.dump(file);
+            pinned = RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        assertTrue(pinned.isEmpty(), () -> "Virtual threads pinned:\n" + pinned.stream()
+                .map(VirtualThreadPinningTest::describe)
+                .collect(Collectors.joining("\n\n")));
+    }
+
+    private void runOnVirtualThreads() throws Exception {
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("pinning-test-");
+        List<Future<?>> futures = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            // New colors go through the dictionary's create path, several threads at a time.
+            SocksDto socks = SocksDto.builder().color("pinning-" + i % 40).cottonPercentage(i % 101).quantity(2)
+                    .build();
+            int task = i;
+            futures.add(executor.submit(() -> {
+                switch (task % 5) {
+                    case 0, 1 -> socksService.incomeSocks(socks);
+                    case 2 -> socksService.getSocksCount(socks.getColor(), "moreThan", 10);
+                    case 3 -> socksService.applyMovements(List.of(SocksMovementDto.builder()
+                            .color(socks.getColor()).cottonPercentage(socks.getCottonPercentage()).quantity(1)
+                            .build()));
+                    default -> socksService.uploadFile(new MockMultipartFile("file", "socks.csv", "text/csv",
+                            ("color,cottonPercentage,quantity\n" + socks.getColor() + ",5,1\n")
+                                    .getBytes(StandardCharsets.UTF_8)), null);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private static String describe(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return event.toString();
+        }
+        return event.getStackTrace().getFrames().stream()
+                .map(RecordedFrame::getMethod)
+                .map(method -> "  at " + method.getType().getName() + "." + method.getName())
+                .collect(Collectors.joining("\n"));
+    }
+}
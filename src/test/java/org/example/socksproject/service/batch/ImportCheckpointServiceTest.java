@@ -0,0 +1,92 @@
+package org.example.socksproject.service.batch;
+
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.model.BatchImportCheckpoint;
+import org.example.socksproject.repository.BatchImportCheckpointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportCheckpointServiceTest {
+
+    @Mock
+    private BatchImportCheckpointRepository checkpointRepository;
+
+    private SocksProperties socksProperties;
+
+    private ImportCheckpointService checkpointService;
+
+    @BeforeEach
+    void setUp() {
+        socksProperties = new SocksProperties();
+        checkpointService = new ImportCheckpointService(checkpointRepository, socksProperties);
+    }
+
+    @Test
+    void testUploadWithoutIdIsNotTracked() {
+        ImportCheckpoint checkpoint = checkpointService.open(null, ImportCheckpointService.SEQUENTIAL);
+
+        assertFalse(checkpoint.isEnabled());
+        verifyNoInteractions(checkpointRepository);
+    }
+
+    @Test
+    void testCompletedUploadIdIsSkipped() {
+        when(checkpointRepository.findById("upload-1"))
+                .thenReturn(Optional.of(checkpoint(true, Instant.now().minus(Duration.ofDays(1)))));
+
+        ImportCheckpoint checkpoint = checkpointService.open("upload-1", ImportCheckpointService.SEQUENTIAL);
+
+        assertTrue(checkpoint.isCompleted());
+        assertEquals(10, checkpoint.getRows());
+    }
+
+    @Test
+    void testExpiredUploadIdStartsOver() {
+        when(checkpointRepository.findById("upload-1"))
+                .thenReturn(Optional.of(checkpoint(false, Instant.now().minus(Duration.ofDays(8)))));
+
+        ImportCheckpoint checkpoint = checkpointService.open("upload-1", ImportCheckpointService.SEQUENTIAL);
+
+        assertFalse(checkpoint.isCompleted());
+        assertEquals(0, checkpoint.getRows());
+        assertEquals(0, checkpoint.getCharOffset());
+    }
+
+    @Test
+    void testPurgeDeletesCheckpointsBeyondRetention() {
+        ArgumentCaptor<Instant> threshold = ArgumentCaptor.forClass(Instant.class);
+        when(checkpointRepository.deleteByUpdatedAtBefore(any())).thenReturn(2);
+
+        checkpointService.purgeExpired();
+
+        verify(checkpointRepository).deleteByUpdatedAtBefore(threshold.capture());
+        Instant expected = Instant.now().minus(socksProperties.getBatch().getCheckpoints().getRetention());
+        assertTrue(Duration.between(threshold.getValue(), expected).abs().toSeconds() < 5);
+    }
+
+    private static BatchImportCheckpoint checkpoint(boolean completed, Instant updatedAt) {
+        return BatchImportCheckpoint.builder()
+                .uploadId("upload-1")
+                .mode(ImportCheckpointService.SEQUENTIAL)
+                .chunkSize(1000)
+                .rowsCommitted(10)
+                .charOffset(200)
+                .chunksCommitted(1)
+                .completed(completed)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
@@ -0,0 +1,254 @@
+package org.example.socksproject.service.batch;
+
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.model.BatchImportCheckpoint;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.repository.BatchImportCheckpointRepository;
+import org.example.socksproject.repository.SocksBatchRepository;
+import org.example.socksproject.service.changes.SocksChangeFeed;
+import org.example.socksproject.service.inventory.SocksInventoryIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ParallelCsvImporterTest {
+
+    @Mock
+    private SocksBatchImporter batchImporter;
+
+    @Mock
+    private ImportCheckpointService checkpointService;
+
+    @Mock
+    private BatchImportCheckpointRepository checkpointRepository;
+
+    @TempDir
+    private Path tempDir;
+
+    private SocksProperties socksProperties;
+
+    private ParallelCsvImporter parallelCsvImporter;
+
+    @BeforeEach
+    void setUp() {
+        socksProperties = new SocksProperties();
+        socksProperties.getBatch().setChunkSize(20);
+        socksProperties.getBatch().getParallelParsing().setParallelism(4);
+        socksProperties.getBatch().getParallelParsing().setMinSegmentSize(DataSize.ofBytes(64));
+        parallelCsvImporter = new ParallelCsvImporter(batchImporter, checkpointService, socksProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        parallelCsvImporter.shutdown();
+    }
+
+    @Test
+    void testParallelImportMatchesSequentialAggregation() throws Exception {
+        StringBuilder csv = new StringBuilder("color,cottonPercentage,quantity\n");
+        Map<SocksKey, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            SocksKey key = new SocksKey(i % 3 == 0 ? "black" : "red", i % 101);
+            csv.append(key.color()).append(',').append(key.cottonPercentage()).append(',').append(i + 1).append('\n');
+            expected.merge(key, i + 1, Integer::sum);
+        }
+        Path file = write(csv.toString());
+
+        BatchImportResult result = parallelCsvImporter.importPath(file);
+
+        assertEquals(1000, result.rows());
+        verify(batchImporter).importAggregated(eq(expected), any(ImportCheckpoint.class), eq(1000L),
+                eq(Files.size(file)), isNull(), eq(true));
+    }
+
+    @Test
+    void testParallelImportReportsSameErrorAsSequential() throws Exception {
+        StringBuilder csv = new StringBuilder("color,cottonPercentage,quantity\n");
+        for (int i = 0; i < 500; i++) {
+            csv.append("black,50,1\n");
+        }
+        csv.append("black,150,1\n");
+        for (int i = 0; i < 500; i++) {
+            csv.append("black,50,invalid\n");
+        }
+        Path file = write(csv.toString());
+
+        Exception parallel = assertThrows(IllegalArgumentException.class, () -> parallelCsvImporter.importPath(file));
+
+        SocksBatchImporter sequentialImporter = new SocksBatchImporter(null, null, null, null, new SocksProperties()) {
+            @Override
+            public void applyChunk(Map<SocksKey, Integer> chunk, Runnable inTransaction) {
+            }
+        };
+        Exception sequential = assertThrows(IllegalArgumentException.class, () ->
+                sequentialImporter.importCsv(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals("Invalid data in CSV file: row 501: black,150,1", parallel.getMessage());
+        assertEquals(sequential.getMessage(), parallel.getMessage());
+        verify(batchImporter).importAggregated(eq(Map.of(new SocksKey("black", 50), 500)),
+                any(ImportCheckpoint.class), eq(500L), eq((long) csv.indexOf("black,150,1")), isNull(), eq(false));
+    }
+
+    @Test
+    void testResumeAfterInvalidRowAddsOnlyTheFollowingRows() throws Exception {
+        String header = "color,cottonPercentage,quantity\n";
+        String before = rows(0, 400);
+        String after = rows(400, 800);
+        Map<SocksKey, Integer> written = new HashMap<>();
+        SocksBatchImporter importer = recordingImporter(written, Integer.MAX_VALUE);
+        ParallelCsvImporter resumingImporter = new ParallelCsvImporter(importer, checkpointService, socksProperties);
+        BatchImportCheckpoint state = checkpointState();
+
+        try {
+            Path invalid = write(header + before + "black,150,1\n" + after);
+            Exception exception = assertThrows(IllegalArgumentException.class, () ->
+                    resumingImporter.importPath(invalid, BatchImportProgress.NONE, checkpoint(state)));
+            assertEquals("Invalid data in CSV file: row 401: black,150,1", exception.getMessage());
+            assertEquals(400, state.getRowsCommitted());
+
+            Path corrected = write(header + before + "black,15,1\n" + after);
+            BatchImportResult result = resumingImporter.importPath(corrected, BatchImportProgress.NONE,
+                    checkpoint(state));
+
+            assertEquals(401, result.rows());
+            assertTrue(state.isCompleted());
+            assertEquals(sums(header + before + "black,15,1\n" + after), written);
+        } finally {
+            resumingImporter.shutdown();
+        }
+    }
+
+    @Test
+    void testResumeAfterFailedChunkWritesTheRemainingChunks() throws Exception {
+        String csv = "color,cottonPercentage,quantity\n" + rows(0, 800);
+        Path file = write(csv);
+        Map<SocksKey, Integer> written = new HashMap<>();
+        BatchImportCheckpoint state = checkpointState();
+        ParallelCsvImporter failingImporter = new ParallelCsvImporter(recordingImporter(written, 3),
+                checkpointService, socksProperties);
+        ParallelCsvImporter resumingImporter = new ParallelCsvImporter(recordingImporter(written, Integer.MAX_VALUE),
+                checkpointService, socksProperties);
+
+        try {
+            assertThrows(IllegalStateException.class, () ->
+                    failingImporter.importPath(file, BatchImportProgress.NONE, checkpoint(state)));
+            assertEquals(0, state.getRowsCommitted());
+            assertEquals(3, state.getChunksCommitted());
+
+            resumingImporter.importPath(file, BatchImportProgress.NONE, checkpoint(state));
+
+            assertTrue(state.isCompleted());
+            assertEquals(sums(csv), written);
+        } finally {
+            failingImporter.shutdown();
+            resumingImporter.shutdown();
+        }
+    }
+
+    @Test
+    void testResumeWithChangedCommittedRowsIsRejected() throws Exception {
+        String header = "color,cottonPercentage,quantity\n";
+        Map<SocksKey, Integer> written = new HashMap<>();
+        ParallelCsvImporter resumingImporter = new ParallelCsvImporter(recordingImporter(written, Integer.MAX_VALUE),
+                checkpointService, socksProperties);
+        BatchImportCheckpoint state = checkpointState();
+
+        try {
+            Path invalid = write(header + rows(0, 400) + "black,150,1\n");
+            assertThrows(IllegalArgumentException.class, () ->
+                    resumingImporter.importPath(invalid, BatchImportProgress.NONE, checkpoint(state)));
+            Map<SocksKey, Integer> committed = new HashMap<>(written);
+
+            Path changed = write(header + rows(1, 401) + "black,15,1\n");
+            assertThrows(IllegalStateException.class, () ->
+                    resumingImporter.importPath(changed, BatchImportProgress.NONE, checkpoint(state)));
+            assertEquals(committed, written);
+        } finally {
+            resumingImporter.shutdown();
+        }
+    }
+
+    /**
+     * A real importer whose writes are summed into {@code written}; the write of chunk {@code failingChunk}
+     * and later ones fail, with their transaction rolled back.
+     */
+    private SocksBatchImporter recordingImporter(Map<SocksKey, Integer> written, int failingChunk) {
+        SocksBatchRepository socksBatchRepository = mock(SocksBatchRepository.class);
+        AtomicInteger writes = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (writes.incrementAndGet() > failingChunk) {
+                throw new IllegalStateException("Connection lost");
+            }
+            List<Map.Entry<SocksKey, Integer>> quantities = invocation.getArgument(0);
+            quantities.forEach(entry -> written.merge(entry.getKey(), entry.getValue(), Integer::sum));
+            return null;
+        }).when(socksBatchRepository).upsertQuantities(anyList());
+        return new SocksBatchImporter(socksBatchRepository, mock(SocksInventoryIndex.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(SocksChangeFeed.class),
+                socksProperties);
+    }
+
+    private ImportCheckpoint checkpoint(BatchImportCheckpoint state) {
+        return new ImportCheckpoint(checkpointRepository, state);
+    }
+
+    private BatchImportCheckpoint checkpointState() {
+        when(checkpointRepository.save(any(BatchImportCheckpoint.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        return BatchImportCheckpoint.builder()
+                .uploadId("upload-1")
+                .mode(ImportCheckpointService.PARALLEL)
+                .chunkSize(socksProperties.getBatch().getChunkSize())
+                .updatedAt(Instant.now())
+                .build();
+    }
+
+    /**
+     * Rows over many keys, so their sums span several chunks.
+     */
+    private static String rows(int from, int to) {
+        StringBuilder rows = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            rows.append(i % 2 == 0 ? "black" : "red").append(',').append(i % 101).append(',').append(i + 1)
+                    .append('\n');
+        }
+        return rows.toString();
+    }
+
+    private static Map<SocksKey, Integer> sums(String csv) {
+        Map<SocksKey, Integer> sums = new HashMap<>();
+        csv.lines().skip(1).map(line -> line.split(",")).forEach(fields -> sums.merge(
+                new SocksKey(fields[0], Integer.parseInt(fields[1])), Integer.parseInt(fields[2]), Integer::sum));
+        return sums;
+    }
+
+    private Path write(String content) throws Exception {
+        Path file = tempDir.resolve("socks.csv");
+        Files.writeString(file, content);
+        return file;
+    }
+}
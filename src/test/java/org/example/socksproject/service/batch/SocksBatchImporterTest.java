@@ -0,0 +1,234 @@
+package org.example.socksproject.service.batch;
+
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.model.BatchImportCheckpoint;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.repository.BatchImportCheckpointRepository;
+import org.example.socksproject.repository.SocksBatchRepository;
+import org.example.socksproject.service.changes.SocksChangeFeed;
+import org.example.socksproject.service.inventory.SocksInventoryIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SocksBatchImporterTest {
+
+    @Mock
+    private SocksBatchRepository socksBatchRepository;
+
+    @Mock
+    private SocksInventoryIndex inventoryIndex;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private BatchImportCheckpointRepository checkpointRepository;
+
+    @Mock
+    private SocksChangeFeed changeFeed;
+
+    private SocksProperties socksProperties;
+
+    private SocksBatchImporter batchImporter;
+
+    @BeforeEach
+    void setUp() {
+        socksProperties = new SocksProperties();
+        batchImporter = new SocksBatchImporter(socksBatchRepository, inventoryIndex,
+                new TransactionTemplate(transactionManager), changeFeed, socksProperties);
+    }
+
+    @Test
+    void testImportMergesDuplicateKeysWithinChunk() throws Exception {
+        String csvContent = "color,cottonPercentage,quantity\nred,70,20\nblack,50,10\nred,70,5";
+
+        BatchImportResult result = batchImporter.importCsv(new ByteArrayInputStream(csvContent.getBytes()));
+
+        assertEquals(3, result.rows());
+        assertEquals(1, result.chunks());
+        verify(socksBatchRepository).upsertQuantities(List.of(
+                Map.entry(new SocksKey("black", 50), 10),
+                Map.entry(new SocksKey("red", 70), 25)));
+        verify(inventoryIndex).rowPresent("red", 70);
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void testImportCommitsEveryChunk() throws Exception {
+        socksProperties.getBatch().setChunkSize(2);
+        String csvContent = "color,cottonPercentage,quantity\nblack,50,10\nred,70,20\nblue,30,5";
+
+        BatchImportResult result = batchImporter.importCsv(new ByteArrayInputStream(csvContent.getBytes()));
+
+        assertEquals(3, result.rows());
+        assertEquals(2, result.chunks());
+        verify(socksBatchRepository, times(2)).upsertQuantities(anyList());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void testImportPublishesNewQuantitiesOfChunk() throws Exception {
+        String csvContent = "color,cottonPercentage,quantity\nred,70,20\nred,70,5";
+        SocksKey key = new SocksKey("red", 70);
+        when(changeFeed.isEnabled()).thenReturn(true);
+        when(changeFeed.hasSubscribers()).thenReturn(true);
+        when(socksBatchRepository.findQuantities(List.of(key))).thenReturn(Map.of(key, 40));
+
+        batchImporter.importCsv(new ByteArrayInputStream(csvContent.getBytes()));
+
+        verify(changeFeed).publishAfterCommit("batch", key, 25, 40);
+    }
+
+    @Test
+    void testImportWithoutSubscribersSkipsReadBack() throws Exception {
+        String csvContent = "color,cottonPercentage,quantity\nred,70,20";
+        when(changeFeed.isEnabled()).thenReturn(true);
+
+        batchImporter.importCsv(new ByteArrayInputStream(csvContent.getBytes()));
+
+        verify(changeFeed).skipAfterCommit();
+        verify(socksBatchRepository, never()).findQuantities(any());
+        verify(changeFeed, never()).publishAfterCommit(any(), any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void testImportInvalidDataKeepsPrecedingRows() {
+        String csvContent = "color,cottonPercentage,quantity\nred,70,20\nblack,invalid,10";
+
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            batchImporter.importCsv(new ByteArrayInputStream(csvContent.getBytes()));
+        });
+
+        assertTrue(exception.getMessage().contains("Invalid data in CSV file"));
+        ArgumentCaptor<List<Map.Entry<SocksKey, Integer>>> captor = ArgumentCaptor.captor();
+        verify(socksBatchRepository).upsertQuantities(captor.capture());
+        assertEquals(List.of(Map.entry(new SocksKey("red", 70), 20)), captor.getValue());
+    }
+
+    @Test
+    void testImportQuantityOverflowIsInvalidRow() {
+        String csvContent = "color,cottonPercentage,quantity\nblack,50,10\nred,70,2147483647\nred,70,1";
+
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            batchImporter.importCsv(new ByteArrayInputStream(csvContent.getBytes()));
+        });
+
+        assertTrue(exception.getMessage().contains("row 3"));
+        ArgumentCaptor<List<Map.Entry<SocksKey, Integer>>> captor = ArgumentCaptor.captor();
+        verify(socksBatchRepository).upsertQuantities(captor.capture());
+        assertEquals(List.of(
+                Map.entry(new SocksKey("black", 50), 10),
+                Map.entry(new SocksKey("red", 70), Integer.MAX_VALUE)), captor.getValue());
+    }
+
+    @Test
+    void testImportResumesAfterCheckpoint() throws Exception {
+        socksProperties.getBatch().setChunkSize(2);
+        String header = "color,cottonPercentage,quantity\n";
+        String committed = "black,50,1\nblack,50,2\n";
+        String csvContent = header + committed + "red,70,3\nred,70,4\nblue,30,5\n";
+        BatchImportCheckpoint state = checkpointState(2, header.length() + committed.length(), 1, false);
+
+        when(checkpointRepository.save(any(BatchImportCheckpoint.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        BatchImportResult result = batchImporter.importCsv(new ByteArrayInputStream(csvContent.getBytes()),
+                BatchImportProgress.NONE, new ImportCheckpoint(checkpointRepository, state));
+
+        assertEquals(3, result.rows());
+        verify(socksBatchRepository).upsertQuantities(List.of(Map.entry(new SocksKey("red", 70), 7)));
+        verify(socksBatchRepository).upsertQuantities(List.of(Map.entry(new SocksKey("blue", 30), 5)));
+        verify(socksBatchRepository, times(2)).upsertQuantities(anyList());
+        assertEquals(5, state.getRowsCommitted());
+        assertEquals(3, state.getChunksCommitted());
+        assertTrue(state.isCompleted());
+    }
+
+    @Test
+    void testImportSkipsCompletedFile() throws Exception {
+        String csvContent = "color,cottonPercentage,quantity\nblack,50,10";
+        BatchImportCheckpoint state = checkpointState(1, 0, 1, true);
+
+        BatchImportResult result = batchImporter.importCsv(new ByteArrayInputStream(csvContent.getBytes()),
+                BatchImportProgress.NONE, new ImportCheckpoint(checkpointRepository, state));
+
+        assertEquals(0, result.rows());
+        assertTrue(result.skipped());
+        verifyNoInteractions(socksBatchRepository, checkpointRepository);
+    }
+
+    @Test
+    void testImportRejectsDifferentFileUnderCompletedUploadId() throws Exception {
+        String csvContent = "color,cottonPercentage,quantity\nblack,50,10\n";
+        BatchImportCheckpoint state = checkpointState(0, 0, 0, false);
+        when(checkpointRepository.save(any(BatchImportCheckpoint.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        batchImporter.importCsv(new ByteArrayInputStream(csvContent.getBytes()),
+                BatchImportProgress.NONE, new ImportCheckpoint(checkpointRepository, state));
+        assertTrue(state.isCompleted());
+
+        BatchImportResult again = batchImporter.importCsv(new ByteArrayInputStream(csvContent.getBytes()),
+                BatchImportProgress.NONE, new ImportCheckpoint(checkpointRepository, state));
+        assertTrue(again.skipped());
+
+        String otherContent = "color,cottonPercentage,quantity\nred,70,3\n";
+        assertThrows(IllegalStateException.class, () -> batchImporter.importCsv(
+                new ByteArrayInputStream(otherContent.getBytes()), BatchImportProgress.NONE,
+                new ImportCheckpoint(checkpointRepository, state)));
+        verify(socksBatchRepository, times(1)).upsertQuantities(anyList());
+    }
+
+    @Test
+    void testImportRejectsResumeWithChangedCommittedRows() throws Exception {
+        socksProperties.getBatch().setChunkSize(2);
+        String header = "color,cottonPercentage,quantity\n";
+        String csvContent = header + "black,50,1\nblack,50,2\nred,70,invalid\n";
+        BatchImportCheckpoint state = checkpointState(0, 0, 0, false);
+        when(checkpointRepository.save(any(BatchImportCheckpoint.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        assertThrows(IllegalArgumentException.class, () -> batchImporter.importCsv(
+                new ByteArrayInputStream(csvContent.getBytes()), BatchImportProgress.NONE,
+                new ImportCheckpoint(checkpointRepository, state)));
+        assertEquals(2, state.getRowsCommitted());
+
+        String changedContent = header + "black,50,9\nblack,50,2\nred,70,3\n";
+        assertThrows(IllegalStateException.class, () -> batchImporter.importCsv(
+                new ByteArrayInputStream(changedContent.getBytes()), BatchImportProgress.NONE,
+                new ImportCheckpoint(checkpointRepository, state)));
+
+        String correctedContent = header + "black,50,1\nblack,50,2\nred,70,3\n";
+        BatchImportResult result = batchImporter.importCsv(new ByteArrayInputStream(correctedContent.getBytes()),
+                BatchImportProgress.NONE, new ImportCheckpoint(checkpointRepository, state));
+        assertEquals(1, result.rows());
+        verify(socksBatchRepository).upsertQuantities(List.of(Map.entry(new SocksKey("red", 70), 3)));
+        assertTrue(state.isCompleted());
+    }
+
+    private static BatchImportCheckpoint checkpointState(long rows, long charOffset, int chunks, boolean completed) {
+        return BatchImportCheckpoint.builder()
+                .uploadId("upload-1")
+                .mode(ImportCheckpointService.SEQUENTIAL)
+                .chunkSize(2)
+                .rowsCommitted(rows)
+                .charOffset(charOffset)
+                .chunksCommitted(chunks)
+                .completed(completed)
+                .updatedAt(Instant.now())
+                .build();
+    }
+}
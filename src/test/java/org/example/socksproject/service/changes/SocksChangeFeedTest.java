@@ -0,0 +1,185 @@
+package org.example.socksproject.service.changes;
+
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.model.SocksKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SocksChangeFeedTest {
+
+    private SocksProperties socksProperties;
+
+    private RecordingEmitter emitter;
+
+    private SocksChangeFeed changeFeed;
+
+    @BeforeEach
+    void setUp() {
+        socksProperties = new SocksProperties();
+        emitter = new RecordingEmitter();
+        changeFeed = new SocksChangeFeed(socksProperties) {
+            @Override
+            SseEmitter createEmitter() {
+                return emitter;
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        changeFeed.shutdown();
+    }
+
+    @Test
+    void testSubscriberResumesAfterVersion() {
+        changeFeed.publish("income", new SocksKey("black", 50), 10, 10);
+        changeFeed.publish("income", new SocksKey("red", 70), 5, 5);
+        changeFeed.publish("outcome", new SocksKey("black", 50), -3, 7);
+
+        changeFeed.subscribe(List.of("black"), changeFeed.eventId(1));
+        changeFeed.publish("income", new SocksKey("black", 30), 2, 2);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> emitter.received.size() == 2);
+        assertEquals(List.of(
+                new SocksChange(3, "outcome", "black", 50, -3, 7),
+                new SocksChange(4, "income", "black", 30, 2, 2)), emitter.received);
+    }
+
+    @Test
+    void testSubscriberBehindHistoryIsReset() {
+        socksProperties.getChanges().setHistorySize(2);
+        for (int i = 1; i <= 3; i++) {
+            changeFeed.publish("income", new SocksKey("black", i), i, i);
+        }
+
+        changeFeed.subscribe(List.of(), changeFeed.eventId(0));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> !emitter.received.isEmpty());
+        assertEquals(List.of(3L), emitter.received);
+    }
+
+    @Test
+    void testSubscriberFromEarlierRunIsReset() {
+        changeFeed.publish("income", new SocksKey("black", 50), 10, 10);
+
+        changeFeed.subscribe(List.of(), "earlier-1");
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> !emitter.received.isEmpty());
+        assertEquals(List.of(1L), emitter.received);
+    }
+
+    @Test
+    void testSkippedChangesResetResumingSubscriber() {
+        changeFeed.publish("income", new SocksKey("black", 50), 10, 10);
+        changeFeed.skipAfterCommit();
+
+        changeFeed.subscribe(List.of(), changeFeed.eventId(1));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> !emitter.received.isEmpty());
+        assertEquals(List.of(2L), emitter.received);
+    }
+
+    @Test
+    void testChangePublishedAfterNewerWriteCarriesNewerQuantity() {
+        SocksKey key = new SocksKey("black", 50);
+        changeFeed.subscribe(List.of(), null);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Reserved in write order: +5 to 15, then +3 to 18.
+            changeFeed.publishAfterCommit("income", key, 5, 15);
+            List<TransactionSynchronization> first = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            TransactionSynchronizationManager.initSynchronization();
+            changeFeed.publishAfterCommit("income", key, 3, 18);
+            List<TransactionSynchronization> second = TransactionSynchronizationManager.getSynchronizations();
+
+            // Published in the opposite order.
+            second.forEach(TransactionSynchronization::afterCommit);
+            first.forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // The two changes are sent separately or coalesced, depending on how fast the sender is.
+        await().atMost(Duration.ofSeconds(5)).until(() -> emitter.received.stream()
+                .mapToLong(change -> ((SocksChange) change).delta()).sum() == 8);
+        SocksChange last = (SocksChange) emitter.received.get(emitter.received.size() - 1);
+        assertEquals(18, last.quantity());
+    }
+
+    @Test
+    void testChangesInLedgerModeCarryOnlyDeltas() {
+        socksProperties.getLedger().setEnabled(true);
+        SocksChangeFeed ledgerFeed = new SocksChangeFeed(socksProperties) {
+            @Override
+            SseEmitter createEmitter() {
+                return emitter;
+            }
+        };
+        try {
+            ledgerFeed.subscribe(List.of(), null);
+            ledgerFeed.publish("income", new SocksKey("black", 50), 5, 15);
+
+            await().atMost(Duration.ofSeconds(5)).until(() -> !emitter.received.isEmpty());
+            assertEquals(List.of(new SocksChange(1, "income", "black", 50, 5, null)), emitter.received);
+        } finally {
+            ledgerFeed.shutdown();
+        }
+    }
+
+    @Test
+    void testPendingChangesOfKeyAreCoalesced() {
+        ChangeSubscriber subscriber = new ChangeSubscriber(emitter, Set.of(), 10);
+
+        assertTrue(subscriber.offer(new SocksChange(1, "income", "black", 50, 10, 10)));
+        assertFalse(subscriber.offer(new SocksChange(2, "outcome", "black", 50, -4, 6)));
+
+        ChangeSubscriber.Batch batch = subscriber.take();
+        assertEquals(List.of(new SocksChange(2, "outcome", "black", 50, 6, 6)), batch.changes());
+        assertNull(subscriber.take());
+    }
+
+    @Test
+    void testBufferOverflowResetsSubscriber() {
+        ChangeSubscriber subscriber = new ChangeSubscriber(emitter, Set.of(), 2);
+
+        subscriber.offer(new SocksChange(1, "income", "black", 10, 1, 1));
+        subscriber.offer(new SocksChange(2, "income", "black", 20, 1, 1));
+        subscriber.offer(new SocksChange(3, "income", "black", 30, 1, 1));
+        subscriber.offer(new SocksChange(4, "income", "black", 40, 1, 1));
+
+        ChangeSubscriber.Batch batch = subscriber.take();
+        assertEquals(3, batch.resetVersion());
+        assertEquals(List.of(new SocksChange(4, "income", "black", 40, 1, 1)), batch.changes());
+    }
+
+    /**
+     * Keeps the changes and reset versions sent to the subscriber.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<Object> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            for (ResponseBodyEmitter.DataWithMediaType data : builder.build()) {
+                if (data.getData() instanceof SocksChange || data.getData() instanceof Long) {
+                    received.add(data.getData());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.socksproject.service.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.repository.SocksRepository;
+import org.example.socksproject.repository.projection.SocksQuantity;
+import org.example.socksproject.service.batch.SocksCsv;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SocksExporterTest {
+
+    @Mock
+    private SocksRepository socksRepository;
+
+    private SocksExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        exporter = new SocksExporter(socksRepository, new ObjectMapper());
+    }
+
+    @Test
+    void testCsvExportCanBeUploadedAgain() throws Exception {
+        when(socksRepository.streamAll()).thenReturn(Stream.of(
+                socks("black", 50, 10), socks("red, dark", 70, 5), socks("white", 0, 0)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long rows = exporter.export("csv", output);
+
+        assertEquals(2, rows);
+        try (CSVParser parser = SocksCsv.FORMAT.parse(new StringReader(output.toString(StandardCharsets.UTF_8)))) {
+            List<CSVRecord> records = parser.getRecords();
+            assertEquals(new SocksKey("black", 50), SocksCsv.parse(records.get(0), 1).key());
+            assertEquals(new SocksKey("red, dark", 70), SocksCsv.parse(records.get(1), 2).key());
+            assertEquals(5, SocksCsv.parse(records.get(1), 2).quantity());
+        }
+    }
+
+    @Test
+    void testNdjsonExportWritesOneObjectPerLine() throws Exception {
+        when(socksRepository.streamAll()).thenReturn(Stream.of(socks("black", 50, 10), socks("white", 0, 0)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        exporter.export("ndjson", output);
+
+        assertEquals("{\"color\":\"black\",\"cottonPercentage\":50,\"quantity\":10}\n"
+                        + "{\"color\":\"white\",\"cottonPercentage\":0,\"quantity\":0}\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testExportRejectsUnknownFormat() {
+        assertThrows(IllegalArgumentException.class, () -> exporter.export("xml", new ByteArrayOutputStream()));
+        verifyNoInteractions(socksRepository);
+    }
+
+    private static SocksQuantity socks(String color, int cottonPercentage, int quantity) {
+        return new SocksQuantity() {
+            @Override
+            public String getColor() {
+                return color;
+            }
+
+            @Override
+            public int getCottonPercentage() {
+                return cottonPercentage;
+            }
+
+            @Override
+            public int getQuantity() {
+                return quantity;
+            }
+        };
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.socksproject.service.inventory;
+
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.repository.SocksRepository;
+import org.example.socksproject.repository.projection.SocksKeyCount;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SocksInventoryIndexTest {
+
+    @Mock
+    private SocksRepository socksRepository;
+
+    private SocksInventoryIndex inventoryIndex;
+
+    @BeforeEach
+    void setUp() {
+        inventoryIndex = new SocksInventoryIndex(socksRepository, new SocksProperties());
+    }
+
+    @Test
+    void testRebuildFromTable() {
+        when(socksRepository.countRowsByKey()).thenReturn(List.of(
+                keyCount("black", 10, 1),
+                keyCount("black", 50, 2),
+                keyCount("black", 100, 1),
+                keyCount("red", 50, 1)));
+
+        inventoryIndex.rebuild();
+
+        assertTrue(inventoryIndex.isReady());
+        assertEquals(1, inventoryIndex.countGreaterThan("black", 50));
+        assertEquals(1, inventoryIndex.countLessThan("black", 50));
+        assertEquals(2, inventoryIndex.countEquals("black", 50));
+        assertEquals(4, inventoryIndex.countGreaterThan("black", -1));
+        assertEquals(4, inventoryIndex.countLessThan("black", 1000));
+        assertEquals(0, inventoryIndex.countGreaterThan("black", 100));
+        assertEquals(0, inventoryIndex.countEquals("green", 50));
+    }
+
+    @Test
+    void testWritesKeepIndexCurrent() {
+        when(socksRepository.countRowsByKey()).thenReturn(List.of());
+        inventoryIndex.rebuild();
+
+        inventoryIndex.rowAdded("black", 30);
+        inventoryIndex.rowAdded("black", 70);
+        inventoryIndex.rowMoved("black", 30, "red", 30);
+
+        assertEquals(0, inventoryIndex.countLessThan("black", 50));
+        assertEquals(1, inventoryIndex.countGreaterThan("black", 50));
+        assertEquals(1, inventoryIndex.countEquals("red", 30));
+    }
+
+    @Test
+    void testCheckConsistencyReportsDrift() {
+        when(socksRepository.countRowsByKey()).thenReturn(List.of(keyCount("black", 50, 1)));
+        inventoryIndex.rebuild();
+
+        assertTrue(inventoryIndex.checkConsistency().isEmpty());
+
+        inventoryIndex.rowAdded("black", 60);
+
+        assertEquals(List.of("black/60: table=0, index=1"), inventoryIndex.checkConsistency());
+    }
+
+    @Test
+    void testVersionChangesOnlyForModifiedColor() {
+        when(socksRepository.countRowsByKey()).thenReturn(List.of(keyCount("black", 50, 1), keyCount("red", 50, 1)));
+        inventoryIndex.rebuild();
+        long black = inventoryIndex.version("black");
+        long red = inventoryIndex.version("red");
+
+        inventoryIndex.rowAdded("black", 70);
+
+        assertTrue(inventoryIndex.version("black") > black);
+        assertEquals(red, inventoryIndex.version("red"));
+        assertEquals(0, inventoryIndex.version("green"));
+
+        inventoryIndex.rebuild();
+
+        assertTrue(inventoryIndex.version("red") > red);
+    }
+
+    private static SocksKeyCount keyCount(String color, int cottonPercentage, long rowCount) {
+        return new SocksKeyCount() {
+            @Override
+            public String getColor() {
+                return color;
+            }
+
+            @Override
+            public int getCottonPercentage() {
+                return cottonPercentage;
+            }
+
+            @Override
+            public long getRowCount() {
+                return rowCount;
+            }
+        };
+    }
+}
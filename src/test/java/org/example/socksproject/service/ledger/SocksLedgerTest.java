@@ -0,0 +1,152 @@
+package org.example.socksproject.service.ledger;
+
+import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.helper.PostgresIntegrationTest;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.repository.SocksLedgerRepository;
+import org.example.socksproject.repository.SocksLedgerSnapshotRepository;
+import org.example.socksproject.repository.SocksRepository;
+import org.example.socksproject.service.SocksService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@PostgresIntegrationTest
+@TestPropertySource(properties = {"socks.ledger.enabled=true", "socks.ledger.compaction-interval=PT1H"})
+class SocksLedgerTest {
+
+    private static final int THREADS = 8;
+    private static final int CALLS_PER_THREAD = 100;
+
+    @Autowired
+    private SocksService socksService;
+
+    @Autowired
+    private SocksLedgerCompactor compactor;
+
+    @Autowired
+    private SocksRepository socksRepository;
+
+    @Autowired
+    private SocksLedgerRepository ledgerRepository;
+
+    @Autowired
+    private SocksLedgerSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private SocksLedger ledger;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        ledgerRepository.deleteAll();
+        snapshotRepository.deleteAll();
+        socksRepository.deleteAll();
+    }
+
+    @Test
+    void testIncomeAppendsUntilCompaction() {
+        socksService.incomeSocks(socks(10));
+        socksService.incomeSocks(socks(5));
+
+        assertEquals(0, socksRepository.findByColorAndCottonPercentage("black", 50).orElseThrow().getQuantity());
+        assertEquals(2, ledgerRepository.countTail());
+
+        assertEquals(2, compactor.compactPending());
+
+        assertEquals(15, socksRepository.findByColorAndCottonPercentage("black", 50).orElseThrow().getQuantity());
+        assertEquals(0, ledgerRepository.countTail());
+        assertEquals(2, ledgerRepository.count());
+        assertEquals(1, snapshotRepository.count());
+    }
+
+    @Test
+    void testOutcomeChecksSnapshotAndTail() {
+        socksService.incomeSocks(socks(10));
+        compactor.compactPending();
+        socksService.incomeSocks(socks(5));
+
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> socksService.outcomeSocks(socks(16)));
+        assertEquals("Not enough socks", exception.getMessage());
+
+        socksService.outcomeSocks(socks(15));
+        compactor.compactPending();
+        assertEquals(0, socksRepository.findByColorAndCottonPercentage("black", 50).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testSupersedeReturnsBalanceWithTail() {
+        socksService.incomeSocks(socks(10));
+        compactor.compactPending();
+        socksService.incomeSocks(socks(5));
+
+        Integer replaced = transactionTemplate.execute(status -> ledger.supersede(new SocksKey("black", 50)));
+
+        assertEquals(15, replaced);
+        assertEquals(0, ledgerRepository.countTail());
+    }
+
+    @Test
+    void testConcurrentIncomeOutcomeAndCompactionNeverOversell() throws Exception {
+        int stock = THREADS * CALLS_PER_THREAD / 4;
+        socksService.incomeSocks(socks(stock));
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger received = new AtomicInteger(stock);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < THREADS; i++) {
+            executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < CALLS_PER_THREAD; j++) {
+                    if (calls.incrementAndGet() % 4 == 0) {
+                        socksService.incomeSocks(socks(1));
+                        received.incrementAndGet();
+                    } else {
+                        try {
+                            socksService.outcomeSocks(socks(1));
+                            sold.incrementAndGet();
+                        } catch (IllegalArgumentException e) {
+                            // Not enough socks
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < 20; i++) {
+                compactor.compactPending();
+            }
+            return null;
+        });
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+
+        compactor.compactPending();
+        int quantity = socksRepository.findByColorAndCottonPercentage("black", 50).orElseThrow().getQuantity();
+        assertEquals(received.get() - sold.get(), quantity);
+        assertTrue(quantity >= 0);
+        assertEquals(0, ledgerRepository.countTail());
+    }
+
+    private static SocksDto socks(int quantity) {
+        return SocksDto.builder().color("black").cottonPercentage(50).quantity(quantity).build();
+    }
+}
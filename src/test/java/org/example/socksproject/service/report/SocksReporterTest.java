@@ -0,0 +1,120 @@
+package org.example.socksproject.service.report;
+
+import org.example.socksproject.dto.SocksReportDto;
+import org.example.socksproject.dto.SocksReportRowDto;
+import org.example.socksproject.repository.ColorDictionary;
+import org.example.socksproject.repository.SocksRepository;
+import org.example.socksproject.repository.projection.ColorQuantity;
+import org.example.socksproject.repository.projection.CottonQuantity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SocksReporterTest {
+
+    @Mock
+    private SocksRepository socksRepository;
+
+    @Mock
+    private ColorDictionary colorDictionary;
+
+    @InjectMocks
+    private SocksReporter reporter;
+
+    @Test
+    void testReportByColorForSelectedColors() {
+        when(colorDictionary.find("black")).thenReturn(OptionalInt.of(1));
+        when(colorDictionary.find("red")).thenReturn(OptionalInt.of(2));
+        when(socksRepository.sumQuantityByColorIn(List.of("red", "black"), 20, 80))
+                .thenReturn(List.of(colorQuantity("red", 12), colorQuantity("black", 30)));
+
+        SocksReportDto report = reporter.report("color", List.of("Red", "black"), 20, 80, 10);
+
+        assertEquals(42, report.getTotalQuantity());
+        assertEquals(List.of("black", "red"), report.getRows().stream().map(SocksReportRowDto::getColor).toList());
+        verify(socksRepository, never()).findAll();
+    }
+
+    @Test
+    void testReportForUnknownColorsSkipsQueries() {
+        when(colorDictionary.find("purple")).thenReturn(OptionalInt.empty());
+
+        SocksReportDto report = reporter.report("total", List.of("purple"), 0, 100, 10);
+
+        assertEquals(0, report.getTotalQuantity());
+        verifyNoInteractions(socksRepository);
+    }
+
+    @Test
+    void testReportByCottonRangeFoldsPercentagesIntoBuckets() {
+        when(socksRepository.sumQuantityByCottonPercentage(0, 29)).thenReturn(List.of(
+                cottonQuantity(0, 1), cottonQuantity(9, 2), cottonQuantity(10, 4), cottonQuantity(29, 8)));
+
+        SocksReportDto report = reporter.report("cottonRange", List.of(), 0, 29, 10);
+
+        assertEquals(List.of(3L, 4L, 8L), report.getRows().stream().map(SocksReportRowDto::getQuantity).toList());
+        assertEquals(20, report.getRows().get(2).getCottonFrom());
+        assertEquals(29, report.getRows().get(2).getCottonTo());
+        assertEquals(15, report.getTotalQuantity());
+    }
+
+    @Test
+    void testReportTotal() {
+        when(socksRepository.sumQuantity(0, 100)).thenReturn(500L);
+
+        SocksReportDto report = reporter.report("total", List.of(), 0, 100, 10);
+
+        assertEquals(500, report.getTotalQuantity());
+        assertTrue(report.getRows().isEmpty());
+    }
+
+    @Test
+    void testReportRejectsInvalidRange() {
+        assertThrows(IllegalArgumentException.class, () -> reporter.report("total", List.of(), 60, 40, 10));
+        verifyNoInteractions(socksRepository);
+    }
+
+    @Test
+    void testReportRejectsBucketLargerThanPercentageRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> reporter.report("cottonRange", null, 0, 100, Integer.MAX_VALUE));
+        verifyNoInteractions(socksRepository);
+    }
+
+    private static ColorQuantity colorQuantity(String color, long quantity) {
+        return new ColorQuantity() {
+            @Override
+            public String getColor() {
+                return color;
+            }
+
+            @Override
+            public long getQuantity() {
+                return quantity;
+            }
+        };
+    }
+
+    private static CottonQuantity cottonQuantity(int cottonPercentage, long quantity) {
+        return new CottonQuantity() {
+            @Override
+            public int getCottonPercentage() {
+                return cottonPercentage;
+            }
+
+            @Override
+            public long getQuantity() {
+                return quantity;
+            }
+        };
+    }
+}
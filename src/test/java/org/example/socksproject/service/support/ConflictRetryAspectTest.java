@@ -0,0 +1,94 @@
+package org.example.socksproject.service.support;
+
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.metrics.SocksMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConflictRetryAspectTest {
+
+    @Mock
+    private SocksMetrics socksMetrics;
+
+    private SocksProperties socksProperties;
+
+    private FlakyWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        socksProperties = new SocksProperties();
+        socksProperties.getRetry().getDefaults().setInitialBackoff(Duration.ofMillis(1));
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new FlakyWriter());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new ConflictRetryAspect(socksProperties, socksMetrics));
+        writer = proxyFactory.getProxy();
+    }
+
+    @Test
+    void testRetriesUntilConflictClears() {
+        writer.failures.set(2);
+
+        assertEquals("done", writer.write());
+
+        assertEquals(3, writer.calls.get());
+        verify(socksMetrics, times(2)).conflict("update");
+        verify(socksMetrics).retryAttempts("update", 3);
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        SocksProperties.RetryPolicy policy = new SocksProperties.RetryPolicy();
+        policy.setMaxAttempts(2);
+        policy.setInitialBackoff(Duration.ZERO);
+        socksProperties.getRetry().getOperations().put("update", policy);
+        writer.failures.set(5);
+
+        assertThrows(IllegalStateException.class, () -> writer.write());
+
+        assertEquals(2, writer.calls.get());
+        verify(socksMetrics).retryAttempts("update", 2);
+    }
+
+    @Test
+    void testBackoffStaysWithinBound() {
+        SocksProperties.RetryPolicy policy = new SocksProperties.RetryPolicy();
+        policy.setInitialBackoff(Duration.ofMillis(10));
+        policy.setMaxBackoff(Duration.ofMillis(25));
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(ConflictRetryAspect.backoffNanos(policy, 1) <= Duration.ofMillis(10).toNanos());
+            assertTrue(ConflictRetryAspect.backoffNanos(policy, 5) <= Duration.ofMillis(25).toNanos());
+        }
+    }
+
+    static class FlakyWriter {
+
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger calls = new AtomicInteger();
+
+        @RetryOnConflict("update")
+        public String write() {
+            calls.incrementAndGet();
+            if (failures.getAndDecrement() > 0) {
+                throw calls.get() % 2 == 0
+                        ? new PessimisticLockingFailureException("Lock not available")
+                        : new ObjectOptimisticLockingFailureException(Object.class, 1L);
+            }
+            return "done";
+        }
+    }
+}
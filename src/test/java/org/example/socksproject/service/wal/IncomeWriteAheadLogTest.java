@@ -0,0 +1,155 @@
+package org.example.socksproject.service.wal;
+
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.dto.SocksDto;
+import org.example.socksproject.helper.PostgresIntegrationTest;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.repository.SocksRepository;
+import org.example.socksproject.repository.WalCheckpointRepository;
+import org.example.socksproject.service.SocksService;
+import org.example.socksproject.service.batch.SocksBatchImporter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+@PostgresIntegrationTest
+class IncomeWriteAheadLogTest {
+
+    private static final Logger log = LoggerFactory.getLogger(IncomeWriteAheadLogTest.class);
+
+    private static final int THREADS = 16;
+    private static final int INCOMES_PER_THREAD = 200;
+
+    @Autowired
+    private SocksService socksService;
+
+    @Autowired
+    private SocksBatchImporter batchImporter;
+
+    @Autowired
+    private SocksRepository socksRepository;
+
+    @Autowired
+    private WalCheckpointRepository checkpointRepository;
+
+    @TempDir
+    private Path directory;
+
+    @BeforeEach
+    void setUp() {
+        socksRepository.deleteAll();
+        checkpointRepository.deleteAll();
+    }
+
+    @Test
+    void testReplayAppliesEveryRecordOnce() throws Exception {
+        SocksProperties socksProperties = walProperties();
+        WalSegment segment = WalSegment.create(directory, 1, 4096);
+        for (int sequence = 1; sequence <= 3; sequence++) {
+            segment.append(WalSegment.encode(new WalRecord(sequence, new SocksKey("black", 50), 10)), sequence);
+        }
+        segment.force(segment.position());
+
+        IncomeWriteAheadLog first = new IncomeWriteAheadLog(batchImporter, checkpointRepository, socksProperties);
+        first.open();
+        await().atMost(Duration.ofSeconds(10)).until(() -> first.getAppliedSequence() == 3);
+        first.append(new SocksKey("black", 50), 5);
+        first.close();
+
+        IncomeWriteAheadLog second = new IncomeWriteAheadLog(batchImporter, checkpointRepository, socksProperties);
+        second.open();
+        await().atMost(Duration.ofSeconds(10)).until(() -> second.getAppliedSequence() == 4);
+        second.close();
+
+        assertEquals(35, socksRepository.findByColorAndCottonPercentage("black", 50).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testWriteBehindComparedWithSynchronousIncome() throws Exception {
+        IncomeWriteAheadLog writeAheadLog = new IncomeWriteAheadLog(batchImporter, checkpointRepository,
+                walProperties());
+        writeAheadLog.open();
+        SocksDto income = SocksDto.builder().color("black").cottonPercentage(50).quantity(1).build();
+        SocksKey key = new SocksKey("black", 50);
+
+        Result synchronous = run(() -> socksService.incomeSocks(income));
+        Result writeBehind = run(() -> writeAheadLog.append(key, 1));
+        await().atMost(Duration.ofSeconds(30))
+                .until(() -> writeAheadLog.getAppliedSequence() == writeAheadLog.getDurableSequence());
+        writeAheadLog.close();
+
+        log.info("Income: synchronous {} ops/s (p99 {} ms), write-ahead log {} ops/s (p99 {} ms)",
+                Math.round(synchronous.opsPerSecond()), synchronous.p99Millis(),
+                Math.round(writeBehind.opsPerSecond()), writeBehind.p99Millis());
+
+        assertEquals(0, writeBehind.failures());
+        assertEquals(2 * THREADS * INCOMES_PER_THREAD,
+                socksRepository.findByColorAndCottonPercentage("black", 50).orElseThrow().getQuantity());
+    }
+
+    private SocksProperties walProperties() {
+        SocksProperties socksProperties = new SocksProperties();
+        socksProperties.getWal().setEnabled(true);
+        socksProperties.getWal().setDirectory(directory);
+        socksProperties.getWal().setApplyInterval(Duration.ofMillis(10));
+        return socksProperties;
+    }
+
+    private Result run(Runnable income) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger();
+        long[] latencies = new long[THREADS * INCOMES_PER_THREAD];
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < THREADS; i++) {
+            executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < INCOMES_PER_THREAD; j++) {
+                    long callStartedAt = System.nanoTime();
+                    try {
+                        income.run();
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                    latencies[calls.getAndIncrement()] = System.nanoTime() - callStartedAt;
+                }
+                return null;
+            });
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+        return new Result(latencies.length, failures.get(), System.nanoTime() - startedAt, latencies);
+    }
+
+    private record Result(int calls, int failures, long elapsedNanos, long[] latencies) {
+
+        double opsPerSecond() {
+            return calls * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        double p99Millis() {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            return sorted[(int) (sorted.length * 0.99)] / 1_000_000.0;
+        }
+    }
+}
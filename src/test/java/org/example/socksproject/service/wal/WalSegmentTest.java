@@ -0,0 +1,59 @@
+package org.example.socksproject.service.wal;
+
+import org.example.socksproject.model.SocksKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalSegmentTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void testReadReturnsAppendedRecords() throws Exception {
+        WalSegment segment = WalSegment.create(directory, 1, 4096);
+        List<WalRecord> records = List.of(
+                new WalRecord(1, new SocksKey("black", 50), 10),
+                new WalRecord(2, new SocksKey("синий", 0), 1));
+        for (WalRecord record : records) {
+            assertTrue(segment.append(WalSegment.encode(record), record.sequence()));
+        }
+        segment.force(segment.position());
+
+        assertEquals(records, WalSegment.read(segment.path()));
+        assertEquals(2, segment.lastSequence());
+    }
+
+    @Test
+    void testReadStopsAtTornRecord() throws Exception {
+        WalSegment segment = WalSegment.create(directory, 1, 4096);
+        WalRecord first = new WalRecord(1, new SocksKey("black", 50), 10);
+        byte[] encoded = WalSegment.encode(first);
+        segment.append(encoded, 1);
+        segment.append(WalSegment.encode(new WalRecord(2, new SocksKey("black", 50), 20)), 2);
+        segment.force(segment.position());
+
+        try (FileChannel channel = FileChannel.open(segment.path(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f}), encoded.length + 6);
+        }
+
+        assertEquals(List.of(first), WalSegment.read(segment.path()));
+    }
+
+    @Test
+    void testAppendRefusesRecordBeyondSegmentEnd() throws Exception {
+        byte[] encoded = WalSegment.encode(new WalRecord(1, new SocksKey("black", 50), 10));
+        WalSegment segment = WalSegment.create(directory, 1, encoded.length + 1);
+
+        assertTrue(segment.append(encoded, 1));
+        assertFalse(segment.append(encoded, 2));
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.socksproject.service.write;
+
+import org.example.socksproject.config.SocksProperties;
+import org.example.socksproject.model.SocksKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IncomeWriteCombinerTest {
+
+    private static final int THREADS = 16;
+    private static final int INCOMES_PER_THREAD = 50;
+
+    @Mock
+    private SocksIncomeWriter incomeWriter;
+
+    private IncomeWriteCombiner writeCombiner;
+
+    @BeforeEach
+    void setUp() {
+        SocksProperties socksProperties = new SocksProperties();
+        socksProperties.getWriteCombining().setEnabled(true);
+        socksProperties.getWriteCombining().setWindow(Duration.ofMillis(5));
+        socksProperties.getWriteCombining().setMaxBatchSize(8);
+        writeCombiner = new IncomeWriteCombiner(incomeWriter, socksProperties);
+    }
+
+    @Test
+    void testConcurrentIncomesAreCombined() throws Exception {
+        AtomicLong applied = new AtomicLong();
+        AtomicInteger updates = new AtomicInteger();
+        doAnswer(invocation -> {
+            applied.addAndGet(invocation.<Integer>getArgument(1));
+            updates.incrementAndGet();
+            return null;
+        }).when(incomeWriter).apply(any(), anyInt());
+
+        runConcurrently(() -> writeCombiner.income(new SocksKey("black", 50), 1));
+
+        assertEquals(THREADS * INCOMES_PER_THREAD, applied.get());
+        assertTrue(updates.get() < THREADS * INCOMES_PER_THREAD);
+    }
+
+    @Test
+    void testFailureIsSharedByCombinedIncomes() throws Exception {
+        doThrow(new IllegalStateException("Database is down")).when(incomeWriter).apply(any(), anyInt());
+
+        List<Throwable> failures = runConcurrently(() -> writeCombiner.income(new SocksKey("black", 50), 1));
+
+        assertEquals(THREADS * INCOMES_PER_THREAD, failures.size());
+        failures.forEach(failure -> assertEquals("Database is down", failure.getMessage()));
+    }
+
+    private List<Throwable> runConcurrently(Runnable income) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Throwable>>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                List<Throwable> failures = new ArrayList<>();
+                for (int j = 0; j < INCOMES_PER_THREAD; j++) {
+                    try {
+                        income.run();
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    }
+                }
+                return failures;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        List<Throwable> failures = new ArrayList<>();
+        for (Future<List<Throwable>> result : results) {
+            failures.addAll(result.get());
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.socksproject.service.write;
+
+import org.example.socksproject.model.Socks;
+import org.example.socksproject.model.SocksKey;
+import org.example.socksproject.repository.ColorDictionary;
+import org.example.socksproject.repository.SocksRepository;
+import org.example.socksproject.repository.projection.SocksUpsertResult;
+import org.example.socksproject.service.changes.SocksChangeFeed;
+import org.example.socksproject.service.inventory.SocksInventoryIndex;
+import org.example.socksproject.service.ledger.SocksLedger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SocksIncomeWriterTest {
+
+    @Mock
+    private SocksRepository socksRepository;
+
+    @Mock
+    private ColorDictionary colorDictionary;
+
+    @Mock
+    private SocksInventoryIndex inventoryIndex;
+
+    @Mock
+    private SocksChangeFeed changeFeed;
+
+    @Mock
+    private SocksLedger ledger;
+
+    @InjectMocks
+    private SocksIncomeWriter incomeWriter;
+
+    @Test
+    void testApplyWhenSocksExist() {
+        when(colorDictionary.idOf("black")).thenReturn(1);
+        when(socksRepository.upsertQuantity(1, 50, 10))
+                .thenReturn(upsertResult(20, false));
+
+        incomeWriter.apply(new SocksKey("black", 50), 10);
+
+        verify(socksRepository).upsertQuantity(1, 50, 10);
+        verify(socksRepository, never()).save(any(Socks.class));
+        verifyNoInteractions(inventoryIndex);
+        verify(changeFeed).publishAfterCommit("income", new SocksKey("black", 50), 10, 20);
+    }
+
+    @Test
+    void testApplyWhenSocksDoNotExist() {
+        when(colorDictionary.idOf("black")).thenReturn(1);
+        when(socksRepository.upsertQuantity(1, 50, 10))
+                .thenReturn(upsertResult(10, true));
+
+        incomeWriter.apply(new SocksKey("black", 50), 10);
+
+        verify(socksRepository, never()).findByColorAndCottonPercentage(any(), anyInt());
+        verify(inventoryIndex).rowAdded("black", 50);
+    }
+
+    private static SocksUpsertResult upsertResult(int quantity, boolean inserted) {
+        return new SocksUpsertResult() {
+            @Override
+            public int getQuantity() {
+                return quantity;
+            }
+
+            @Override
+            public boolean isInserted() {
+                return inserted;
+            }
+        };
+    }
+}